@@ -2,6 +2,8 @@ package com.gujian.questionnaire.common;
 
 import com.gujian.questionnaire.entity.User;
 import com.gujian.questionnaire.entity.UserRole;
+import com.gujian.questionnaire.security.AuthContext;
+import com.gujian.questionnaire.security.UserPrincipalCache;
 import com.gujian.questionnaire.service.AuthService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,6 +41,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
                                   HttpServletResponse response, 
@@ -48,37 +53,48 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         if (StringUtils.hasText(token)) {
             try {
-                // 1. 验证JWT Token格式和有效性
-                if (!jwtTokenProvider.validateToken(token)) {
+                // 1. 验证JWT Token（单次解析，读取全部声明）
+                JwtClaims claims = jwtTokenProvider.parseVerified(token);
+                if (claims == null) {
                     filterChain.doFilter(request, response);
                     return;
                 }
 
-                // 2. 检查Token是否在黑名单
-                if (authService.isTokenBlacklisted(token)) {
+                String username = claims.getUsername();
+                UserRole role = claims.getRole();
+
+                // 2. 一次管道调用加载黑名单标记、会话信息和用户信息（用户信息优先取本地缓存）
+                User cachedUser = userPrincipalCache.get(username);
+                AuthContext authContext = cachedUser != null
+                        ? authService.loadAuthContextWithoutUser(token, username)
+                        : authService.loadAuthContext(token, username, claims.getUserId());
+                if (authContext.isBlacklisted()) {
                     filterChain.doFilter(request, response);
                     return;
                 }
 
-                // 3. 从JWT Token中获取用户信息
-                String username = jwtTokenProvider.getUsernameFromToken(token);
-                UserRole role = jwtTokenProvider.getRoleFromToken(token);
-
-                // 4. 检查Redis会话是否有效
-                if (!authService.isSessionValid(username)) {
+                // 3. 检查Redis会话是否有效
+                if (!authService.isSessionActive(authContext.getSessionInfo())) {
                     filterChain.doFilter(request, response);
                     return;
                 }
 
-                // 5. 从Redis获取完整用户信息
-                User user = getUserFromRedis(username);
+                // 4. 构建完整用户信息（缓存的用户须与会话中的用户ID一致）
+                User user = cachedUser;
+                if (user == null || !user.getId().equals(authContext.getSessionUserId())) {
+                    if (cachedUser != null) {
+                        authContext = authService.loadAuthContext(token, username, authContext.getSessionUserId());
+                    }
+                    user = buildUser(username, authContext);
+                    userPrincipalCache.put(user);
+                }
                 if (user == null) {
                     log.warn("无法从Redis获取用户信息: {}", username);
                     filterChain.doFilter(request, response);
                     return;
                 }
 
-                // 6. 设置Spring Security认证信息（包含完整User对象）
+                // 5. 设置Spring Security认证信息（包含完整User对象）
                 UsernamePasswordAuthenticationToken auth = 
                     new UsernamePasswordAuthenticationToken(
                         user,  // 完整的User对象作为Principal
@@ -87,8 +103,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     );
                 SecurityContextHolder.getContext().setAuthentication(auth);
 
-                // 7. 刷新Redis会话最后访问时间
-                authService.refreshSession(username);
+                // 6. 刷新Redis会话最后访问时间（按间隔节流）
+                authService.refreshSessionIfStale(username, authContext.getSessionInfo());
 
             } catch (Exception e) {
                 log.error("JWT认证失败: {}", e.getMessage());
@@ -101,30 +117,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
     /**
-     * 从Redis获取完整用户信息
+     * 根据已加载的认证上下文构建完整用户信息
      * @param username 用户名
-     * @return User对象，获取失败返回null
+     * @param authContext 认证上下文
+     * @return User对象，信息不完整时返回null
      */
-    private User getUserFromRedis(String username) {
+    private User buildUser(String username, AuthContext authContext) {
         try {
-            // 从Redis会话信息中获取用户ID
-            Map<Object, Object> sessionInfo = authService.getSessionInfo(username);
-            if (sessionInfo == null || sessionInfo.isEmpty()) {
-                log.warn("Redis中未找到用户会话信息: {}", username);
-                return null;
-            }
-
-            Object userIdObj = sessionInfo.get("userId");
-            if (userIdObj == null) {
+            Long userId = authContext.getSessionUserId();
+            if (userId == null) {
                 log.warn("会话信息中缺少userId: {}", username);
                 return null;
             }
 
-            Long userId = Long.valueOf(userIdObj.toString());
-
-            // 从Redis用户信息缓存中获取完整信息
-            Map<Object, Object> userInfo = authService.getUserInfo(userId);
-            if (userInfo == null || userInfo.isEmpty()) {
+            Map<Object, Object> userInfo = authContext.getUserInfo();
+            if (userInfo.isEmpty()) {
                 log.warn("Redis中未找到用户信息: userId={}", userId);
                 return null;
             }
@@ -155,7 +162,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
             return user;
         } catch (Exception e) {
-            log.error("从Redis获取用户信息失败: username={}, error={}", username, e.getMessage());
+            log.error("构建用户信息失败: username={}, error={}", username, e.getMessage());
             return null;
         }
     }
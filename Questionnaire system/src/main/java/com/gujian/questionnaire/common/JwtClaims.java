@@ -0,0 +1,40 @@
+package com.gujian.questionnaire.common;
+
+import com.gujian.questionnaire.entity.UserRole;
+import lombok.Getter;
+
+/**
+ * 已验证的JWT声明（不可变）
+ * 由 JwtTokenProvider.parseVerified 返回，一次签名校验后即可读取全部声明
+ */
+@Getter
+public final class JwtClaims {
+
+    private final String username;
+
+    private final UserRole role;
+
+    /**
+     * 用户ID（旧版令牌不含此声明，为null）
+     */
+    private final Long userId;
+
+    /**
+     * 过期时间（毫秒时间戳）
+     */
+    private final long expiresAt;
+
+    public JwtClaims(String username, UserRole role, Long userId, long expiresAt) {
+        this.username = username;
+        this.role = role;
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * 是否已过期
+     */
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= expiresAt;
+    }
+}
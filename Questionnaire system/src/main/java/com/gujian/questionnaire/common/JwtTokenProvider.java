@@ -1,5 +1,8 @@
 package com.gujian.questionnaire.common;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.gujian.questionnaire.entity.UserRole;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
@@ -7,11 +10,20 @@ import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JWT令牌提供者
+ *
+ * 签名密钥和解析器只构建一次；验证通过的声明按令牌摘要缓存到过期时间为止，
+ * 同一令牌的后续请求不再重复进行HMAC签名校验
  */
 @Component
 public class JwtTokenProvider {
@@ -22,7 +34,45 @@ public class JwtTokenProvider {
     @Value("${app.jwt.expiration:86400000}")
     private int jwtExpirationMs;
 
-    private Key getSigningKey() {
+    @Value("${app.jwt.claims-cache-size:10000}")
+    private long claimsCacheSize;
+
+    private Key signingKey;
+
+    private JwtParser jwtParser;
+
+    /**
+     * 已验证声明缓存（令牌SHA-256摘要 -> 声明），每条记录在令牌过期时失效
+     */
+    private Cache<String, JwtClaims> claimsCache;
+
+    @PostConstruct
+    public void init() {
+        signingKey = buildSigningKey();
+        jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        claimsCache = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfter(new Expiry<String, JwtClaims>() {
+                    @Override
+                    public long expireAfterCreate(String key, JwtClaims claims, long currentTime) {
+                        long remainingMs = claims.getExpiresAt() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, JwtClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, JwtClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    private Key buildSigningKey() {
         try {
             // 尝试Base64解码
             byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
@@ -37,53 +87,106 @@ public class JwtTokenProvider {
      * 生成JWT令牌
      */
     public String generateToken(String username, UserRole role) {
+        return generateToken(null, username, role);
+    }
+
+    /**
+     * 生成JWT令牌（携带用户ID，认证时可一次性加载会话和用户信息）
+     */
+    public String generateToken(Long userId, String username, UserRole role) {
         Date expiryDate = new Date(System.currentTimeMillis() + jwtExpirationMs);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(username)
-                .claim("role", role.name())
+                .claim("role", role.name());
+        if (userId != null) {
+            builder.claim("uid", userId);
+        }
+        return builder
                 .setIssuedAt(new Date())
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
+    /**
+     * 解析并验证令牌（签名 + 过期时间），一次调用读取全部声明
+     *
+     * @return 验证通过的声明；令牌无效或已过期时返回null
+     */
+    public JwtClaims parseVerified(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        String cacheKey = digest(token);
+        JwtClaims cached = claimsCache.getIfPresent(cacheKey);
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return cached;
+            }
+            claimsCache.invalidate(cacheKey);
+            return null;
+        }
+
+        try {
+            Claims body = jwtParser.parseClaimsJws(token).getBody();
+            String role = body.get("role", String.class);
+            if (role == null) {
+                return null;
+            }
+            Date expiration = body.getExpiration();
+            Number uid = body.get("uid", Number.class);
+            JwtClaims claims = new JwtClaims(
+                    body.getSubject(),
+                    UserRole.valueOf(role),
+                    uid != null ? uid.longValue() : null,
+                    expiration != null ? expiration.getTime() : Long.MAX_VALUE);
+            claimsCache.put(cacheKey, claims);
+            return claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     /**
      * 从令牌中获取用户名
      */
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getSubject();
+        return requireClaims(token).getUsername();
     }
 
     /**
      * 从令牌中获取角色
      */
     public UserRole getRoleFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        String roleStr = claims.get("role", String.class);
-        return UserRole.valueOf(roleStr);
+        return requireClaims(token).getRole();
     }
 
     /**
      * 验证令牌
      */
     public boolean validateToken(String token) {
+        return parseVerified(token) != null;
+    }
+
+    private JwtClaims requireClaims(String token) {
+        JwtClaims claims = parseVerified(token);
+        if (claims == null) {
+            throw new JwtException("无效的令牌");
+        }
+        return claims;
+    }
+
+    /**
+     * 令牌摘要，作为缓存键（避免在内存中长期保存令牌原文）
+     */
+    private static String digest(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
         }
     }
-} 
\ No newline at end of file
+}
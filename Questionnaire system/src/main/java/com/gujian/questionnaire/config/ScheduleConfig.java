@@ -8,6 +8,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 
+import java.util.List;
+
 /**
  * 定时任务配置
  */
@@ -21,15 +23,15 @@ public class ScheduleConfig {
     private AnswerSessionService answerSessionService;
 
     /**
-     * 每5分钟检查一次超时会话
+     * 兜底检查超时会话（会话到期由 SessionTimeoutScheduler 精确处理，此处仅补漏）
      */
-    @Scheduled(fixedRate = 5 * 60 * 1000) // 5分钟 = 5 * 60 * 1000毫秒
+    @Scheduled(fixedDelayString = "${app.scheduling.timeout-check-interval:1800000}")
     public void checkTimeoutSessions() {
         try {
             log.debug("开始执行超时会话检查任务");
-            int timeoutCount = answerSessionService.batchCheckTimeout();
-            if (timeoutCount > 0) {
-                log.info("定时任务处理了{}个超时会话", timeoutCount);
+            List<Long> timeoutIds = answerSessionService.batchCheckTimeout();
+            if (!timeoutIds.isEmpty()) {
+                log.info("定时任务处理了{}个超时会话", timeoutIds.size());
             }
         } catch (Exception e) {
             log.error("检查超时会话任务执行失败", e);
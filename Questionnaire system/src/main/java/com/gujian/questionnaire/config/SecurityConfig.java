@@ -57,6 +57,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers("/api/answer-session/my-sessions").authenticated()                        // 我的答题会话列表 (用户+管理员)
                 .antMatchers("/api/answer-session/my-stats").authenticated()                           // 我的答题统计 (用户+管理员)
                 .antMatchers(HttpMethod.GET, "/api/answer-session/*").authenticated()                  // 获取会话信息 (用户+管理员)
+                .antMatchers(HttpMethod.GET, "/api/answer-session/*/bundle").authenticated()           // 获取会话全部题目 (用户+管理员)
                 .antMatchers(HttpMethod.POST, "/api/answer-session/*/finish").authenticated()         // 完成答题会话 (用户+管理员)
                 .antMatchers(HttpMethod.POST, "/api/answer-session/*/abandon").authenticated()        // 放弃答题会话 (用户+管理员)
                 .antMatchers("/api/answer-session/*/check-timeout").authenticated()                   // 检查会话超时 (用户+管理员)
@@ -42,7 +42,11 @@ public class AnswerRecordController {
     @PostMapping("/submit")
     @Operation(summary = "提交答案")
     public Result<AnswerRecord> submitAnswer(@Valid @RequestBody SubmitAnswerDTO submitAnswerDTO,
+                                           @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
                                            @AuthenticationPrincipal User currentUser) {
+        if (submitAnswerDTO.getIdempotencyKey() == null) {
+            submitAnswerDTO.setIdempotencyKey(idempotencyKey);
+        }
         AnswerRecord answerRecord = answerRecordService.submitAnswer(submitAnswerDTO, currentUser.getId());
         return Result.success(answerRecord);
     }
@@ -3,23 +3,38 @@ package com.gujian.questionnaire.controller;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.gujian.questionnaire.common.Result;
 import com.gujian.questionnaire.common.enums.ErrorCode;
+import com.gujian.questionnaire.dto.CursorPageVO;
 import com.gujian.questionnaire.dto.SessionStatusVO;
 import com.gujian.questionnaire.dto.QuestionVO;
+import com.gujian.questionnaire.dto.SessionBundleVO;
 import com.gujian.questionnaire.dto.StartAnswerDTO;
 import com.gujian.questionnaire.entity.AnswerSession;
 import com.gujian.questionnaire.entity.AnswerRecord;
 import com.gujian.questionnaire.exception.BusinessException;
 import com.gujian.questionnaire.service.AnswerSessionService;
 import com.gujian.questionnaire.service.AnswerRecordService;
+import com.gujian.questionnaire.service.SessionExportService;
 import com.gujian.questionnaire.utils.UserContextUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @Tag(name = "答题会话管理")
 @RestController
@@ -35,6 +50,9 @@ public class AnswerSessionController {
     @Autowired
     private UserContextUtils userContextUtils;
 
+    @Autowired
+    private SessionExportService sessionExportService;
+
     /**
      * 开始答题会话
      */
@@ -78,6 +96,24 @@ public class AnswerSessionController {
         }
     }
 
+    /**
+     * 获取会话全部题目（一次性预取）
+     * 支持 If-None-Match，内容未变化时返回 304
+     */
+    @GetMapping("/{sessionCode}/bundle")
+    @Operation(summary = "获取会话全部题目")
+    public Result<SessionBundleVO> getSessionBundle(@PathVariable String sessionCode, WebRequest webRequest) {
+        try {
+            SessionBundleVO bundle = answerSessionService.getSessionBundle(sessionCode);
+            if (webRequest.checkNotModified(bundle.getEtag())) {
+                return null;
+            }
+            return Result.success(bundle);
+        } catch (BusinessException e) {
+            return Result.error(e.getErrorCode(), e.getMessage());
+        }
+    }
+
     /**
      * 完成会话
      */
@@ -111,6 +147,25 @@ public class AnswerSessionController {
         }
     }
 
+    /**
+     * 获取我的答题会话列表（游标分页）
+     */
+    @GetMapping("/my-sessions/cursor")
+    @Operation(summary = "获取我的答题会话列表（游标分页）")
+    public Result<CursorPageVO<AnswerSession>> getMySessionCursorList(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            Long userId = userContextUtils.requireCurrentUserId();
+            return Result.success(answerSessionService.getUserSessionCursorPage(cursor, size, userId, status,
+                    withTotal));
+        } catch (BusinessException e) {
+            return Result.error(e.getErrorCode(), e.getMessage());
+        }
+    }
+
     /**
      * 获取我的答题统计
      */
@@ -148,6 +203,57 @@ public class AnswerSessionController {
         }
     }
 
+    /**
+     * 获取所有会话列表（管理员，游标分页）
+     * 按创建时间倒序，深分页耗时不随页数增长；总数默认不统计
+     */
+    @GetMapping("/admin/sessions/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "获取所有会话列表（管理员，游标分页）")
+    public Result<CursorPageVO<AnswerSession>> getAllSessionCursorList(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String userName,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String startTime,
+            @RequestParam(required = false) String endTime,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            return Result.success(answerSessionService.getAllSessionCursorPage(cursor, size, userName, status,
+                    startTime, endTime, withTotal));
+        } catch (BusinessException e) {
+            return Result.error(e.getErrorCode(), e.getMessage());
+        }
+    }
+
+    /**
+     * 导出会话答题明细（管理员）
+     * 过滤条件与会话列表一致，结果流式写出为CSV，不受分页上限限制
+     */
+    @GetMapping("/admin/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "导出会话答题明细（管理员）")
+    public void exportSessions(
+            @RequestParam(required = false) String userName,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String startTime,
+            @RequestParam(required = false) String endTime,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+        String fileName = "sessions-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
+                + (gzip ? ".csv.gz" : ".csv");
+        response.setContentType(gzip ? "application/gzip" : "text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+
+        OutputStream out = response.getOutputStream();
+        if (gzip) {
+            out = new GZIPOutputStream(out, 8192);
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024)) {
+            sessionExportService.exportCsv(userName, status, startTime, endTime, writer);
+        }
+    }
+
     /**
      * 检查会话超时
      */
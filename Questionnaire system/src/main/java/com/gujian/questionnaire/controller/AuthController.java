@@ -1,7 +1,9 @@
 package com.gujian.questionnaire.controller;
 
+import com.gujian.questionnaire.common.JwtClaims;
 import com.gujian.questionnaire.common.JwtTokenProvider;
 import com.gujian.questionnaire.common.Result;
+import com.gujian.questionnaire.dto.CursorPageVO;
 import com.gujian.questionnaire.dto.LoginRequest;
 import com.gujian.questionnaire.dto.LoginResponse;
 import com.gujian.questionnaire.entity.User;
@@ -13,7 +15,6 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -46,7 +47,7 @@ public class AuthController {
             }
 
             // 1. 使用JwtTokenProvider生成JWT Token
-            String token = jwtTokenProvider.generateToken(user.getUsername(), user.getRole());
+            String token = jwtTokenProvider.generateToken(user.getId(), user.getUsername(), user.getRole());
 
             // 2. 使用AuthService在Redis中创建会话
             authService.createSession(token, user);
@@ -79,7 +80,8 @@ public class AuthController {
             }
 
             // 1. 验证JWT Token格式和有效性
-            if (!jwtTokenProvider.validateToken(token)) {
+            JwtClaims claims = jwtTokenProvider.parseVerified(token);
+            if (claims == null) {
                 return Result.unauthorized("无效的令牌");
             }
 
@@ -89,7 +91,7 @@ public class AuthController {
             }
 
             // 3. 从Token中获取用户信息
-            String username = jwtTokenProvider.getUsernameFromToken(token);
+            String username = claims.getUsername();
 
             // 4. 检查Redis会话是否存在
             if (!authService.isSessionValid(username)) {
@@ -131,8 +133,9 @@ public class AuthController {
             }
 
             // 验证Token并获取用户信息
-            if (jwtTokenProvider.validateToken(token)) {
-                String username = jwtTokenProvider.getUsernameFromToken(token);
+            JwtClaims claims = jwtTokenProvider.parseVerified(token);
+            if (claims != null) {
+                String username = claims.getUsername();
                 
                 // 获取用户信息
                 User user = userService.findByUsername(username);
@@ -162,7 +165,8 @@ public class AuthController {
             }
 
             // 1. 验证旧Token
-            if (!jwtTokenProvider.validateToken(token)) {
+            JwtClaims claims = jwtTokenProvider.parseVerified(token);
+            if (claims == null) {
                 return Result.unauthorized("无效的令牌");
             }
 
@@ -172,8 +176,8 @@ public class AuthController {
             }
 
             // 3. 从Token获取用户信息
-            String username = jwtTokenProvider.getUsernameFromToken(token);
-            UserRole role = jwtTokenProvider.getRoleFromToken(token);
+            String username = claims.getUsername();
+            UserRole role = claims.getRole();
 
             // 4. 检查Redis会话
             if (!authService.isSessionValid(username)) {
@@ -181,10 +185,10 @@ public class AuthController {
             }
 
             // 5. 生成新的JWT Token
-            String newToken = jwtTokenProvider.generateToken(username, role);
+            User user = userService.findByUsername(username);
+            String newToken = jwtTokenProvider.generateToken(user != null ? user.getId() : null, username, role);
 
             // 6. 更新Redis会话
-            User user = userService.findByUsername(username);
             if (user != null) {
                 authService.logout(token, username, user.getId()); // 销毁旧会话
                 authService.createSession(newToken, user); // 创建新会话
@@ -214,13 +218,15 @@ public class AuthController {
     }
 
     /**
-     * 获取在线用户列表
+     * 获取在线用户列表（游标分页，按最后访问时间倒序）
      */
     @GetMapping("/online-users")
     @PreAuthorize("hasRole('ADMIN')")
-    public Result<List<Map<String, Object>>> getOnlineUsers() {
+    public Result<CursorPageVO<Map<String, Object>>> getOnlineUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            List<Map<String, Object>> onlineUsers = authService.getOnlineUsers();
+            CursorPageVO<Map<String, Object>> onlineUsers = authService.getOnlineUsers(cursor, size);
             return Result.success("获取在线用户列表成功", onlineUsers);
         } catch (Exception e) {
             return Result.error("获取在线用户列表失败：" + e.getMessage());
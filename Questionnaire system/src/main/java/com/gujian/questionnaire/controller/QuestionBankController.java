@@ -2,20 +2,31 @@ package com.gujian.questionnaire.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.gujian.questionnaire.common.Result;
+import com.gujian.questionnaire.common.enums.ErrorCode;
+import com.gujian.questionnaire.dto.CursorPageVO;
+import com.gujian.questionnaire.dto.QuestionImportResultVO;
 import com.gujian.questionnaire.entity.QuestionBank;
 import com.gujian.questionnaire.entity.User;
+import com.gujian.questionnaire.exception.BusinessException;
 import com.gujian.questionnaire.service.QuestionBankService;
+import com.gujian.questionnaire.service.QuestionImportService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 题库管理控制器
@@ -29,6 +40,9 @@ public class QuestionBankController {
     @Autowired
     private QuestionBankService questionBankService;
 
+    @Autowired
+    private QuestionImportService questionImportService;
+
     @GetMapping("/list")
     @Operation(summary = "获取题库列表（无分页）")
     @PreAuthorize("hasRole('ADMIN')")
@@ -69,6 +83,23 @@ public class QuestionBankController {
         return Result.success(result);
     }
 
+    @GetMapping("/cursor")
+    @Operation(summary = "游标分页查询题库", description = "按创建时间倒序，深分页耗时不随页数增长")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<CursorPageVO<QuestionBank>> getQuestionCursorPage(
+            @Parameter(description = "上一页返回的游标") @RequestParam(required = false) String cursor,
+            @Parameter(description = "页大小") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "题型") @RequestParam(required = false) Integer type,
+            @Parameter(description = "状态") @RequestParam(required = false) Integer status,
+            @Parameter(description = "难度") @RequestParam(required = false) Integer difficulty,
+            @Parameter(description = "优先级") @RequestParam(required = false) Integer priority,
+            @Parameter(description = "关键词") @RequestParam(required = false) String keyword,
+            @Parameter(description = "是否统计总数") @RequestParam(defaultValue = "false") boolean withTotal) {
+        CursorPageVO<QuestionBank> result = questionBankService.getQuestionCursorPage(cursor, size, type, status,
+                difficulty, priority, keyword, withTotal);
+        return Result.success(result);
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "获取题目详情")
     @PreAuthorize("hasRole('ADMIN')")
@@ -113,6 +144,34 @@ public class QuestionBankController {
         return success ? Result.success(true) : Result.error("批量删除题目失败");
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "导入题目文件", description = "支持 json/jsonl/csv，默认按文件扩展名识别格式")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<QuestionImportResultVO> importQuestions(
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "格式：json/jsonl/csv") @RequestParam(required = false) String format,
+            @AuthenticationPrincipal User currentUser) throws IOException {
+        String resolved = format != null ? format : questionImportService.detectFormat(file.getOriginalFilename());
+        if (resolved == null) {
+            throw new BusinessException(ErrorCode.PARAMETER_INVALID, "无法识别文件格式，请指定 format 参数");
+        }
+        try (InputStream in = file.getInputStream()) {
+            return Result.success(questionImportService.importQuestions(in, resolved, currentUser.getId()));
+        }
+    }
+
+    @PostMapping("/import/stream")
+    @Operation(summary = "流式导入题目", description = "请求体直接为 json/jsonl/csv 内容，可分块传输，不受上传文件大小限制")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<QuestionImportResultVO> importQuestionStream(
+            @Parameter(description = "格式：json/jsonl/csv") @RequestParam String format,
+            HttpServletRequest request,
+            @AuthenticationPrincipal User currentUser) throws IOException {
+        try (InputStream in = request.getInputStream()) {
+            return Result.success(questionImportService.importQuestions(in, format, currentUser.getId()));
+        }
+    }
+
     @PutMapping("/{id}/status")
     @Operation(summary = "切换题目状态")
     @PreAuthorize("hasRole('ADMIN')")
@@ -130,6 +189,13 @@ public class QuestionBankController {
         return Result.success(stats);
     }
     
+    @GetMapping("/cache-stats")
+    @Operation(summary = "获取题目缓存统计（命中/未命中/淘汰）")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, Object>> getQuestionCacheStats() {
+        return Result.success(questionBankService.getQuestionCacheStats());
+    }
+    
     @GetMapping("/type-stats")
     @Operation(summary = "获取题型统计信息")
     public Result<Object> getQuestionTypeStats() {
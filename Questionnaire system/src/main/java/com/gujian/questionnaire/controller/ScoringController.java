@@ -2,10 +2,14 @@ package com.gujian.questionnaire.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.gujian.questionnaire.common.Result;
+import com.gujian.questionnaire.dto.CursorPageVO;
+import com.gujian.questionnaire.dto.RescoreDTO;
+import com.gujian.questionnaire.dto.RescoreProgressVO;
 import com.gujian.questionnaire.dto.ScoringDTO;
 import com.gujian.questionnaire.entity.AnswerRecord;
 import com.gujian.questionnaire.entity.ScoringRecord;
 import com.gujian.questionnaire.entity.User;
+import com.gujian.questionnaire.service.RescoreService;
 import com.gujian.questionnaire.service.ScoringService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -32,6 +36,9 @@ public class ScoringController {
     @Autowired
     private ScoringService scoringService;
 
+    @Autowired
+    private RescoreService rescoreService;
+
     @PostMapping("/create")
     @Operation(summary = "创建评分记录")
     public Result<ScoringRecord> createScoringRecord(@Valid @RequestBody ScoringDTO scoringDTO,
@@ -70,6 +77,20 @@ public class ScoringController {
         return Result.success(result);
     }
 
+    @GetMapping("/records/cursor")
+    @Operation(summary = "获取评分记录列表（游标分页）")
+    public Result<CursorPageVO<ScoringRecord>> getScoringRecordsCursorPage(
+            @Parameter(description = "上一页返回的游标") @RequestParam(required = false) String cursor,
+            @Parameter(description = "页大小") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "会话ID") @RequestParam(required = false) Long sessionId,
+            @Parameter(description = "评分者ID") @RequestParam(required = false) Long scorerId,
+            @Parameter(description = "是否统计总数") @RequestParam(defaultValue = "false") boolean withTotal) {
+        
+        CursorPageVO<ScoringRecord> result = scoringService.getScoringRecordsCursorPage(cursor, size, sessionId,
+                scorerId, withTotal);
+        return Result.success(result);
+    }
+
     @GetMapping("/session/{sessionId}")
     @Operation(summary = "获取会话的所有评分记录")
     public Result<List<ScoringRecord>> getSessionScoringRecords(@PathVariable Long sessionId) {
@@ -116,4 +137,22 @@ public class ScoringController {
         boolean success = scoringService.completeSessionScoring(sessionId);
         return success ? Result.success(true) : Result.error("完成评分失败");
     }
-} 
\ No newline at end of file
+
+    @PostMapping("/rescore")
+    @Operation(summary = "提交重新评分任务", description = "按题目/会话/答题时间范围后台重新自动评分")
+    public Result<String> submitRescore(@RequestBody RescoreDTO rescoreDTO) {
+        return Result.success(rescoreService.submit(rescoreDTO));
+    }
+
+    @GetMapping("/rescore/{jobId}")
+    @Operation(summary = "查询重新评分任务进度")
+    public Result<RescoreProgressVO> getRescoreProgress(@PathVariable String jobId) {
+        return Result.success(rescoreService.getProgress(jobId));
+    }
+
+    @PostMapping("/rescore/{jobId}/resume")
+    @Operation(summary = "从断点继续重新评分任务")
+    public Result<RescoreProgressVO> resumeRescore(@PathVariable String jobId) {
+        return Result.success(rescoreService.resume(jobId));
+    }
+}
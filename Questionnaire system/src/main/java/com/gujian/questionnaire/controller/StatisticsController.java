@@ -3,8 +3,8 @@ package com.gujian.questionnaire.controller;
 import com.gujian.questionnaire.common.Result;
 import com.gujian.questionnaire.common.enums.ErrorCode;
 import com.gujian.questionnaire.service.AnswerSessionService;
-import com.gujian.questionnaire.service.QuestionBankService;
-import com.gujian.questionnaire.service.ScoringService;
+import com.gujian.questionnaire.service.QuestionStatsService;
+import com.gujian.questionnaire.service.StatisticsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -13,9 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.*;
+import java.util.Map;
 
 /**
  * 统计数据控制器
@@ -27,39 +25,22 @@ import java.util.*;
 public class StatisticsController {
 
     @Autowired
-    private QuestionBankService questionBankService;
+    private AnswerSessionService answerSessionService;
     
     @Autowired
-    private AnswerSessionService answerSessionService;
+    private StatisticsService statisticsService;
     
     @Autowired
-    private ScoringService scoringService;
+    private QuestionStatsService questionStatsService;
 
     @GetMapping("/dashboard")
     @Operation(summary = "获取仪表盘统计数据")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<Map<String, Object>> getDashboardStats() {
-        Map<String, Object> stats = new HashMap<>();
-        
         try {
-            // 获取题库统计
-            Object questionStats = questionBankService.getQuestionStats();
-            
-            // 获取会话统计
-            // 这里需要实现对应的统计方法，先返回模拟数据
-            stats.put("totalQuestions", 25); // 总题目数
-            stats.put("totalSessions", 156); // 总会话数
-            stats.put("completedSessions", 128); // 已完成会话数
-            stats.put("totalUsers", 89); // 总用户数
-            
-            // 会话状态分布
-            stats.put("draftCount", 12); // 进行中
-            stats.put("publishedCount", 128); // 已完成
-            stats.put("endedCount", 16); // 已超时/放弃
-            
-            // 近期趋势数据
-            stats.put("questionStats", questionStats);
-            
+            // 读取增量计数和内存题目索引，不扫描业务表
+            Map<String, Object> stats = statisticsService.getDashboardStats();
+
             log.info("获取仪表盘统计数据成功");
             return Result.success(stats);
             
@@ -75,26 +56,9 @@ public class StatisticsController {
     public Result<Map<String, Object>> getTrend(
             @Parameter(description = "天数") @RequestParam(defaultValue = "7") int days) {
         
-        Map<String, Object> trendData = new HashMap<>();
-        
         try {
-            // 生成最近N天的日期
-            List<String> dates = new ArrayList<>();
-            List<Integer> counts = new ArrayList<>();
-            
-            LocalDate endDate = LocalDate.now();
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM-dd");
-            
-            for (int i = days - 1; i >= 0; i--) {
-                LocalDate date = endDate.minusDays(i);
-                dates.add(date.format(formatter));
-                
-                // 这里应该查询真实的数据，现在先返回模拟数据
-                counts.add((int)(Math.random() * 20) + 5);
-            }
-            
-            trendData.put("dates", dates);
-            trendData.put("counts", counts);
+            // 历史数据来自 stats_daily，当日数据来自Redis实时计数
+            Map<String, Object> trendData = statisticsService.getTrend(days);
             
             log.info("获取{}天趋势数据成功", days);
             return Result.success(trendData);
@@ -110,12 +74,8 @@ public class StatisticsController {
     @PreAuthorize("hasRole('ADMIN')")
     public Result<Map<String, Object>> getQuestionStats(@PathVariable Long questionId) {
         try {
-            // 这里应该实现具体的题目统计逻辑
-            Map<String, Object> questionStats = new HashMap<>();
-            questionStats.put("questionId", questionId);
-            questionStats.put("totalAnswers", 0);
-            questionStats.put("correctRate", 0.0);
-            questionStats.put("avgScore", 0.0);
+            // 读取增量维护的题目统计，不扫描答题记录表
+            Map<String, Object> questionStats = questionStatsService.getQuestionStats(questionId);
             
             return Result.success(questionStats);
             
@@ -125,6 +85,15 @@ public class StatisticsController {
         }
     }
 
+    @PostMapping("/question/rebuild")
+    @Operation(summary = "重建题目统计数据")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Integer> rebuildQuestionStats() {
+        int rebuilt = questionStatsService.rebuild();
+        log.info("手动重建题目统计完成: 题目数={}", rebuilt);
+        return Result.success(rebuilt);
+    }
+
     @GetMapping("/session/{sessionId}")
     @Operation(summary = "获取会话统计数据")
     @PreAuthorize("hasRole('ADMIN')")
@@ -0,0 +1,21 @@
+package com.gujian.questionnaire.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * nextCursor 为下一页的游标，hasMore 为 false 时不再有数据
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageVO<T> {
+    private List<T> records;      // 当前页数据
+    private String nextCursor;    // 下一页游标
+    private Boolean hasMore;      // 是否还有下一页
+    private Long total;           // 总数（未统计时为null）
+}
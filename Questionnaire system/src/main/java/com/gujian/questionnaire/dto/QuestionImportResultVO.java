@@ -0,0 +1,50 @@
+package com.gujian.questionnaire.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 题目导入结果VO
+ */
+@Data
+@Schema(description = "题目导入结果")
+public class QuestionImportResultVO {
+
+    @Schema(description = "读取的题目数")
+    private long total;
+
+    @Schema(description = "成功导入数")
+    private long imported;
+
+    @Schema(description = "标题重复跳过数（与题库或本次导入中的题目重复）")
+    private long duplicated;
+
+    @Schema(description = "失败数")
+    private long failed;
+
+    @Schema(description = "失败明细（最多返回前1000条）")
+    private List<RowError> errors = new ArrayList<>();
+
+    @Schema(description = "失败明细是否被截断")
+    private boolean errorsTruncated;
+
+    @Schema(description = "耗时（毫秒）")
+    private long elapsedMillis;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        /**
+         * 行号（JSON为第几个题目对象，CSV为数据行号，均从1开始）
+         */
+        private long row;
+        private String title;
+        private String message;
+    }
+}
@@ -0,0 +1,36 @@
+package com.gujian.questionnaire.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 重新评分范围DTO（至少指定一个条件，多个条件同时生效）
+ */
+@Data
+@Schema(description = "重新评分范围")
+public class RescoreDTO {
+
+    @Schema(description = "题目ID（修正正确答案后重评该题的全部作答）")
+    private Long questionId;
+
+    @Schema(description = "会话ID")
+    private Long sessionId;
+
+    @Schema(description = "答题时间起")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    @Schema(description = "答题时间止")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+
+    /**
+     * 是否指定了范围条件
+     */
+    public boolean hasScope() {
+        return questionId != null || sessionId != null || startTime != null || endTime != null;
+    }
+}
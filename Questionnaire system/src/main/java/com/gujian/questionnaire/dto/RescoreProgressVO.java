@@ -0,0 +1,48 @@
+package com.gujian.questionnaire.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 重新评分任务进度VO
+ */
+@Data
+@Schema(description = "重新评分任务进度")
+public class RescoreProgressVO {
+
+    @Schema(description = "任务ID")
+    private String jobId;
+
+    @Schema(description = "任务状态：RUNNING-执行中 COMPLETED-已完成 FAILED-失败")
+    private String status;
+
+    @Schema(description = "重新评分范围")
+    private RescoreDTO scope;
+
+    @Schema(description = "待处理记录总数（任务开始时统计）")
+    private Long total;
+
+    @Schema(description = "已处理记录数")
+    private Long processed;
+
+    @Schema(description = "评分发生变化的记录数")
+    private Long changed;
+
+    @Schema(description = "重新计算总分的会话数")
+    private Long affectedSessions;
+
+    @Schema(description = "已处理到的答题记录ID（断点）")
+    private Long lastId;
+
+    @Schema(description = "完成百分比")
+    private Double percent;
+
+    @Schema(description = "开始时间（毫秒）")
+    private Long startTime;
+
+    @Schema(description = "最后更新时间（毫秒）")
+    private Long updateTime;
+
+    @Schema(description = "失败原因")
+    private String error;
+}
@@ -0,0 +1,15 @@
+package com.gujian.questionnaire.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class SessionBundleVO {
+    private String sessionCode;           // 会话编码
+    private Integer totalQuestions;       // 总题目数
+    private List<QuestionVO> questions;   // 全部题目（按出题顺序）
+    private String etag;                  // 内容版本，与响应头 ETag 一致
+}
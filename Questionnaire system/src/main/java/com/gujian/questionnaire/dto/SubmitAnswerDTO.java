@@ -6,6 +6,7 @@ import lombok.Data;
 
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import java.util.List;
 
 /**
@@ -32,4 +33,8 @@ public class SubmitAnswerDTO {
     
     @Schema(description = "答题用时（秒）")
     private Integer timeSpentSeconds;
+    
+    @Schema(description = "幂等键（可选，也可通过请求头 Idempotency-Key 传入），网络重试时使用同一键可安全重复提交")
+    @Size(max = 64, message = "幂等键长度不能超过64")
+    private String idempotencyKey;
 } 
\ No newline at end of file
@@ -33,18 +33,12 @@ public class AnswerRecord {
     @Schema(description = "题型", requiredMode = Schema.RequiredMode.REQUIRED)
     private Integer questionType;
     
-    @Schema(description = "题目描述快照（防止题目被修改影响记录）")
-    private String questionContent;
-    
-    @Schema(description = "题目选项快照")
-    private String questionOptions;
+    @Schema(description = "题目快照ID（防止题目被修改影响记录）")
+    private Long snapshotId;
     
     @Schema(description = "用户答案")
     private String userAnswer;
     
-    @Schema(description = "正确答案")
-    private String correctAnswer;
-    
     @Schema(description = "是否正确（客观题自动判断，主观题为NULL）")
     private Boolean isCorrect;
     
@@ -67,7 +61,22 @@ public class AnswerRecord {
     @Schema(description = "题目序号（在本次会话中的顺序）")
     private Integer sequenceNumber;
     
+    @Schema(description = "客户端幂等键")
+    private String idempotencyKey;
+    
     // 非数据库字段
+    @TableField(exist = false)
+    @Schema(description = "题目描述快照（来自题目快照）")
+    private String questionContent;
+    
+    @TableField(exist = false)
+    @Schema(description = "题目选项快照（来自题目快照）")
+    private String questionOptions;
+    
+    @TableField(exist = false)
+    @Schema(description = "正确答案（来自题目快照）")
+    private String correctAnswer;
+    
     @TableField(exist = false)
     @Schema(description = "题目标题")
     private String questionTitle;
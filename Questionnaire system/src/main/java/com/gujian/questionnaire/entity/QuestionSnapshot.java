@@ -0,0 +1,46 @@
+package com.gujian.questionnaire.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 题目快照实体类
+ * 同一题目的同一版本内容只保存一份，由答题记录通过 snapshot_id 引用，创建后不再修改
+ */
+@Data
+@TableName("question_snapshot")
+@Schema(description = "题目快照")
+public class QuestionSnapshot {
+
+    @TableId(type = IdType.AUTO)
+    @Schema(description = "快照ID")
+    private Long id;
+
+    @Schema(description = "题目ID")
+    private Long questionId;
+
+    @Schema(description = "快照版本（同一题目内递增）")
+    private Integer version;
+
+    @Schema(description = "快照内容哈希")
+    private String contentHash;
+
+    @Schema(description = "题目描述快照（标题 + 描述）")
+    private String content;
+
+    @Schema(description = "题目选项快照")
+    private String options;
+
+    @Schema(description = "正确答案快照")
+    private String correctAnswer;
+
+    @Schema(description = "创建时间")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,44 @@
+package com.gujian.questionnaire.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 每日统计汇总实体类
+ */
+@Data
+@TableName("stats_daily")
+@Schema(description = "每日统计汇总")
+public class StatsDaily {
+
+    @TableId(type = IdType.INPUT)
+    @Schema(description = "统计日期")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate statDate;
+
+    @Schema(description = "开始的会话数")
+    private Integer sessionsStarted = 0;
+
+    @Schema(description = "完成的会话数")
+    private Integer sessionsCompleted = 0;
+
+    @Schema(description = "超时的会话数")
+    private Integer sessionsTimeout = 0;
+
+    @Schema(description = "放弃的会话数")
+    private Integer sessionsAbandoned = 0;
+
+    @Schema(description = "提交的答案数")
+    private Integer answersSubmitted = 0;
+
+    @Schema(description = "更新时间")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime updateTime;
+}
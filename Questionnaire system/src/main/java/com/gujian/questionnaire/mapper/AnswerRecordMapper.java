@@ -2,18 +2,36 @@ package com.gujian.questionnaire.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.gujian.questionnaire.dto.RescoreDTO;
 import com.gujian.questionnaire.entity.AnswerRecord;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 答题记录Mapper接口
  */
 @Mapper
 public interface AnswerRecordMapper extends BaseMapper<AnswerRecord> {
+
+    /**
+     * 会话内答题序号唯一索引（序号冲突可重新分配后重试）
+     */
+    String UK_SESSION_SEQUENCE = "uk_session_sequence";
+
+    /**
+     * 会话内题目唯一索引（同一题重复提交）
+     */
+    String UK_SESSION_QUESTION = "uk_session_question";
+
+    /**
+     * 会话内幂等键唯一索引（同一请求重复提交）
+     */
+    String UK_SESSION_IDEMPOTENCY = "uk_session_idempotency";
     
     /**
      * 根据会话ID查询答题记录（带题目信息）
@@ -41,7 +59,7 @@ public interface AnswerRecordMapper extends BaseMapper<AnswerRecord> {
     IPage<AnswerRecord> selectNeedScoringPage(IPage<AnswerRecord> page);
     
     /**
-     * 根据会话ID获取下一题序号
+     * 根据会话ID获取下一题序号（仅用于初始化或校正会话序号计数器）
      */
     @Select("SELECT COALESCE(MAX(sequence_number), 0) + 1 FROM answer_record WHERE session_id = #{sessionId}")
     Integer getNextSequenceNumber(@Param("sessionId") Long sessionId);
@@ -65,4 +83,49 @@ public interface AnswerRecordMapper extends BaseMapper<AnswerRecord> {
             "WHERE s.session_code = #{sessionCode} " +
             "AND ar.final_score IS NOT NULL")
     Integer countBySessionCode(@Param("sessionCode") String sessionCode);
-} 
\ No newline at end of file
+
+    /**
+     * 批量插入答题记录（XML实现，单条多值INSERT，回填自增ID）
+     */
+    int insertBatch(@Param("records") List<AnswerRecord> records);
+
+    /**
+     * 按题目ID游标分页查询有答题记录的题目（走 idx_question 索引）
+     */
+    @Select("SELECT DISTINCT question_id FROM answer_record " +
+            "WHERE question_id > #{afterId} ORDER BY question_id LIMIT #{limit}")
+    List<Long> selectAnsweredQuestionIds(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * 按题目汇总答题数据（XML实现）
+     * 返回 question_id, attempts, judged, correct, score_sum, time_sum, timed，
+     * 以及每个用时上限对应的累计数 lt_0, lt_1, ...（用时小于 bounds[i] 的记录数）
+     */
+    List<Map<String, Object>> aggregateByQuestion(@Param("questionIds") List<Long> questionIds,
+                                                  @Param("bounds") int[] bounds);
+
+    /**
+     * 按ID游标分页读取范围内可自动评分的答题记录（仅评分所需字段，XML实现）
+     */
+    List<AnswerRecord> selectForRescore(@Param("scope") RescoreDTO scope,
+                                        @Param("afterId") Long afterId,
+                                        @Param("limit") int limit);
+
+    /**
+     * 统计范围内可自动评分的答题记录数（XML实现）
+     */
+    long countForRescore(@Param("scope") RescoreDTO scope);
+
+    /**
+     * 单条UPDATE批量写回自动评分结果（is_correct/auto_score，XML实现）
+     * final_score 在SQL中按 auto_score + 行内当前的 manual_score 计算
+     */
+    int updateScoresBatch(@Param("records") List<AnswerRecord> records);
+
+    /**
+     * 写入人工评分，final_score 在SQL中按行内当前的 auto_score 计算，不覆盖并发重新评分写入的自动评分
+     */
+    @Update("UPDATE answer_record SET manual_score = #{manualScore}, " +
+            "final_score = COALESCE(auto_score, 0) + #{manualScore} WHERE id = #{id}")
+    int updateManualScore(@Param("id") Long id, @Param("manualScore") Integer manualScore);
+}
@@ -5,7 +5,10 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.gujian.questionnaire.entity.AnswerSession;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -53,7 +56,61 @@ public interface AnswerSessionMapper extends BaseMapper<AnswerSession> {
     void updateStateData(@Param("sessionId") Long sessionId, @Param("stateData") Map<String, Object> stateData);
 
     /**
-     * 从状态数据中获取题目ID列表
+     * 按ID游标分页查询进行中且有时限的会话（仅 id/start_time/timeout_minutes），用于重建超时索引
      */
-    List<Long> getQuestionIdsFromStateData(@Param("sessionCode") String sessionCode);
+    List<AnswerSession> selectActiveDeadlines(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * 查询指定会话中进行中且有时限的会话（仅 id/start_time/timeout_minutes）
+     */
+    List<AnswerSession> selectActiveDeadlinesByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 将指定会话中已到期且仍在进行中的会话标记为已超时（单条UPDATE）
+     * @return 实际超时的会话数
+     */
+    int expireSessions(@Param("ids") List<Long> ids);
+
+    /**
+     * 锁定一批已到期的进行中会话ID（FOR UPDATE SKIP LOCKED，多节点并发扫描互不阻塞）
+     * 按 (status, start_time) 索引从最早开始的会话扫描
+     */
+    List<Long> selectExpiredIdsForUpdate(@Param("limit") int limit);
+
+    /**
+     * 按答题记录重新汇总指定会话的最终得分（单条UPDATE ... JOIN 聚合）
+     */
+    int recomputeFinalScores(@Param("sessionIds") Collection<Long> sessionIds);
+
+    /**
+     * 流式读取会话及其答题明细（每行一条答题记录，无答题记录的会话输出一行），用于导出
+     * 结果集逐行回调，不在内存中累积
+     */
+    void streamExportRows(@Param("userName") String userName,
+                          @Param("status") Integer status,
+                          @Param("startTime") String startTime,
+                          @Param("endTime") String endTime,
+                          ResultHandler<Map<String, Object>> handler);
+
+    /**
+     * 键集分页查询会话（XML实现），按 (create_time, id) 倒序，从游标之后读取 limit 行
+     * userId 为空时查询所有用户（管理员），cursorTime 为空时从第一页开始
+     */
+    List<AnswerSession> selectSessionSeek(@Param("userId") Long userId,
+                                          @Param("userName") String userName,
+                                          @Param("status") Integer status,
+                                          @Param("startTime") String startTime,
+                                          @Param("endTime") String endTime,
+                                          @Param("cursorTime") LocalDateTime cursorTime,
+                                          @Param("cursorId") Long cursorId,
+                                          @Param("limit") int limit);
+
+    /**
+     * 统计键集分页的总数（XML实现，只有按用户名过滤时才关联用户表）
+     */
+    long countSessionSeek(@Param("userId") Long userId,
+                          @Param("userName") String userName,
+                          @Param("status") Integer status,
+                          @Param("startTime") String startTime,
+                          @Param("endTime") String endTime);
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.gujian.questionnaire.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 会话题目顺序Mapper接口
+ */
+@Mapper
+public interface AnswerSessionQuestionMapper {
+
+    /**
+     * 批量写入会话题目顺序（单条多值INSERT）
+     */
+    int insertBatch(@Param("sessionId") Long sessionId, @Param("questionIds") List<Long> questionIds);
+
+    /**
+     * 按顺序获取会话的全部题目ID
+     */
+    List<Long> selectQuestionIds(@Param("sessionId") Long sessionId);
+}
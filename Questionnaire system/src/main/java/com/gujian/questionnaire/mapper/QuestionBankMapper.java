@@ -6,7 +6,9 @@ import com.gujian.questionnaire.entity.QuestionBank;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -76,4 +78,65 @@ public interface QuestionBankMapper extends BaseMapper<QuestionBank> {
      * 注意：这个方法需要在XML映射器中实现，因为@Select注解不支持foreach标签
      */
     List<QuestionBank> selectRandomQuestionsFromTypes(@Param("types") List<Integer> types, @Param("count") Integer count);
-} 
\ No newline at end of file
+    
+    /**
+     * 查询所有启用题目的抽题元数据（仅ID、题型、优先级、难度），用于构建内存抽题索引
+     */
+    @Select("SELECT id, type, priority, difficulty FROM question_bank " +
+            "WHERE deleted = 0 AND status = 1")
+    List<QuestionBank> selectActiveQuestionMeta();
+
+    /**
+     * 批量插入题目（XML实现，单条多值INSERT，回填自增ID）
+     */
+    int insertBatch(@Param("questions") List<QuestionBank> questions);
+
+    /**
+     * 流式读取所有未删除题目的标题（XML实现），用于导入去重
+     */
+    void streamTitles(ResultHandler<String> handler);
+
+    /**
+     * 全文检索分页查询（XML实现），按相关度排序，标题命中权重更高
+     * @param query BOOLEAN MODE 检索式
+     */
+    IPage<QuestionBank> searchQuestionPage(IPage<QuestionBank> page,
+                                           @Param("query") String query,
+                                           @Param("type") Integer type,
+                                           @Param("status") Integer status,
+                                           @Param("difficulty") Integer difficulty,
+                                           @Param("priority") Integer priority);
+
+    /**
+     * 全文检索列表查询（XML实现），按相关度排序
+     */
+    List<QuestionBank> searchQuestionList(@Param("query") String query,
+                                          @Param("type") Integer type,
+                                          @Param("status") Integer status,
+                                          @Param("difficulty") Integer difficulty,
+                                          @Param("limit") int limit);
+
+    /**
+     * 键集分页查询题库（XML实现），按 (create_time, id) 倒序从游标之后读取
+     * @param query 全文检索式，为空时使用 keyword 做LIKE匹配
+     */
+    List<QuestionBank> selectQuestionSeek(@Param("type") Integer type,
+                                          @Param("status") Integer status,
+                                          @Param("difficulty") Integer difficulty,
+                                          @Param("priority") Integer priority,
+                                          @Param("query") String query,
+                                          @Param("keyword") String keyword,
+                                          @Param("cursorTime") LocalDateTime cursorTime,
+                                          @Param("cursorId") Long cursorId,
+                                          @Param("limit") int limit);
+
+    /**
+     * 统计键集分页的总数（XML实现）
+     */
+    long countQuestionSeek(@Param("type") Integer type,
+                           @Param("status") Integer status,
+                           @Param("difficulty") Integer difficulty,
+                           @Param("priority") Integer priority,
+                           @Param("query") String query,
+                           @Param("keyword") String keyword);
+}
\ No newline at end of file
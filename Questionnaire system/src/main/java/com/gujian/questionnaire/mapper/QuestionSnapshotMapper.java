@@ -0,0 +1,40 @@
+package com.gujian.questionnaire.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.gujian.questionnaire.entity.QuestionSnapshot;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * 题目快照Mapper接口
+ */
+@Mapper
+public interface QuestionSnapshotMapper extends BaseMapper<QuestionSnapshot> {
+
+    /**
+     * 以题目当前最大版本 + 1 插入新快照，回填自增ID
+     * 并发创建同一内容（uk_question_hash）或同一版本号（uk_question_version）时抛出 DuplicateKeyException
+     */
+    @Insert("INSERT INTO question_snapshot (question_id, version, content_hash, content, options, correct_answer) " +
+            "SELECT #{questionId}, COALESCE(MAX(version), 0) + 1, #{contentHash}, #{content}, #{options}, #{correctAnswer} " +
+            "FROM question_snapshot WHERE question_id = #{questionId}")
+    @Options(useGeneratedKeys = true, keyProperty = "id", keyColumn = "id")
+    int insertNextVersion(QuestionSnapshot snapshot);
+
+    /**
+     * 按内容哈希查询快照（加共享锁读取，可见并发事务刚提交的快照）
+     */
+    @Select("SELECT * FROM question_snapshot WHERE question_id = #{questionId} AND content_hash = #{contentHash} " +
+            "LOCK IN SHARE MODE")
+    QuestionSnapshot selectByHash(@Param("questionId") Long questionId, @Param("contentHash") String contentHash);
+
+    /**
+     * 批量插入快照（XML实现，单条多值INSERT，回填自增ID），用于新题目的首个版本
+     */
+    int insertBatch(@Param("snapshots") List<QuestionSnapshot> snapshots);
+}
@@ -8,6 +8,7 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -33,6 +34,37 @@ public interface ScoringRecordMapper extends BaseMapper<ScoringRecord> {
     IPage<ScoringRecord> selectPageWithDetails(IPage<ScoringRecord> page,
                                              @Param("sessionId") Long sessionId,
                                              @Param("scorerId") Long scorerId);
+
+    /**
+     * 键集分页查询评分记录（带详细信息），按 (scoring_time, id) 倒序从游标之后读取
+     */
+    @Select("SELECT sr.*, u1.real_name as scorer_name, u2.real_name as student_name, " +
+            "qb.title as question_title, ar.user_answer " +
+            "FROM scoring_record sr " +
+            "LEFT JOIN sys_user u1 ON sr.scorer_id = u1.id " +
+            "LEFT JOIN answer_record ar ON sr.answer_record_id = ar.id " +
+            "LEFT JOIN answer_session s ON sr.session_id = s.id " +
+            "LEFT JOIN sys_user u2 ON s.user_id = u2.id " +
+            "LEFT JOIN question_bank qb ON ar.question_id = qb.id " +
+            "WHERE (#{scorerId} IS NULL OR sr.scorer_id = #{scorerId}) " +
+            "AND (#{sessionId} IS NULL OR sr.session_id = #{sessionId}) " +
+            "AND (#{cursorTime} IS NULL OR sr.scoring_time < #{cursorTime} " +
+            "     OR (sr.scoring_time = #{cursorTime} AND sr.id < #{cursorId})) " +
+            "ORDER BY sr.scoring_time DESC, sr.id DESC " +
+            "LIMIT #{limit}")
+    List<ScoringRecord> selectSeekWithDetails(@Param("sessionId") Long sessionId,
+                                              @Param("scorerId") Long scorerId,
+                                              @Param("cursorTime") LocalDateTime cursorTime,
+                                              @Param("cursorId") Long cursorId,
+                                              @Param("limit") int limit);
+
+    /**
+     * 统计评分记录数（不关联详情表）
+     */
+    @Select("SELECT COUNT(*) FROM scoring_record sr " +
+            "WHERE (#{scorerId} IS NULL OR sr.scorer_id = #{scorerId}) " +
+            "AND (#{sessionId} IS NULL OR sr.session_id = #{sessionId})")
+    long countScoringRecords(@Param("sessionId") Long sessionId, @Param("scorerId") Long scorerId);
     
     /**
      * 根据会话ID查询评分记录
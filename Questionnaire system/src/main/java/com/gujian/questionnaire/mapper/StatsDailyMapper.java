@@ -0,0 +1,82 @@
+package com.gujian.questionnaire.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.gujian.questionnaire.entity.StatsDaily;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每日统计汇总Mapper接口
+ */
+@Mapper
+public interface StatsDailyMapper extends BaseMapper<StatsDaily> {
+
+    /**
+     * 写入或覆盖某日的汇总数据
+     */
+    @Insert("INSERT INTO stats_daily (stat_date, sessions_started, sessions_completed, sessions_timeout, " +
+            "sessions_abandoned, answers_submitted) " +
+            "VALUES (#{statDate}, #{sessionsStarted}, #{sessionsCompleted}, #{sessionsTimeout}, " +
+            "#{sessionsAbandoned}, #{answersSubmitted}) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "sessions_started = VALUES(sessions_started), " +
+            "sessions_completed = VALUES(sessions_completed), " +
+            "sessions_timeout = VALUES(sessions_timeout), " +
+            "sessions_abandoned = VALUES(sessions_abandoned), " +
+            "answers_submitted = VALUES(answers_submitted)")
+    int upsert(StatsDaily statsDaily);
+
+    /**
+     * 按日期范围查询汇总数据（主键范围扫描）
+     */
+    @Select("SELECT * FROM stats_daily WHERE stat_date BETWEEN #{from} AND #{to} ORDER BY stat_date")
+    List<StatsDaily> selectRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // ============================= 对账用原始数据汇总 =============================
+
+    /**
+     * 按开始日期统计会话数
+     */
+    @Select("SELECT DATE(start_time) AS stat_date, COUNT(*) AS cnt FROM answer_session " +
+            "WHERE start_time >= #{from} GROUP BY DATE(start_time)")
+    List<Map<String, Object>> countStartedByDay(@Param("from") LocalDateTime from);
+
+    /**
+     * 按结束日期和状态统计已结束会话数
+     */
+    @Select("SELECT DATE(end_time) AS stat_date, status, COUNT(*) AS cnt FROM answer_session " +
+            "WHERE end_time >= #{from} AND status IN (2, 3, 4) GROUP BY DATE(end_time), status")
+    List<Map<String, Object>> countEndedByDay(@Param("from") LocalDateTime from);
+
+    /**
+     * 按答题日期统计答案数
+     */
+    @Select("SELECT DATE(answer_time) AS stat_date, COUNT(*) AS cnt FROM answer_record " +
+            "WHERE answer_time >= #{from} GROUP BY DATE(answer_time)")
+    List<Map<String, Object>> countAnswersByDay(@Param("from") LocalDateTime from);
+
+    /**
+     * 按状态统计未删除的会话数
+     */
+    @Select("SELECT status, COUNT(*) AS cnt FROM answer_session WHERE deleted = 0 GROUP BY status")
+    List<Map<String, Object>> countSessionsByStatus();
+
+    /**
+     * 统计全部答案数
+     */
+    @Select("SELECT COUNT(*) FROM answer_record")
+    long countAnswers();
+
+    /**
+     * 统计用户数
+     */
+    @Select("SELECT COUNT(*) FROM sys_user")
+    long countUsers();
+}
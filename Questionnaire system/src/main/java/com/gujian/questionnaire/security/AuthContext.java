@@ -0,0 +1,54 @@
+package com.gujian.questionnaire.security;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 认证上下文 - 一次批量读取的Redis认证数据
+ *
+ * 包含Token黑名单标记、会话Hash和用户信息Hash，
+ * 由 AuthService.loadAuthContext 通过管道一次性加载
+ */
+public final class AuthContext {
+
+    private final boolean blacklisted;
+
+    private final Map<Object, Object> sessionInfo;
+
+    private final Map<Object, Object> userInfo;
+
+    public AuthContext(boolean blacklisted, Map<Object, Object> sessionInfo, Map<Object, Object> userInfo) {
+        this.blacklisted = blacklisted;
+        this.sessionInfo = sessionInfo != null ? sessionInfo : Collections.emptyMap();
+        this.userInfo = userInfo != null ? userInfo : Collections.emptyMap();
+    }
+
+    /**
+     * Token是否在黑名单中
+     */
+    public boolean isBlacklisted() {
+        return blacklisted;
+    }
+
+    /**
+     * 会话信息（user:session:{username}），不存在时为空Map
+     */
+    public Map<Object, Object> getSessionInfo() {
+        return sessionInfo;
+    }
+
+    /**
+     * 用户信息（user:info:{userId}），不存在时为空Map
+     */
+    public Map<Object, Object> getUserInfo() {
+        return userInfo;
+    }
+
+    /**
+     * 会话中记录的用户ID
+     */
+    public Long getSessionUserId() {
+        Object userId = sessionInfo.get("userId");
+        return userId != null ? Long.valueOf(userId.toString()) : null;
+    }
+}
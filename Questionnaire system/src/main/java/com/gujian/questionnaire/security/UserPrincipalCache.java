@@ -0,0 +1,67 @@
+package com.gujian.questionnaire.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gujian.questionnaire.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已认证用户主体的本地缓存（用户名 -> User）
+ *
+ * 认证过滤器命中缓存时无需再从Redis读取用户信息Hash；
+ * 登出、强制下线、修改用户状态时主动失效，其他节点的修改依靠短TTL收敛
+ */
+@Component
+public class UserPrincipalCache {
+
+    @Value("${app.auth.principal-cache-ttl:30}")
+    private long ttlSeconds;
+
+    @Value("${app.auth.principal-cache-size:10000}")
+    private long maximumSize;
+
+    private Cache<String, User> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 获取缓存的用户，未命中返回null
+     */
+    public User get(String username) {
+        return username != null ? cache.getIfPresent(username) : null;
+    }
+
+    public void put(User user) {
+        if (user != null && user.getUsername() != null) {
+            cache.put(user.getUsername(), user);
+        }
+    }
+
+    /**
+     * 按用户名失效
+     */
+    public void invalidate(String username) {
+        if (username != null) {
+            cache.invalidate(username);
+        }
+    }
+
+    /**
+     * 按用户ID失效
+     */
+    public void invalidateUserId(Long userId) {
+        if (userId != null) {
+            cache.asMap().values().removeIf(user -> userId.equals(user.getId()));
+        }
+    }
+}
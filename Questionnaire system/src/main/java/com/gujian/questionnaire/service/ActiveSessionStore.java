@@ -0,0 +1,411 @@
+package com.gujian.questionnaire.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gujian.questionnaire.entity.AnswerSession;
+import com.gujian.questionnaire.mapper.AnswerSessionMapper;
+import com.gujian.questionnaire.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * 活跃会话状态缓存（本地近端缓存 -> Redis Hash -> 数据库）
+ *
+ * 按会话编码缓存答题热路径所需的会话快照：不变的考试计划（会话ID、用户、题型、题数、总分、开始时间）
+ * 和可变的状态（状态、时限、结束时间）。开始会话时写入，状态流转更新数据库后在事务提交后整体覆盖Redis（写穿），
+ * 并通过Redis发布/订阅通知各节点失效本地缓存。未命中时按会话编码查询数据库并仅在Redis中不存在时回填，
+ * 避免并发的回填覆盖状态流转写入的新状态
+ */
+@Slf4j
+@Component
+public class ActiveSessionStore implements MessageListener {
+
+    private static final String CHANNEL = "session:active:invalidate";
+
+    private static final String KEY_PREFIX = "session:active:";
+
+    /**
+     * 会话ID -> 会话编码，供按ID批量超时的场景定位缓存
+     */
+    private static final String ID_KEY_PREFIX = "session:active:id:";
+
+    /**
+     * 进行中会话在截止时间之后的保留时间（秒）
+     */
+    private static final long ACTIVE_GRACE_SECONDS = 3600;
+
+    /**
+     * 没有时限的进行中会话的保留时间（秒）
+     */
+    private static final long UNLIMITED_TTL_SECONDS = 24 * 3600;
+
+    /**
+     * 已结束会话的保留时间（秒），覆盖交卷后的状态查询
+     */
+    private static final long FINISHED_TTL_SECONDS = 600;
+
+    private static final int REDIS_BATCH_SIZE = 500;
+
+    private static final String[] FIELDS = {
+            "id", "userId", "questionTypes", "totalCount", "totalScore",
+            "timeoutMinutes", "startTime", "endTime", "status"
+    };
+
+    /**
+     * 键不存在时才回填（ARGV 依次为 FIELDS 各字段的值和过期秒数）
+     */
+    private static final RedisScript<Long> FILL_IF_ABSENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return 0 end " +
+            "redis.call('hmset', KEYS[1], 'id', ARGV[1], 'userId', ARGV[2], 'questionTypes', ARGV[3], " +
+            "'totalCount', ARGV[4], 'totalScore', ARGV[5], 'timeoutMinutes', ARGV[6], 'startTime', ARGV[7], " +
+            "'endTime', ARGV[8], 'status', ARGV[9]) " +
+            "redis.call('expire', KEYS[1], ARGV[10]) " +
+            "return 1", Long.class);
+
+    /**
+     * 从会话计数器分配 ARGV[1] 个序号，返回分配后的计数值；计数器不存在时返回-1
+     */
+    private static final RedisScript<Long> ALLOCATE_SEQUENCE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('hexists', KEYS[1], 'seq') == 0 then return -1 end " +
+            "return redis.call('hincrby', KEYS[1], 'seq', ARGV[1])", Long.class);
+
+    /**
+     * 计数器低于 ARGV[2]（数据库中已用的最大序号）时先提升到该值再分配；会话缓存不存在时返回-1
+     */
+    private static final RedisScript<Long> SEED_SEQUENCE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then return -1 end " +
+            "local current = tonumber(redis.call('hget', KEYS[1], 'seq') or '0') " +
+            "if current < tonumber(ARGV[2]) then redis.call('hset', KEYS[1], 'seq', ARGV[2]) end " +
+            "return redis.call('hincrby', KEYS[1], 'seq', ARGV[1])", Long.class);
+
+    @Value("${app.active-session.local-size:10000}")
+    private long localSize;
+
+    @Value("${app.active-session.local-ttl:30}")
+    private long localTtlSeconds;
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private AnswerSessionMapper answerSessionMapper;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    private Cache<String, AnswerSession> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(localSize)
+                .expireAfterWrite(localTtlSeconds, TimeUnit.SECONDS)
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 获取会话快照，会话不存在时返回null
+     * 返回的对象只包含 FIELDS 中的字段和会话编码，仅用于校验，不可用于更新数据库
+     */
+    public AnswerSession get(String sessionCode) {
+        if (sessionCode == null) {
+            return null;
+        }
+        AnswerSession cached = cache.getIfPresent(sessionCode);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+
+        AnswerSession session = readRedis(sessionCode);
+        if (session == null) {
+            session = answerSessionMapper.selectOne(new LambdaQueryWrapper<AnswerSession>()
+                    .eq(AnswerSession::getSessionCode, sessionCode));
+            if (session == null) {
+                return null;
+            }
+            session = fill(snapshotOf(session));
+        }
+        cache.put(sessionCode, session);
+        return copyOf(session);
+    }
+
+    /**
+     * 会话创建或状态流转后写入最新状态（事务提交后生效）
+     * @param session 已更新到数据库的完整会话
+     */
+    public void put(AnswerSession session) {
+        if (session == null || session.getId() == null || session.getSessionCode() == null) {
+            return;
+        }
+        AnswerSession snapshot = snapshotOf(session);
+        TransactionUtils.afterCommit(() -> write(snapshot));
+    }
+
+    /**
+     * 按会话ID失效（事务提交后生效），用于按ID批量标记超时等无法直接得到新状态的场景
+     */
+    @SuppressWarnings("unchecked")
+    public void evictAll(Collection<Long> sessionIds) {
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(sessionIds);
+        TransactionUtils.afterCommit(() -> {
+            try {
+                List<Object> codes = redisService.multiGet(ids.stream().map(id -> ID_KEY_PREFIX + id)
+                        .collect(Collectors.toList()), REDIS_BATCH_SIZE);
+                List<String> sessionCodes = codes.stream().filter(Objects::nonNull).map(Object::toString)
+                        .collect(Collectors.toList());
+                redisService.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                        RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                        sessionCodes.forEach(code -> ops.delete(KEY_PREFIX + code));
+                        ids.forEach(id -> ops.delete(ID_KEY_PREFIX + id));
+                        return null;
+                    }
+                });
+                if (!sessionCodes.isEmpty()) {
+                    cache.invalidateAll(sessionCodes);
+                    redisService.publish(CHANNEL, String.join(",", sessionCodes));
+                }
+            } catch (Exception e) {
+                log.warn("失效活跃会话缓存失败: 会话数={}, 错误={}", ids.size(), e.getMessage());
+            }
+            // 未能定位到会话编码的本地缓存按ID清理
+            cache.asMap().values().removeIf(session -> ids.contains(session.getId()));
+        });
+    }
+
+    /**
+     * 分配 count 个会话内连续的答题序号（会话缓存中的 seq 计数器，HINCRBY），返回第一个序号
+     * 计数器不存在时按 lastUsed（数据库及写后缓冲中已用的最大序号）初始化；
+     * 会话缓存不可用时退回 lastUsed + 1，由 (session_id, sequence_number) 唯一约束兜底
+     * @param resync 是否先将计数器校正到 lastUsed（插入发生序号冲突后重试时使用）
+     */
+    public int allocateSequence(String sessionCode, int count, IntSupplier lastUsed, boolean resync) {
+        List<String> keys = Collections.singletonList(KEY_PREFIX + sessionCode);
+        Integer seed = null;
+        try {
+            if (!resync) {
+                Long last = redisService.execute(ALLOCATE_SEQUENCE_SCRIPT, keys, count);
+                if (last != null && last >= 0) {
+                    return (int) (last - count + 1);
+                }
+            }
+            seed = lastUsed.getAsInt();
+            Long last = redisService.execute(SEED_SEQUENCE_SCRIPT, keys, count, seed);
+            if (last != null && last >= 0) {
+                return (int) (last - count + 1);
+            }
+        } catch (Exception e) {
+            log.warn("分配答题序号失败，按数据库序号分配: sessionCode={}, 错误={}", sessionCode, e.getMessage());
+        }
+        return (seed != null ? seed : lastUsed.getAsInt()) + 1;
+    }
+
+    /**
+     * 接收状态变更通知，格式为 "会话编码,..."
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisService.deserializeMessage(message.getBody());
+            if (body instanceof String) {
+                cache.invalidateAll(Arrays.asList(((String) body).split(",")));
+            }
+        } catch (RuntimeException e) {
+            log.warn("处理活跃会话失效消息失败: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(AnswerSession snapshot) {
+        String sessionCode = snapshot.getSessionCode();
+        long ttl = ttlOf(snapshot);
+        Map<String, Object> hash = toHash(snapshot);
+        try {
+            redisService.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    ops.opsForHash().putAll(KEY_PREFIX + sessionCode, hash);
+                    ops.expire(KEY_PREFIX + sessionCode, ttl, TimeUnit.SECONDS);
+                    ops.opsForValue().set(ID_KEY_PREFIX + snapshot.getId(), sessionCode, ttl, TimeUnit.SECONDS);
+                    return null;
+                }
+            });
+            cache.put(sessionCode, snapshot);
+            redisService.publish(CHANNEL, sessionCode);
+        } catch (Exception e) {
+            // 写入失败时删除旧状态，后续读取回源数据库
+            log.warn("写入活跃会话缓存失败: sessionCode={}, 错误={}", sessionCode, e.getMessage());
+            cache.invalidate(sessionCode);
+            try {
+                redisService.del(KEY_PREFIX + sessionCode);
+            } catch (Exception ignored) {
+                // 依赖过期时间兜底
+            }
+        }
+    }
+
+    /**
+     * 回填Redis，键已存在（并发的状态流转已写入）时以Redis中的状态为准
+     */
+    private AnswerSession fill(AnswerSession snapshot) {
+        try {
+            long ttl = ttlOf(snapshot);
+            Map<String, Object> hash = toHash(snapshot);
+            Object[] args = new Object[FIELDS.length + 1];
+            for (int i = 0; i < FIELDS.length; i++) {
+                args[i] = hash.get(FIELDS[i]);
+            }
+            args[FIELDS.length] = ttl;
+            Long filled = redisService.execute(FILL_IF_ABSENT_SCRIPT,
+                    Collections.singletonList(KEY_PREFIX + snapshot.getSessionCode()), args);
+            if (filled != null && filled == 0) {
+                AnswerSession current = readRedis(snapshot.getSessionCode());
+                return current != null ? current : snapshot;
+            }
+            redisService.set(ID_KEY_PREFIX + snapshot.getId(), snapshot.getSessionCode(), ttl);
+        } catch (Exception e) {
+            log.warn("回填活跃会话缓存失败: sessionCode={}, 错误={}", snapshot.getSessionCode(), e.getMessage());
+        }
+        return snapshot;
+    }
+
+    private AnswerSession readRedis(String sessionCode) {
+        try {
+            Map<Object, Object> hash = redisService.hmget(KEY_PREFIX + sessionCode);
+            if (hash == null || hash.get("id") == null || hash.get("status") == null) {
+                return null;
+            }
+            AnswerSession session = new AnswerSession();
+            session.setSessionCode(sessionCode);
+            session.setId(toLong(hash.get("id")));
+            session.setUserId(toLong(hash.get("userId")));
+            session.setQuestionTypes(toIntegerList(hash.get("questionTypes")));
+            session.setTotalCount(toInteger(hash.get("totalCount")));
+            session.setTotalScore(toInteger(hash.get("totalScore")));
+            session.setTimeoutMinutes(toInteger(hash.get("timeoutMinutes")));
+            session.setStartTime(toTime(hash.get("startTime")));
+            session.setEndTime(toTime(hash.get("endTime")));
+            session.setStatus(toInteger(hash.get("status")));
+            return session;
+        } catch (Exception e) {
+            log.warn("读取活跃会话缓存失败，回源数据库: sessionCode={}, 错误={}", sessionCode, e.getMessage());
+            return null;
+        }
+    }
+
+    private static Map<String, Object> toHash(AnswerSession session) {
+        Map<String, Object> hash = new LinkedHashMap<>();
+        hash.put("id", session.getId());
+        hash.put("userId", session.getUserId());
+        hash.put("questionTypes", session.getQuestionTypes() != null ? new ArrayList<>(session.getQuestionTypes()) : null);
+        hash.put("totalCount", session.getTotalCount());
+        hash.put("totalScore", session.getTotalScore());
+        hash.put("timeoutMinutes", session.getTimeoutMinutes());
+        hash.put("startTime", toMillis(session.getStartTime()));
+        hash.put("endTime", toMillis(session.getEndTime()));
+        hash.put("status", session.getStatus());
+        return hash;
+    }
+
+    /**
+     * 进行中的会话保留到截止时间之后一段时间，已结束的会话短时保留
+     */
+    private static long ttlOf(AnswerSession session) {
+        if (!Integer.valueOf(1).equals(session.getStatus())) {
+            return FINISHED_TTL_SECONDS;
+        }
+        if (session.getTimeoutMinutes() == null || session.getStartTime() == null) {
+            return UNLIMITED_TTL_SECONDS;
+        }
+        long remaining = Duration.between(LocalDateTime.now(),
+                session.getStartTime().plusMinutes(session.getTimeoutMinutes())).getSeconds();
+        return Math.max(remaining, 0) + ACTIVE_GRACE_SECONDS;
+    }
+
+    private static AnswerSession snapshotOf(AnswerSession source) {
+        AnswerSession session = new AnswerSession();
+        session.setId(source.getId());
+        session.setUserId(source.getUserId());
+        session.setSessionCode(source.getSessionCode());
+        session.setQuestionTypes(source.getQuestionTypes());
+        session.setTotalCount(source.getTotalCount());
+        session.setTotalScore(source.getTotalScore());
+        session.setTimeoutMinutes(source.getTimeoutMinutes());
+        session.setStartTime(source.getStartTime());
+        session.setEndTime(source.getEndTime());
+        session.setStatus(source.getStatus());
+        return session;
+    }
+
+    private static AnswerSession copyOf(AnswerSession snapshot) {
+        AnswerSession session = snapshotOf(snapshot);
+        if (snapshot.getQuestionTypes() != null) {
+            session.setQuestionTypes(new ArrayList<>(snapshot.getQuestionTypes()));
+        }
+        return session;
+    }
+
+    private static Long toMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : null;
+    }
+
+    private static LocalDateTime toTime(Object value) {
+        return value instanceof Number
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(((Number) value).longValue()), ZoneId.systemDefault())
+                : null;
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    private static Integer toInteger(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : null;
+    }
+
+    private static List<Integer> toIntegerList(Object value) {
+        if (!(value instanceof List)) {
+            return null;
+        }
+        List<Integer> list = new ArrayList<>();
+        for (Object item : (List<?>) value) {
+            list.add(toInteger(item));
+        }
+        return list;
+    }
+}
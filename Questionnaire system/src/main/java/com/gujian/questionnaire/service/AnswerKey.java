@@ -0,0 +1,331 @@
+package com.gujian.questionnaire.service;
+
+import com.gujian.questionnaire.entity.QuestionBank;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 预编译的题目答案（不可变）
+ *
+ * 把正确答案和选项在编译时一次性解析好，评分时只做位掩码或字符串比较：
+ * - 单选/评分题：可接受的答案文本 + 可接受的选项字母位掩码
+ * - 多选题：正确选项位掩码（第i位对应字母 'A'+i），选项数不超过64
+ * - 填空题：可接受的答案文本、多空答案的标准化集合、预解析的数值
+ *
+ * 判定结果与原有 compareSingleChoice / compareMultipleChoice / compareFillBlank 一致
+ */
+public final class AnswerKey {
+
+    /**
+     * 填空题多个正确答案的分隔符
+     */
+    private static final String FILL_BLANK_SEPARATORS = "[,，;；|、]";
+
+    private static final int MAX_MASK_OPTIONS = 64;
+
+    private final Long questionId;
+
+    private final LocalDateTime updateTime;
+
+    private final Integer type;
+
+    /**
+     * 修剪后的选项内容，选项JSON无法解析时为null
+     */
+    private final String[] options;
+
+    /**
+     * 与用户答案忽略大小写比较的可接受文本
+     */
+    private final String[] acceptedTexts;
+
+    /**
+     * 单选：内容与正确答案相同的选项；多选：正确选项集合
+     */
+    private final long optionMask;
+
+    /**
+     * 多选题在选项无法解析时按原答案逐项比较（已排序、修剪）
+     */
+    private final List<String> sortedTokens;
+
+    /**
+     * 填空题多空答案的标准化集合，正确答案只有一项时为null
+     */
+    private final Set<String> blankSet;
+
+    /**
+     * 填空题正确答案的数值，非数字时为null
+     */
+    private final Double numericValue;
+
+    private AnswerKey(QuestionBank question, String[] options, String[] acceptedTexts, long optionMask,
+                      List<String> sortedTokens, Set<String> blankSet, Double numericValue) {
+        this.questionId = question.getId();
+        this.updateTime = question.getUpdateTime();
+        this.type = question.getType();
+        this.options = options;
+        this.acceptedTexts = acceptedTexts;
+        this.optionMask = optionMask;
+        this.sortedTokens = sortedTokens;
+        this.blankSet = blankSet;
+        this.numericValue = numericValue;
+    }
+
+    /**
+     * 编译题目答案
+     * @param question 题目
+     * @param optionList 解析后的选项列表，选项为空或无法解析时传null
+     */
+    public static AnswerKey compile(QuestionBank question, List<String> optionList) {
+        String correct = question.getCorrectAnswer() != null ? question.getCorrectAnswer().trim() : "";
+        String[] options = null;
+        if (optionList != null) {
+            options = new String[optionList.size()];
+            for (int i = 0; i < options.length; i++) {
+                options[i] = optionList.get(i) != null ? optionList.get(i).trim() : "";
+            }
+        }
+
+        int type = question.getType() != null ? question.getType() : 0;
+        switch (type) {
+            case 1:
+            case 5:
+                return compileSingleChoice(question, correct, options);
+            case 2:
+                return compileMultipleChoice(question, correct, options);
+            case 3:
+                return compileFillBlank(question, correct, options);
+            default:
+                return new AnswerKey(question, options, new String[0], 0L, null, null, null);
+        }
+    }
+
+    private static AnswerKey compileSingleChoice(QuestionBank question, String correct, String[] options) {
+        List<String> accepted = new ArrayList<>(2);
+        accepted.add(correct);
+        long mask = 0L;
+        if (options != null) {
+            // 用户答案为字母时：对应选项内容与正确答案相同即正确
+            for (int i = 0; i < Math.min(options.length, 26); i++) {
+                if (options[i].equalsIgnoreCase(correct)) {
+                    mask |= 1L << i;
+                }
+            }
+            // 正确答案为字母时：用户答案与对应选项内容相同即正确
+            int correctIndex = letterIndex(correct, 0, correct.length());
+            if (correctIndex >= 0 && correctIndex < options.length) {
+                accepted.add(options[correctIndex]);
+            }
+        }
+        return new AnswerKey(question, options, accepted.toArray(new String[0]), mask, null, null, null);
+    }
+
+    private static AnswerKey compileMultipleChoice(QuestionBank question, String correct, String[] options) {
+        List<String> tokens = Arrays.stream(correct.split(","))
+                .map(String::trim)
+                .sorted()
+                .collect(Collectors.toList());
+        long mask = options != null ? choiceMask(correct, options) : 0L;
+        return new AnswerKey(question, options, new String[0], mask, Collections.unmodifiableList(tokens), null, null);
+    }
+
+    private static AnswerKey compileFillBlank(QuestionBank question, String correct, String[] options) {
+        String[] parts = correct.split(FILL_BLANK_SEPARATORS);
+        String[] accepted = new String[parts.length + 1];
+        accepted[0] = correct;
+        for (int i = 0; i < parts.length; i++) {
+            accepted[i + 1] = parts[i].trim();
+        }
+        Set<String> blankSet = parts.length > 1 ? normalizedSet(parts) : null;
+
+        Double numeric = null;
+        try {
+            numeric = Double.parseDouble(correct);
+        } catch (NumberFormatException e) {
+            // 不是数字答案
+        }
+        return new AnswerKey(question, options, accepted, 0L, null, blankSet, numeric);
+    }
+
+    /**
+     * 判断用户答案是否正确（调用方保证用户答案非空白）
+     */
+    public boolean matches(String userAnswer) {
+        if (userAnswer == null || type == null) {
+            return false;
+        }
+        switch (type) {
+            case 1:
+            case 5:
+                return matchesSingleChoice(userAnswer);
+            case 2:
+                return matchesMultipleChoice(userAnswer);
+            case 3:
+                return matchesFillBlank(userAnswer);
+            default:
+                return false;
+        }
+    }
+
+    public Long getQuestionId() {
+        return questionId;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    private boolean matchesSingleChoice(String userAnswer) {
+        int start = trimStart(userAnswer, 0, userAnswer.length());
+        int end = trimEnd(userAnswer, start, userAnswer.length());
+        if (matchesAnyText(userAnswer, start, end)) {
+            return true;
+        }
+        int index = letterIndex(userAnswer, start, end);
+        return index >= 0 && (optionMask & (1L << index)) != 0;
+    }
+
+    private boolean matchesMultipleChoice(String userAnswer) {
+        if (options == null) {
+            // 选项无法解析：逐项比较排序后的答案
+            List<String> userTokens = Arrays.stream(userAnswer.trim().split(","))
+                    .map(String::trim)
+                    .sorted()
+                    .collect(Collectors.toList());
+            if (userTokens.size() != sortedTokens.size()) {
+                return false;
+            }
+            for (int i = 0; i < userTokens.size(); i++) {
+                if (!userTokens.get(i).equalsIgnoreCase(sortedTokens.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return choiceMask(userAnswer, options) == optionMask;
+    }
+
+    private boolean matchesFillBlank(String userAnswer) {
+        String trimmed = userAnswer.trim();
+        for (String text : acceptedTexts) {
+            if (trimmed.equalsIgnoreCase(text)) {
+                return true;
+            }
+        }
+
+        // 多空答案：双方都包含多项时按集合比较
+        if (blankSet != null) {
+            String[] userParts = trimmed.split(FILL_BLANK_SEPARATORS);
+            if (userParts.length > 1 && normalizedSet(userParts).equals(blankSet)) {
+                return true;
+            }
+        }
+
+        // 数字答案：允许微小的浮点误差
+        if (numericValue != null) {
+            try {
+                return Math.abs(Double.parseDouble(trimmed) - numericValue) < 0.0001;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesAnyText(String value, int start, int end) {
+        int length = end - start;
+        for (String text : acceptedTexts) {
+            if (text.length() == length && value.regionMatches(true, start, text, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把逗号分隔的答案转换为选项位掩码：单个字母取字母序号，其余按选项内容查找第一个匹配的选项，
+     * 无法识别的项忽略（与原 convertToLetters 一致）
+     */
+    private static long choiceMask(String answer, String[] options) {
+        int start = trimStart(answer, 0, answer.length());
+        int end = trimEnd(answer, start, answer.length());
+        // String.split 会丢弃末尾的空项
+        while (end > start && answer.charAt(end - 1) == ',') {
+            end--;
+        }
+
+        long mask = 0L;
+        int tokenStart = start;
+        while (tokenStart <= end) {
+            int comma = answer.indexOf(',', tokenStart);
+            int tokenEnd = comma < 0 || comma > end ? end : comma;
+            int s = trimStart(answer, tokenStart, tokenEnd);
+            int e = trimEnd(answer, s, tokenEnd);
+
+            int index = letterIndex(answer, s, e);
+            if (index < 0) {
+                for (int i = 0; i < options.length; i++) {
+                    String option = options[i];
+                    if (option.length() == e - s && answer.regionMatches(true, s, option, 0, e - s)) {
+                        index = i;
+                        break;
+                    }
+                }
+            }
+            if (index >= 0 && index < MAX_MASK_OPTIONS) {
+                mask |= 1L << index;
+            }
+            tokenStart = tokenEnd + 1;
+        }
+        return mask;
+    }
+
+    /**
+     * 单个ASCII字母时返回其序号（A/a=0），否则返回-1
+     */
+    private static int letterIndex(String value, int start, int end) {
+        if (end - start != 1) {
+            return -1;
+        }
+        char c = value.charAt(start);
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        return -1;
+    }
+
+    private static Set<String> normalizedSet(String[] parts) {
+        return Arrays.stream(parts)
+                .map(String::trim)
+                .map(String::toLowerCase)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 与 String.trim 相同的空白判定（<= ' '）
+     */
+    private static int trimStart(String value, int start, int end) {
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String value, int start, int end) {
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
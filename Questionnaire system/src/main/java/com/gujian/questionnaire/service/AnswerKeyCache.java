@@ -0,0 +1,84 @@
+package com.gujian.questionnaire.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 题目答案编译缓存
+ *
+ * 按题目ID缓存 AnswerKey，并用 update_time 校验：题目被修改（包括其他节点的修改）后
+ * 传入的题目 update_time 与缓存不一致，会重新编译。本节点修改/删除题目时在事务提交后主动失效
+ */
+@Slf4j
+@Component
+public class AnswerKeyCache {
+
+    private static final TypeReference<List<String>> OPTION_LIST_TYPE = new TypeReference<List<String>>() {
+    };
+
+    private final Cache<Long, AnswerKey> cache = Caffeine.newBuilder()
+            .maximumSize(20_000)
+            .build();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 获取题目的编译答案（缓存未命中或题目已更新时重新编译）
+     */
+    public AnswerKey get(QuestionBank question) {
+        if (question.getId() == null || question.getUpdateTime() == null) {
+            return compile(question);
+        }
+        AnswerKey key = cache.getIfPresent(question.getId());
+        if (key == null || !Objects.equals(key.getUpdateTime(), question.getUpdateTime())) {
+            key = compile(question);
+            cache.put(question.getId(), key);
+        }
+        return key;
+    }
+
+    /**
+     * 题目修改后失效（事务提交后生效）
+     */
+    public void invalidate(Long questionId) {
+        if (questionId != null) {
+            TransactionUtils.afterCommit(() -> cache.invalidate(questionId));
+        }
+    }
+
+    /**
+     * 题目批量删除后失效（事务提交后生效）
+     */
+    public void invalidateAll(Collection<Long> questionIds) {
+        if (questionIds != null && !questionIds.isEmpty()) {
+            List<Long> copy = new ArrayList<>(questionIds);
+            TransactionUtils.afterCommit(() -> cache.invalidateAll(copy));
+        }
+    }
+
+    private AnswerKey compile(QuestionBank question) {
+        List<String> options = null;
+        if (StringUtils.hasText(question.getOptions())) {
+            try {
+                options = objectMapper.readValue(question.getOptions(), OPTION_LIST_TYPE);
+            } catch (Exception e) {
+                log.error("解析题目选项失败: 题目ID={}, 错误={}", question.getId(), e.getMessage());
+            }
+        }
+        return AnswerKey.compile(question, options);
+    }
+}
@@ -2,11 +2,13 @@ package com.gujian.questionnaire.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.gujian.questionnaire.dto.CursorPageVO;
 import com.gujian.questionnaire.dto.StartAnswerDTO;
 import com.gujian.questionnaire.dto.SubmitAnswerDTO;
 import com.gujian.questionnaire.entity.AnswerSession;
 import com.gujian.questionnaire.dto.SessionStatusVO;
 import com.gujian.questionnaire.dto.QuestionVO;
+import com.gujian.questionnaire.dto.SessionBundleVO;
 
 import java.util.Map;
 
@@ -40,6 +42,12 @@ public interface AnswerSessionService extends IService<AnswerSession> {
      * 根据会话编码获取会话信息
      */
     AnswerSession getSessionByCode(String sessionCode);
+
+    /**
+     * 获取答题热路径使用的会话快照（优先读活跃会话缓存，未命中时回源数据库）
+     * 快照只包含会话ID、用户、题型、题数、总分、时限、起止时间和状态，仅用于校验，不可用于更新
+     */
+    AnswerSession getActiveSession(String sessionCode);
     
     /**
      * 完成答题会话
@@ -71,6 +79,20 @@ public interface AnswerSessionService extends IService<AnswerSession> {
      */
     IPage<AnswerSession> getAllSessionPage(int current, int size, String userName, Integer status, String startTime, String endTime);
     
+    /**
+     * 获取用户会话列表（游标分页，按创建时间倒序）
+     * @param cursor 上一页返回的游标，首页传null
+     * @param withTotal 是否统计总数
+     */
+    CursorPageVO<AnswerSession> getUserSessionCursorPage(String cursor, int size, Long userId, Integer status,
+                                                         boolean withTotal);
+    
+    /**
+     * 获取所有会话列表（管理员，游标分页，按创建时间倒序）
+     */
+    CursorPageVO<AnswerSession> getAllSessionCursorPage(String cursor, int size, String userName, Integer status,
+                                                        String startTime, String endTime, boolean withTotal);
+    
     /**
      * 获取用户答题统计
      */
@@ -120,8 +142,9 @@ public interface AnswerSessionService extends IService<AnswerSession> {
     
     /**
      * 批量检查并处理超时会话
+     * @return 本次标记为超时的会话ID
      */
-    int batchCheckTimeout();
+    List<Long> batchCheckTimeout();
     
     /**
      * 恢复答题会话
@@ -145,6 +168,11 @@ public interface AnswerSessionService extends IService<AnswerSession> {
      */
     QuestionVO getQuestionByIndex(String sessionCode, Integer index);
 
+    /**
+     * 获取会话全部题目（一次性预取）
+     */
+    SessionBundleVO getSessionBundle(String sessionCode);
+
     /**
      * 完成会话
      */
@@ -0,0 +1,601 @@
+package com.gujian.questionnaire.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gujian.questionnaire.common.enums.ErrorCode;
+import com.gujian.questionnaire.entity.AnswerRecord;
+import com.gujian.questionnaire.exception.BusinessException;
+import com.gujian.questionnaire.mapper.AnswerRecordMapper;
+import com.gujian.questionnaire.utils.DuplicateKeyUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 答题记录写后缓冲（可选，app.answer-buffer.enabled 开启）
+ *
+ * 考试高峰期同一时刻大量提交答案时，用组提交代替每个请求一次的同步INSERT：
+ * 1. 请求线程完成校验和评分后把记录交给缓冲区，等待写入本地预写日志（WAL）并刷盘后即返回
+ * 2. WAL线程把同一时间到达的多个请求合并为一次追加和一次 fsync
+ * 3. 入库线程每隔几毫秒或攒够 batch-size 行，以多值INSERT在一个事务中写入数据库
+ * 4. 启动时把WAL中尚未入库的记录补写到数据库，已全部入库的WAL分段文件会被删除
+ *
+ * 尚未入库的记录保存在按会话索引的待写表中，重复提交检查和序号分配会合并这部分数据；
+ * 读取会话答题记录、完成会话前需调用 flushSession 等待该会话的记录入库
+ */
+@Slf4j
+@Component
+public class AnswerWriteBuffer {
+
+    private static final String SEGMENT_PREFIX = "answer-wal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    @Value("${app.answer-buffer.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.answer-buffer.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.answer-buffer.flush-interval:5}")
+    private long flushInterval;
+
+    @Value("${app.answer-buffer.ack-timeout:3000}")
+    private long ackTimeout;
+
+    @Value("${app.answer-buffer.wal-dir:data/answer-wal}")
+    private String walDir;
+
+    @Value("${app.answer-buffer.segment-size:16777216}")
+    private long segmentSize;
+
+    @Autowired
+    private AnswerRecordMapper answerRecordMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 待入库记录：会话ID -> (题目ID -> 记录)
+     */
+    private final Map<Long, Map<Long, AnswerRecord>> pending = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<WalEntry> walQueue = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<WalEntry> dbQueue = new LinkedBlockingQueue<>();
+
+    /**
+     * 记录入库后通知 flushSession 的等待线程
+     */
+    private final Object persistedMonitor = new Object();
+
+    private final AtomicInteger segmentSequence = new AtomicInteger();
+
+    private volatile boolean running = false;
+
+    private Path walPath;
+
+    private Segment currentSegment;
+
+    private Thread walThread;
+
+    private Thread dbThread;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        walPath = Paths.get(walDir);
+        Files.createDirectories(walPath);
+        recover();
+        currentSegment = openSegment();
+
+        running = true;
+        walThread = new Thread(this::runWalWriter, "answer-wal-writer");
+        dbThread = new Thread(this::runDbWriter, "answer-db-writer");
+        walThread.start();
+        dbThread.start();
+        log.info("答题写后缓冲已启用: WAL目录={}, 批量={}, 间隔={}ms", walPath.toAbsolutePath(), batchSize, flushInterval);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        walThread.join(30_000);
+        dbThread.join(30_000);
+        closeSegment(currentSegment);
+        log.info("答题写后缓冲已停止: 未入库会话数={}", pending.size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 提交记录，写入WAL并刷盘后返回（记录在后台入库，返回时ID尚未回填）
+     */
+    public void submit(List<AnswerRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (!running) {
+            throw new BusinessException(ErrorCode.SERVICE_UNAVAILABLE, "答案写入服务未就绪");
+        }
+        for (AnswerRecord record : records) {
+            pending.computeIfAbsent(record.getSessionId(), k -> new ConcurrentHashMap<>())
+                    .put(record.getQuestionId(), record);
+        }
+        awaitDurable(records);
+    }
+
+    /**
+     * 提交单条记录：会话中同一题目或同一幂等键已有待入库记录时不再写入，直接返回该记录
+     * 检查与登记在会话级别原子完成，并发的重复提交只有一个会写入WAL
+     * @return 已有的待入库记录，成功提交返回null
+     */
+    public AnswerRecord submitIfAbsent(AnswerRecord record) {
+        if (!running) {
+            throw new BusinessException(ErrorCode.SERVICE_UNAVAILABLE, "答案写入服务未就绪");
+        }
+        AnswerRecord[] existing = new AnswerRecord[1];
+        pending.compute(record.getSessionId(), (sessionId, byQuestion) -> {
+            if (byQuestion == null) {
+                byQuestion = new ConcurrentHashMap<>();
+            }
+            existing[0] = findPending(byQuestion, record);
+            if (existing[0] == null) {
+                byQuestion.put(record.getQuestionId(), record);
+            }
+            return byQuestion;
+        });
+        if (existing[0] != null) {
+            return existing[0];
+        }
+        awaitDurable(Collections.singletonList(record));
+        return null;
+    }
+
+    private static AnswerRecord findPending(Map<Long, AnswerRecord> byQuestion, AnswerRecord record) {
+        AnswerRecord existing = byQuestion.get(record.getQuestionId());
+        if (existing != null || record.getIdempotencyKey() == null) {
+            return existing;
+        }
+        for (AnswerRecord candidate : byQuestion.values()) {
+            if (record.getIdempotencyKey().equals(candidate.getIdempotencyKey())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 写入WAL并等待刷盘
+     */
+    private void awaitDurable(List<AnswerRecord> records) {
+        WalEntry entry = new WalEntry(new ArrayList<>(records));
+        walQueue.add(entry);
+        try {
+            entry.durable.get(ackTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SERVICE_UNAVAILABLE, "答案写入被中断");
+        } catch (Exception e) {
+            log.error("答案写入WAL失败: {}", e.getMessage());
+            throw new BusinessException(ErrorCode.SERVICE_UNAVAILABLE, "答案写入失败，请稍后重试");
+        }
+    }
+
+    /**
+     * 会话中尚未入库的全部记录
+     */
+    public List<AnswerRecord> getPendingRecords(Long sessionId) {
+        Map<Long, AnswerRecord> records = pending.get(sessionId);
+        return records != null ? new ArrayList<>(records.values()) : Collections.emptyList();
+    }
+
+    /**
+     * 合并待入库记录后的下一题序号
+     * @param dbNext 数据库中的下一题序号
+     */
+    public int nextSequenceNumber(Long sessionId, int dbNext) {
+        int next = dbNext;
+        for (AnswerRecord record : getPendingRecords(sessionId)) {
+            if (record.getSequenceNumber() != null && record.getSequenceNumber() >= next) {
+                next = record.getSequenceNumber() + 1;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * 等待会话的待入库记录全部写入数据库（读己之写）
+     */
+    public void flushSession(Long sessionId) {
+        if (!enabled || sessionId == null) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + ackTimeout;
+        synchronized (persistedMonitor) {
+            while (hasPending(sessionId)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new BusinessException(ErrorCode.SERVICE_UNAVAILABLE, "答案仍在写入中，请稍后重试");
+                }
+                try {
+                    persistedMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new BusinessException(ErrorCode.SERVICE_UNAVAILABLE, "等待答案写入被中断");
+                }
+            }
+        }
+    }
+
+    private boolean hasPending(Long sessionId) {
+        Map<Long, AnswerRecord> records = pending.get(sessionId);
+        return records != null && !records.isEmpty();
+    }
+
+    // ============================= WAL写入 =============================
+
+    private void runWalWriter() {
+        while (running || !walQueue.isEmpty()) {
+            List<WalEntry> group;
+            try {
+                group = drain(walQueue);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (group.isEmpty()) {
+                continue;
+            }
+            try {
+                appendToWal(group);
+                dbQueue.addAll(group);
+                group.forEach(entry -> entry.durable.complete(null));
+            } catch (IOException e) {
+                log.error("答案写入WAL失败: 请求数={}, 错误={}", group.size(), e.getMessage());
+                for (WalEntry entry : group) {
+                    unregister(entry.records);
+                    entry.durable.completeExceptionally(e);
+                }
+                synchronized (persistedMonitor) {
+                    persistedMonitor.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * 一组请求合并为一次追加和一次刷盘
+     */
+    private void appendToWal(List<WalEntry> group) throws IOException {
+        if (currentSegment.channel.size() >= segmentSize) {
+            Segment sealed = currentSegment;
+            currentSegment = openSegment();
+            closeSegment(sealed);
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int rows = 0;
+        for (WalEntry entry : group) {
+            for (AnswerRecord record : entry.records) {
+                buffer.write(objectMapper.writeValueAsBytes(record));
+                buffer.write('\n');
+            }
+            rows += entry.records.size();
+            entry.segment = currentSegment;
+        }
+        currentSegment.outstanding.addAndGet(rows);
+
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            currentSegment.channel.write(bytes);
+        }
+        currentSegment.channel.force(false);
+    }
+
+    // ============================= 批量入库 =============================
+
+    private void runDbWriter() {
+        while (running || !dbQueue.isEmpty() || walThread.isAlive()) {
+            List<WalEntry> group;
+            try {
+                group = drain(dbQueue);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (group.isEmpty()) {
+                continue;
+            }
+            List<AnswerRecord> rows = group.stream()
+                    .flatMap(entry -> entry.records.stream())
+                    .collect(Collectors.toList());
+            if (!persistWithRetry(rows)) {
+                // 停机时数据库仍不可用，记录保留在WAL中，下次启动时补写
+                log.error("停机前未能入库的答题记录数={}，将在下次启动时从WAL恢复", rows.size());
+                continue;
+            }
+            for (WalEntry entry : group) {
+                unregister(entry.records);
+                if (entry.segment.outstanding.addAndGet(-entry.records.size()) == 0 && entry.segment.sealed) {
+                    deleteSegment(entry.segment);
+                }
+            }
+            synchronized (persistedMonitor) {
+                persistedMonitor.notifyAll();
+            }
+        }
+    }
+
+    private boolean persistWithRetry(List<AnswerRecord> rows) {
+        while (true) {
+            try {
+                try {
+                    insertInTransaction(rows);
+                } catch (DuplicateKeyException e) {
+                    log.warn("答题记录批量入库唯一索引冲突，改为逐条入库: 记录数={}, 错误={}", rows.size(), e.getMessage());
+                    insertIndividually(rows);
+                }
+                return true;
+            } catch (Exception e) {
+                log.error("答题记录批量入库失败，稍后重试: 记录数={}, 错误={}", rows.size(), e.getMessage());
+                if (!running) {
+                    return false;
+                }
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void insertInTransaction(List<AnswerRecord> rows) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int from = 0; from < rows.size(); from += batchSize) {
+                answerRecordMapper.insertBatch(rows.subList(from, Math.min(from + batchSize, rows.size())));
+            }
+        });
+    }
+
+    /**
+     * 逐条入库：序号冲突（会话计数器丢失后重建）的记录改用数据库中的下一序号重试一次；
+     * 题目或幂等键冲突的记录（重试时已入库，或并发的重复提交）不可能再写入成功，记录日志后丢弃，不阻塞入库线程
+     */
+    private void insertIndividually(List<AnswerRecord> rows) {
+        for (AnswerRecord row : rows) {
+            try {
+                try {
+                    answerRecordMapper.insertBatch(Collections.singletonList(row));
+                } catch (DuplicateKeyException e) {
+                    if (!DuplicateKeyUtils.isViolated(e, AnswerRecordMapper.UK_SESSION_SEQUENCE)) {
+                        throw e;
+                    }
+                    row.setSequenceNumber(answerRecordMapper.getNextSequenceNumber(row.getSessionId()));
+                    answerRecordMapper.insertBatch(Collections.singletonList(row));
+                }
+            } catch (DuplicateKeyException e) {
+                dropDuplicate(row, e);
+            }
+        }
+    }
+
+    private void dropDuplicate(AnswerRecord row, DuplicateKeyException e) {
+        String key = DuplicateKeyUtils.violatedKey(e);
+        if (AnswerRecordMapper.UK_SESSION_QUESTION.equalsIgnoreCase(key)) {
+            log.info("答题记录已入库，跳过: 会话={}, 题目={}", row.getSessionId(), row.getQuestionId());
+        } else {
+            log.error("答题记录唯一索引冲突，丢弃: 会话={}, 题目={}, 幂等键={}, 索引={}, 错误={}",
+                    row.getSessionId(), row.getQuestionId(), row.getIdempotencyKey(), key, e.getMessage());
+        }
+    }
+
+    private void unregister(List<AnswerRecord> records) {
+        for (AnswerRecord record : records) {
+            pending.computeIfPresent(record.getSessionId(), (sessionId, byQuestion) -> {
+                byQuestion.remove(record.getQuestionId(), record);
+                return byQuestion.isEmpty() ? null : byQuestion;
+            });
+        }
+    }
+
+    /**
+     * 等待第一条数据最多 flushInterval 毫秒，再取走队列中已到达的数据（最多 batchSize 条）
+     */
+    private List<WalEntry> drain(BlockingQueue<WalEntry> queue) throws InterruptedException {
+        WalEntry first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return Collections.emptyList();
+        }
+        List<WalEntry> group = new ArrayList<>();
+        group.add(first);
+        queue.drainTo(group, batchSize - 1);
+        return group;
+    }
+
+    // ============================= WAL分段与恢复 =============================
+
+    /**
+     * 将WAL中的记录补写到数据库（按 会话ID+题目ID 去重，已入库的跳过），完成后删除分段文件
+     */
+    private void recover() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(walPath, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        if (segments.isEmpty()) {
+            return;
+        }
+        segments.sort(Comparator.comparing(Path::toString));
+
+        List<AnswerRecord> records = new ArrayList<>();
+        for (Path segment : segments) {
+            try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        records.add(objectMapper.readValue(line, AnswerRecord.class));
+                    } catch (IOException e) {
+                        // 崩溃时未写完的最后一行（对应请求未收到确认）
+                        log.warn("跳过不完整的WAL记录: 文件={}", segment.getFileName());
+                    }
+                }
+            }
+        }
+
+        List<AnswerRecord> missing = filterPersisted(records);
+        if (!missing.isEmpty()) {
+            try {
+                insertInTransaction(missing);
+            } catch (DuplicateKeyException e) {
+                insertIndividually(missing);
+            }
+        }
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+        log.info("答题WAL恢复完成: 分段数={}, 记录数={}, 补写入库={}", segments.size(), records.size(), missing.size());
+    }
+
+    private List<AnswerRecord> filterPersisted(List<AnswerRecord> records) {
+        List<Long> sessionIds = records.stream()
+                .map(AnswerRecord::getSessionId)
+                .distinct()
+                .collect(Collectors.toList());
+        Set<String> persisted = new HashSet<>();
+        for (int from = 0; from < sessionIds.size(); from += batchSize) {
+            List<Long> chunk = sessionIds.subList(from, Math.min(from + batchSize, sessionIds.size()));
+            answerRecordMapper.selectList(new LambdaQueryWrapper<AnswerRecord>()
+                            .select(AnswerRecord::getSessionId, AnswerRecord::getQuestionId)
+                            .in(AnswerRecord::getSessionId, chunk))
+                    .forEach(r -> persisted.add(r.getSessionId() + ":" + r.getQuestionId()));
+        }
+        List<AnswerRecord> missing = new ArrayList<>();
+        for (AnswerRecord record : records) {
+            if (persisted.add(record.getSessionId() + ":" + record.getQuestionId())) {
+                record.setId(null);
+                missing.add(record);
+            }
+        }
+        return missing;
+    }
+
+    private Segment openSegment() throws IOException {
+        String name = String.format("%s%013d-%06d%s", SEGMENT_PREFIX,
+                System.currentTimeMillis(), segmentSequence.incrementAndGet(), SEGMENT_SUFFIX);
+        Path path = walPath.resolve(name);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new Segment(path, channel);
+    }
+
+    /**
+     * 停止向分段追加；其中的记录已全部入库时直接删除
+     */
+    private void closeSegment(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            log.warn("关闭WAL分段失败: {}", e.getMessage());
+        }
+        segment.sealed = true;
+        if (segment.outstanding.get() == 0) {
+            deleteSegment(segment);
+        }
+    }
+
+    private void deleteSegment(Segment segment) {
+        if (!segment.deleted.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("删除WAL分段失败: 文件={}, 错误={}", segment.path.getFileName(), e.getMessage());
+        }
+    }
+
+    /**
+     * 一次提交请求
+     */
+    private static final class WalEntry {
+
+        private final List<AnswerRecord> records;
+
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        private volatile Segment segment;
+
+        private WalEntry(List<AnswerRecord> records) {
+            this.records = records;
+        }
+    }
+
+    /**
+     * WAL分段文件，outstanding 为其中尚未入库的记录数
+     */
+    private static final class Segment {
+
+        private final Path path;
+
+        private final FileChannel channel;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private final AtomicBoolean deleted = new AtomicBoolean();
+
+        private volatile boolean sealed = false;
+
+        private Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+}
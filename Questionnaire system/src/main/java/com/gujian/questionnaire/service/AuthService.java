@@ -1,17 +1,35 @@
 package com.gujian.questionnaire.service;
 
+import com.gujian.questionnaire.dto.CursorPageVO;
 import com.gujian.questionnaire.entity.User;
+import com.gujian.questionnaire.security.AuthContext;
+import com.gujian.questionnaire.security.UserPrincipalCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * 认证服务类 - Redis会话管理
@@ -33,14 +51,50 @@ public class AuthService {
     @Autowired
     private RedisService redisService;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     @Value("${app.jwt.expiration}")
     private long jwtExpiration;
 
+    /**
+     * 会话滑动续期的最小间隔（毫秒），间隔内的请求不再写Redis
+     */
+    @Value("${app.auth.session-refresh-interval:60000}")
+    private long sessionRefreshInterval;
+
     // Redis Key前缀
     private static final String USER_SESSION_PREFIX = "user:session:";
     private static final String USER_INFO_PREFIX = "user:info:";
     private static final String TOKEN_BLACKLIST_PREFIX = "token:blacklist:";
 
+    /**
+     * 在线用户索引（有序集合，成员为用户名，分数为最后访问时间）
+     */
+    private static final String ONLINE_USERS_KEY = "user:online";
+
+    /**
+     * 在线用户分页单次读取的最大条数
+     */
+    private static final int MAX_ONLINE_PAGE_SIZE = 100;
+
+    /**
+     * 会话清理时每批SCAN/读取的key数量
+     */
+    private static final int CLEANUP_BATCH_SIZE = 500;
+
+    /**
+     * 会话续期脚本：仅在会话存在时更新最后访问时间、延长过期时间并更新在线索引（避免为已登出的用户重建会话）
+     */
+    private static final RedisScript<Long> REFRESH_SESSION_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then " +
+            "  redis.call('hset', KEYS[1], 'lastAccessTime', ARGV[1]) " +
+            "  redis.call('expire', KEYS[1], ARGV[2]) " +
+            "  redis.call('zadd', KEYS[2], ARGV[1], ARGV[3]) " +
+            "  return 1 " +
+            "end " +
+            "return 0", Long.class);
+
     /**
      * 创建Redis会话
      * @param token JWT Token
@@ -73,6 +127,9 @@ public class AuthService {
             userInfo.put("enabled", user.getEnabled());
             
             redisService.hmset(userInfoKey, userInfo, sessionExpiration);
+
+            // 更新在线用户索引
+            redisService.zAdd(ONLINE_USERS_KEY, user.getUsername(), System.currentTimeMillis());
             
             log.info("Redis session created for user: {}", user.getUsername());
         } catch (Exception e) {
@@ -94,28 +151,100 @@ public class AuthService {
             }
             
             // 检查会话是否过期
-            Map<Object, Object> sessionInfo = redisService.hmget(sessionKey);
-            if (sessionInfo == null || sessionInfo.isEmpty()) {
-                return false;
-            }
-            
-            // 检查最后访问时间
-            Object lastAccessTimeObj = sessionInfo.get("lastAccessTime");
-            if (lastAccessTimeObj == null) {
-                return false;
-            }
-            
+            return isSessionActive(redisService.hmget(sessionKey));
+        } catch (Exception e) {
+            log.error("Session validation failed for user: {}, error: {}", username, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 根据已加载的会话信息判断会话是否有效
+     * @param sessionInfo 会话信息Map
+     * @return 会话是否有效
+     */
+    public boolean isSessionActive(Map<Object, Object> sessionInfo) {
+        if (sessionInfo == null || sessionInfo.isEmpty()) {
+            return false;
+        }
+        
+        // 检查最后访问时间
+        Object lastAccessTimeObj = sessionInfo.get("lastAccessTime");
+        if (lastAccessTimeObj == null) {
+            return false;
+        }
+        
+        try {
             long lastAccessTime = Long.parseLong(lastAccessTimeObj.toString());
             long currentTime = System.currentTimeMillis();
             long sessionTimeout = jwtExpiration + 300000; // JWT过期时间 + 5分钟
             
             return (currentTime - lastAccessTime) < sessionTimeout;
-        } catch (Exception e) {
-            log.error("Session validation failed for user: {}, error: {}", username, e.getMessage());
+        } catch (NumberFormatException e) {
             return false;
         }
     }
 
+    /**
+     * 一次管道调用加载认证所需的全部Redis数据：Token黑名单标记、会话信息、用户信息
+     *
+     * 新版Token携带用户ID，三项数据在同一次往返中读取；
+     * 旧版Token（无用户ID）或用户ID与会话不一致时，按会话中的用户ID再读取一次用户信息
+     *
+     * @param token JWT Token
+     * @param username 用户名
+     * @param userId Token中的用户ID，可为null
+     * @return 认证上下文
+     */
+    public AuthContext loadAuthContext(String token, String username, Long userId) {
+        return loadAuthContext(token, username, userId, true);
+    }
+
+    /**
+     * 一次管道调用加载Token黑名单标记和会话信息（用户信息已在本地缓存时使用）
+     * @param token JWT Token
+     * @param username 用户名
+     * @return 认证上下文（不含用户信息）
+     */
+    public AuthContext loadAuthContextWithoutUser(String token, String username) {
+        return loadAuthContext(token, username, null, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private AuthContext loadAuthContext(String token, String username, Long userId, boolean loadUser) {
+        String blacklistKey = TOKEN_BLACKLIST_PREFIX + token;
+        String sessionKey = USER_SESSION_PREFIX + username;
+        String userInfoKey = loadUser && userId != null ? USER_INFO_PREFIX + userId : null;
+
+        List<Object> results = redisService.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                ops.hasKey(blacklistKey);
+                ops.opsForHash().entries(sessionKey);
+                if (userInfoKey != null) {
+                    ops.opsForHash().entries(userInfoKey);
+                }
+                return null;
+            }
+        });
+
+        boolean blacklisted = Boolean.TRUE.equals(results.get(0));
+        Map<Object, Object> sessionInfo = (Map<Object, Object>) results.get(1);
+        Map<Object, Object> userInfo = userInfoKey != null ? (Map<Object, Object>) results.get(2) : null;
+
+        AuthContext context = new AuthContext(blacklisted, sessionInfo, userInfo);
+        if (blacklisted || !loadUser) {
+            return context;
+        }
+
+        // 用户ID以会话记录为准
+        Long sessionUserId = context.getSessionUserId();
+        if (sessionUserId != null && !sessionUserId.equals(userId)) {
+            context = new AuthContext(false, sessionInfo, getUserInfo(sessionUserId));
+        }
+        return context;
+    }
     /**
      * 检查Token是否在黑名单中
      * @param token JWT Token
@@ -140,6 +269,8 @@ public class AuthService {
             
             redisService.del(sessionKey);
             redisService.del(userInfoKey);
+            userPrincipalCache.invalidate(username);
+            redisService.zRemove(ONLINE_USERS_KEY, username);
             
             // 将Token加入黑名单
             addTokenToBlacklist(token);
@@ -160,11 +291,15 @@ public class AuthService {
             
             if (redisService.hasKey(sessionKey)) {
                 // 更新最后访问时间
-                redisService.hset(sessionKey, "lastAccessTime", System.currentTimeMillis());
+                long now = System.currentTimeMillis();
+                redisService.hset(sessionKey, "lastAccessTime", now);
                 
                 // 延长会话过期时间
                 long sessionExpiration = jwtExpiration / 1000 + 300;
                 redisService.expire(sessionKey, sessionExpiration);
+
+                // 更新在线用户索引
+                redisService.zAdd(ONLINE_USERS_KEY, username, now);
                 
                 log.debug("Session refreshed for user: {}", username);
             }
@@ -173,6 +308,29 @@ public class AuthService {
         }
     }
 
+    /**
+     * 按需刷新会话 - 距上次写入超过续期间隔时才更新（单次脚本调用）
+     * @param username 用户名
+     * @param sessionInfo 本次请求已加载的会话信息
+     */
+    public void refreshSessionIfStale(String username, Map<Object, Object> sessionInfo) {
+        try {
+            Object lastAccessTimeObj = sessionInfo != null ? sessionInfo.get("lastAccessTime") : null;
+            long now = System.currentTimeMillis();
+            if (lastAccessTimeObj != null
+                    && now - Long.parseLong(lastAccessTimeObj.toString()) < sessionRefreshInterval) {
+                return;
+            }
+
+            long sessionExpiration = jwtExpiration / 1000 + 300;
+            redisService.execute(REFRESH_SESSION_SCRIPT,
+                    Arrays.asList(USER_SESSION_PREFIX + username, ONLINE_USERS_KEY), now, sessionExpiration, username);
+            log.debug("Session refreshed for user: {}", username);
+        } catch (Exception e) {
+            log.error("Session refresh failed for user: {}, error: {}", username, e.getMessage());
+        }
+    }
+
     /**
      * 从Redis获取用户信息
      * @param userId 用户ID
@@ -225,6 +383,8 @@ public class AuthService {
             
             // 删除会话信息
             redisService.del(sessionKey);
+            userPrincipalCache.invalidate(username);
+            redisService.zRemove(ONLINE_USERS_KEY, username);
             
             log.info("User forced logout: {}", username);
         } catch (Exception e) {
@@ -238,10 +398,8 @@ public class AuthService {
      */
     public long getOnlineUserCount() {
         try {
-            // 通过Redis key模式匹配统计会话数量
-            String pattern = USER_SESSION_PREFIX + "*";
-            // 注意：在生产环境中，建议使用Redis的scan命令代替keys命令以避免阻塞
-            return redisService.keys(pattern).size();
+            // 在线索引中最后访问时间仍在会话有效期内的用户数（ZCOUNT）
+            return redisService.zCount(ONLINE_USERS_KEY, onlineScoreFloor(), Double.POSITIVE_INFINITY);
         } catch (Exception e) {
             log.error("Failed to get online user count: {}", e.getMessage());
             return 0;
@@ -249,18 +407,58 @@ public class AuthService {
     }
 
     /**
-     * 获取所有在线用户信息
-     * @return 在线用户列表
+     * 分页获取在线用户信息（按最后访问时间倒序）
+     * @param cursor 上一页返回的游标，首页传null
+     * @param size 每页数量
+     * @return 在线用户分页
      */
-    public List<Map<String, Object>> getOnlineUsers() {
+    public CursorPageVO<Map<String, Object>> getOnlineUsers(String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_ONLINE_PAGE_SIZE));
+        double minScore = onlineScoreFloor();
         try {
-            String pattern = USER_SESSION_PREFIX + "*";
-            Set<String> sessionKeys = redisService.keys(pattern);
-            List<Map<String, Object>> onlineUsers = new ArrayList<>();
-            
-            for (String sessionKey : sessionKeys) {
-                Map<Object, Object> sessionData = redisService.hmget(sessionKey);
-                if (sessionData != null && !sessionData.isEmpty()) {
+            double maxScore = Double.POSITIVE_INFINITY;
+            String lastMember = null;
+            if (StringUtils.hasText(cursor)) {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = decoded.indexOf(':');
+                maxScore = Double.parseDouble(decoded.substring(0, sep));
+                lastMember = decoded.substring(sep + 1);
+            }
+
+            // 从游标分数（含）开始倒序读取，跳过同分数下已返回的成员（同分数按成员倒序排列）
+            List<ZSetOperations.TypedTuple<Object>> page = new ArrayList<>(pageSize + 1);
+            long offset = 0;
+            while (page.size() <= pageSize) {
+                Set<ZSetOperations.TypedTuple<Object>> batch = redisService.zReverseRangeByScoreWithScores(
+                        ONLINE_USERS_KEY, minScore, maxScore, offset, pageSize + 1);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (ZSetOperations.TypedTuple<Object> tuple : batch) {
+                    if (lastMember != null && tuple.getScore() != null && tuple.getScore() == maxScore
+                            && String.valueOf(tuple.getValue()).compareTo(lastMember) >= 0) {
+                        continue;
+                    }
+                    if (page.size() <= pageSize) {
+                        page.add(tuple);
+                    }
+                }
+                offset += batch.size();
+            }
+
+            boolean hasMore = page.size() > pageSize;
+            if (hasMore) {
+                page = page.subList(0, pageSize);
+            }
+
+            // 管道批量读取本页用户的会话信息
+            List<String> sessionKeys = new ArrayList<>(page.size());
+            page.forEach(tuple -> sessionKeys.add(USER_SESSION_PREFIX + tuple.getValue()));
+            List<Map<Object, Object>> sessions = redisService.pipelinedHmget(sessionKeys, MAX_ONLINE_PAGE_SIZE);
+
+            List<Map<String, Object>> onlineUsers = new ArrayList<>(page.size());
+            for (Map<Object, Object> sessionData : sessions) {
+                if (!sessionData.isEmpty()) {
                     Map<String, Object> userSession = new HashMap<>();
                     userSession.put("username", sessionData.get("username"));
                     userSession.put("role", sessionData.get("role"));
@@ -269,11 +467,18 @@ public class AuthService {
                     onlineUsers.add(userSession);
                 }
             }
-            
-            return onlineUsers;
+
+            String nextCursor = null;
+            if (hasMore) {
+                ZSetOperations.TypedTuple<Object> last = page.get(page.size() - 1);
+                String raw = BigDecimal.valueOf(last.getScore()).toPlainString() + ":" + last.getValue();
+                nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+            }
+
+            return new CursorPageVO<>(onlineUsers, nextCursor, hasMore, getOnlineUserCount());
         } catch (Exception e) {
             log.error("Failed to get online users: {}", e.getMessage());
-            return new ArrayList<>();
+            return new CursorPageVO<>(new ArrayList<>(), null, false, 0L);
         }
     }
 
@@ -284,37 +489,55 @@ public class AuthService {
     public void cleanExpiredSessions() {
         log.info("Starting expired sessions cleanup...");
         try {
-            int cleanedCount = 0;
-            
-            // 清理过期的会话key
-            Set<String> sessionKeys = redisService.keys(USER_SESSION_PREFIX + "*");
-            for (String key : sessionKeys) {
-                if (!redisService.hasKey(key)) {
-                    cleanedCount++;
-                }
-            }
-            
-            // 清理过期的用户信息key  
-            Set<String> userInfoKeys = redisService.keys(USER_INFO_PREFIX + "*");
-            for (String key : userInfoKeys) {
-                if (!redisService.hasKey(key)) {
-                    cleanedCount++;
-                }
-            }
-            
-            // 清理过期的黑名单Token
-            Set<String> blacklistKeys = redisService.keys(TOKEN_BLACKLIST_PREFIX + "*");
-            for (String key : blacklistKeys) {
-                if (!redisService.hasKey(key)) {
-                    cleanedCount++;
+            // 会话Hash和黑名单由Redis TTL自动过期，这里清理在线索引中已超时的成员
+            long removed = redisService.zRemoveRangeByScore(ONLINE_USERS_KEY, Double.NEGATIVE_INFINITY, onlineScoreFloor());
+
+            // SCAN分批核对会话，把尚未进入在线索引的有效会话补进去（如索引上线前创建的会话）
+            long restored = 0;
+            List<String> chunk = new ArrayList<>(CLEANUP_BATCH_SIZE);
+            try (Stream<String> sessionKeys = redisService.scan(USER_SESSION_PREFIX + "*", CLEANUP_BATCH_SIZE)) {
+                Iterator<String> iterator = sessionKeys.iterator();
+                while (iterator.hasNext()) {
+                    chunk.add(iterator.next());
+                    if (chunk.size() >= CLEANUP_BATCH_SIZE) {
+                        restored += reconcileOnlineIndex(chunk);
+                    }
                 }
             }
-            
-            log.info("Expired sessions cleanup completed. Checked {} keys", 
-                    sessionKeys.size() + userInfoKeys.size() + blacklistKeys.size());
+            restored += reconcileOnlineIndex(chunk);
+
+            log.info("Expired sessions cleanup completed. Removed {} stale online entries, restored {}", removed, restored);
         } catch (Exception e) {
             log.error("Failed to clean expired sessions: {}", e.getMessage());
         }
     }
+
+    /**
+     * 将一批会话的最后访问时间写入在线索引（一次管道读取 + 一次ZADD）
+     * @param sessionKeys 会话key，处理后清空
+     * @return 新加入在线索引的会话数
+     */
+    private long reconcileOnlineIndex(List<String> sessionKeys) {
+        if (sessionKeys.isEmpty()) {
+            return 0;
+        }
+        Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>();
+        List<Map<Object, Object>> sessions = redisService.pipelinedHmget(sessionKeys, CLEANUP_BATCH_SIZE);
+        for (Map<Object, Object> sessionData : sessions) {
+            Object username = sessionData.get("username");
+            if (username != null && isSessionActive(sessionData)) {
+                double lastAccessTime = Double.parseDouble(sessionData.get("lastAccessTime").toString());
+                tuples.add(new DefaultTypedTuple<>(username.toString(), lastAccessTime));
+            }
+        }
+        sessionKeys.clear();
+        return redisService.zAddAll(ONLINE_USERS_KEY, tuples);
+    }
+
+    /**
+     * 在线判定的最后访问时间下限（与会话有效期一致）
+     */
+    private double onlineScoreFloor() {
+        return System.currentTimeMillis() - (jwtExpiration + 300000);
+    }
 }
- 
\ No newline at end of file
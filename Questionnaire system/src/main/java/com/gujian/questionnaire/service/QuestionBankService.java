@@ -2,9 +2,12 @@ package com.gujian.questionnaire.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.gujian.questionnaire.dto.CursorPageVO;
 import com.gujian.questionnaire.entity.QuestionBank;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 题库服务接口
@@ -36,6 +39,11 @@ public interface QuestionBankService extends IService<QuestionBank> {
      */
     boolean batchImportQuestions(List<QuestionBank> questions);
     
+    /**
+     * 校验题目数据（不合法时抛出 BusinessException），并补全优先级、难度默认值
+     */
+    void validateQuestion(QuestionBank question);
+    
     /**
      * 批量删除题目
      */
@@ -47,6 +55,15 @@ public interface QuestionBankService extends IService<QuestionBank> {
     IPage<QuestionBank> getQuestionPage(int current, int size, Integer type, Integer status, 
                                        Integer difficulty, Integer priority, String keyword);
     
+    /**
+     * 游标分页查询题库（按创建时间倒序）
+     * @param cursor 上一页返回的游标，首页传null
+     * @param withTotal 是否统计总数
+     */
+    CursorPageVO<QuestionBank> getQuestionCursorPage(String cursor, int size, Integer type, Integer status,
+                                                     Integer difficulty, Integer priority, String keyword,
+                                                     boolean withTotal);
+    
     /**
      * 创建题目
      */
@@ -74,8 +91,20 @@ public interface QuestionBankService extends IService<QuestionBank> {
     
     /**
      * 根据ID获取题目详情（包含扩展信息）
+     * 结果来自题目缓存，为共享实例，调用方不得修改
      */
     QuestionBank getQuestionDetail(Long id);
+
+    /**
+     * 批量获取题目详情（包含扩展信息），不存在的题目不在结果中
+     * 结果来自题目缓存，为共享实例，调用方不得修改
+     */
+    Map<Long, QuestionBank> getQuestionDetails(Collection<Long> ids);
+
+    /**
+     * 获取题目缓存统计（命中/未命中/淘汰等）
+     */
+    Map<String, Object> getQuestionCacheStats();
     
     /**
      * 获取题目列表（无分页）
@@ -0,0 +1,353 @@
+package com.gujian.questionnaire.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 题目详情二级缓存（本地 Caffeine -> Redis -> 数据库）
+ *
+ * 缓存已预处理的题目（optionList 已解析、类型/难度名称已设置），返回的是各调用方共享的实例，调用方不得修改。
+ * 每个题目在Redis中有一个版本号，Redis缓存键带版本号；题目修改/删除/启停时在事务提交后递增版本号，
+ * 旧版本缓存不再可达并随TTL过期，并发加载时读到的旧数据也只会写入旧版本的键。
+ * 版本号递增后通过Redis发布/订阅广播，各节点据此失效本地缓存，本地缓存的短TTL作为消息丢失时的兜底
+ */
+@Slf4j
+@Component
+public class QuestionCache implements MessageListener {
+
+    private static final String CHANNEL = "question:cache:invalidate";
+
+    private static final String DATA_KEY_PREFIX = "question:detail:";
+
+    private static final String VERSION_KEY_PREFIX = "question:version:";
+
+    private static final int REDIS_BATCH_SIZE = 500;
+
+    @Value("${app.question-cache.local-size:10000}")
+    private long localSize;
+
+    @Value("${app.question-cache.local-ttl:600}")
+    private long localTtlSeconds;
+
+    @Value("${app.question-cache.redis-ttl:3600}")
+    private long redisTtlSeconds;
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    private Cache<Long, Entry> cache;
+
+    /**
+     * 本节点收到的最新版本号，防止失效消息先于并发加载完成时旧数据被放回本地缓存
+     */
+    private Cache<Long, Long> knownVersions;
+
+    private final LongAdder redisHits = new LongAdder();
+
+    private final LongAdder redisMisses = new LongAdder();
+
+    private final LongAdder redisErrors = new LongAdder();
+
+    private final LongAdder dbLoads = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(localSize)
+                .expireAfterWrite(localTtlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        knownVersions = Caffeine.newBuilder()
+                .maximumSize(localSize)
+                .expireAfterWrite(localTtlSeconds, TimeUnit.SECONDS)
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 获取单个题目，不存在时返回null
+     * @param loader 按ID批量加载并预处理题目（缓存均未命中时调用）
+     */
+    public QuestionBank get(Long id, Function<List<Long>, List<QuestionBank>> loader) {
+        if (id == null) {
+            return null;
+        }
+        return getAll(Collections.singletonList(id), loader).get(id);
+    }
+
+    /**
+     * 批量获取题目，不存在的ID不在结果中
+     * 本地未命中的题目一次MGET读取版本号、一次MGET读取Redis缓存，剩余的由 loader 一次加载
+     */
+    public Map<Long, QuestionBank> getAll(Collection<Long> ids, Function<List<Long>, List<QuestionBank>> loader) {
+        Map<Long, QuestionBank> result = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        Map<Long, Entry> present = cache.getAllPresent(distinctIds);
+        present.forEach((id, entry) -> result.put(id, entry.question));
+        if (present.size() == distinctIds.size()) {
+            return result;
+        }
+
+        List<Long> missing = distinctIds.stream().filter(id -> !present.containsKey(id)).collect(Collectors.toList());
+        Map<Long, Long> versions = readVersions(missing);
+        List<Long> toLoad = versions != null ? readRedis(missing, versions, result) : missing;
+        if (toLoad.isEmpty()) {
+            return result;
+        }
+
+        List<QuestionBank> loaded = loader.apply(toLoad);
+        dbLoads.add(toLoad.size());
+        Map<String, String> writes = new HashMap<>();
+        for (QuestionBank question : loaded) {
+            result.put(question.getId(), question);
+            if (versions == null) {
+                // Redis不可用时无法确认版本，不放入本地缓存，避免错过失效
+                continue;
+            }
+            long version = versions.get(question.getId());
+            putLocal(question.getId(), version, question);
+            try {
+                writes.put(dataKey(question.getId(), version), objectMapper.writeValueAsString(question));
+            } catch (Exception e) {
+                log.warn("序列化题目缓存失败: 题目ID={}, 错误={}", question.getId(), e.getMessage());
+            }
+        }
+        writeRedis(writes);
+        return result;
+    }
+
+    /**
+     * 题目修改/删除/启停后失效（事务提交后递增版本号并广播）
+     */
+    public void invalidate(Long questionId) {
+        if (questionId != null) {
+            invalidateAll(Collections.singletonList(questionId));
+        }
+    }
+
+    /**
+     * 批量失效（事务提交后递增版本号并广播）
+     */
+    public void invalidateAll(Collection<Long> questionIds) {
+        if (questionIds == null || questionIds.isEmpty()) {
+            return;
+        }
+        List<Long> copy = new ArrayList<>(new LinkedHashSet<>(questionIds));
+        TransactionUtils.afterCommit(() -> bumpVersions(copy));
+    }
+
+    /**
+     * 接收其他节点（包括本节点）广播的失效消息，格式为 "题目ID:版本号,..."
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisService.deserializeMessage(message.getBody());
+            if (!(body instanceof String)) {
+                return;
+            }
+            for (String item : ((String) body).split(",")) {
+                int sep = item.indexOf(':');
+                applyVersion(Long.valueOf(item.substring(0, sep)), Long.parseLong(item.substring(sep + 1)));
+            }
+        } catch (RuntimeException e) {
+            log.warn("处理题目缓存失效消息失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 缓存命中/未命中/淘汰等统计
+     */
+    public Map<String, Object> stats() {
+        CacheStats local = cache.stats();
+        long hits = redisHits.sum();
+        long misses = redisMisses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("localSize", cache.estimatedSize());
+        stats.put("localHitCount", local.hitCount());
+        stats.put("localMissCount", local.missCount());
+        stats.put("localHitRate", local.hitRate());
+        stats.put("localEvictionCount", local.evictionCount());
+        stats.put("redisHitCount", hits);
+        stats.put("redisMissCount", misses);
+        stats.put("redisHitRate", hits + misses == 0 ? 1.0 : (double) hits / (hits + misses));
+        stats.put("redisErrorCount", redisErrors.sum());
+        stats.put("dbLoadCount", dbLoads.sum());
+        stats.put("invalidationCount", invalidations.sum());
+        return stats;
+    }
+
+    private Map<Long, Long> readVersions(List<Long> ids) {
+        try {
+            List<Object> values = redisService.multiGet(ids.stream().map(id -> VERSION_KEY_PREFIX + id)
+                    .collect(Collectors.toList()), REDIS_BATCH_SIZE);
+            Map<Long, Long> versions = new HashMap<>();
+            for (int i = 0; i < ids.size(); i++) {
+                Object value = values.get(i);
+                versions.put(ids.get(i), value instanceof Number ? ((Number) value).longValue() : 0L);
+            }
+            return versions;
+        } catch (RuntimeException e) {
+            redisErrors.increment();
+            log.warn("读取题目缓存版本失败，直接查询数据库: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 读取Redis缓存，命中的放入结果和本地缓存，返回未命中的ID
+     */
+    private List<Long> readRedis(List<Long> ids, Map<Long, Long> versions, Map<Long, QuestionBank> result) {
+        List<Object> values;
+        try {
+            values = redisService.multiGet(ids.stream().map(id -> dataKey(id, versions.get(id)))
+                    .collect(Collectors.toList()), REDIS_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            redisErrors.increment();
+            log.warn("读取题目缓存失败，直接查询数据库: {}", e.getMessage());
+            return ids;
+        }
+
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            QuestionBank question = null;
+            if (values.get(i) instanceof String) {
+                try {
+                    question = objectMapper.readValue((String) values.get(i), QuestionBank.class);
+                } catch (Exception e) {
+                    log.warn("解析题目缓存失败: 题目ID={}, 错误={}", id, e.getMessage());
+                }
+            }
+            if (question == null) {
+                redisMisses.increment();
+                missing.add(id);
+                continue;
+            }
+            redisHits.increment();
+            result.put(id, question);
+            putLocal(id, versions.get(id), question);
+        }
+        return missing;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeRedis(Map<String, String> writes) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        try {
+            redisService.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    writes.forEach((key, json) -> ops.opsForValue().set(key, json, redisTtlSeconds, TimeUnit.SECONDS));
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            redisErrors.increment();
+            log.warn("写入题目缓存失败: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void bumpVersions(List<Long> ids) {
+        try {
+            // 版本号不设过期时间：过期后从0重新计数会重新命中尚未过期的旧版本缓存
+            List<Object> results = redisService.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    ids.forEach(id -> ops.opsForValue().increment(VERSION_KEY_PREFIX + id));
+                    return null;
+                }
+            });
+            StringBuilder message = new StringBuilder();
+            for (int i = 0; i < ids.size(); i++) {
+                long version = ((Number) results.get(i)).longValue();
+                applyVersion(ids.get(i), version);
+                if (i > 0) {
+                    message.append(',');
+                }
+                message.append(ids.get(i)).append(':').append(version);
+            }
+            redisService.publish(CHANNEL, message.toString());
+        } catch (RuntimeException e) {
+            // Redis中的旧缓存只能等待TTL过期
+            redisErrors.increment();
+            cache.invalidateAll(ids);
+            log.error("题目缓存版本递增失败: 题目ID={}, 错误={}", ids, e.getMessage());
+        }
+    }
+
+    private void applyVersion(Long id, long version) {
+        invalidations.increment();
+        knownVersions.asMap().merge(id, version, Math::max);
+        cache.asMap().computeIfPresent(id, (key, entry) -> entry.version < version ? null : entry);
+    }
+
+    private void putLocal(Long id, long version, QuestionBank question) {
+        cache.asMap().compute(id, (key, old) -> {
+            Long known = knownVersions.getIfPresent(id);
+            return known != null && known > version ? old : new Entry(version, question);
+        });
+    }
+
+    private static String dataKey(Long id, long version) {
+        return DATA_KEY_PREFIX + id + ":" + version;
+    }
+
+    private static final class Entry {
+
+        private final long version;
+
+        private final QuestionBank question;
+
+        private Entry(long version, QuestionBank question) {
+            this.version = version;
+            this.question = question;
+        }
+    }
+}
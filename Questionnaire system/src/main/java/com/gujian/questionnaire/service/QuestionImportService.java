@@ -0,0 +1,28 @@
+package com.gujian.questionnaire.service;
+
+import com.gujian.questionnaire.dto.QuestionImportResultVO;
+
+import java.io.InputStream;
+
+/**
+ * 题目导入服务接口
+ *
+ * 解析 -> 校验 -> 标题去重 -> 分批多值INSERT 逐条流水线处理，
+ * 内存中只保留当前批次和标题哈希集合，支持十万级题库导入
+ */
+public interface QuestionImportService {
+
+    /**
+     * 从输入流导入题目
+     * @param in 上传内容，由调用方负责关闭
+     * @param format 格式：json（对象数组）、jsonl（每行一个对象）、csv（首行为表头）
+     * @param creatorId 创建者ID
+     * @return 导入结果及逐行错误报告
+     */
+    QuestionImportResultVO importQuestions(InputStream in, String format, Long creatorId);
+
+    /**
+     * 根据文件名推断导入格式，无法识别时返回null
+     */
+    String detectFormat(String fileName);
+}
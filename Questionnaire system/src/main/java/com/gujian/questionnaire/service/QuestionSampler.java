@@ -0,0 +1,311 @@
+package com.gujian.questionnaire.service;
+
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.mapper.QuestionBankMapper;
+import com.gujian.questionnaire.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 内存抽题索引
+ *
+ * 按 (题型, 优先级, 难度) 分桶保存启用题目的ID，替代 ORDER BY priority DESC, RAND() 全表排序：
+ * 1. 抽题语义与原SQL一致：优先级从高到低逐层抽取，同一优先级内均匀随机
+ * 2. 单次抽题为 O(count)，不访问数据库
+ * 3. 题目增删改后在事务提交时增量刷新，并定期全量重建以同步其他节点的修改
+ *
+ * 索引未加载完成时 sample 返回 null，调用方应回退到数据库随机查询
+ */
+@Slf4j
+@Component
+public class QuestionSampler {
+
+    @Autowired
+    private QuestionBankMapper questionBankMapper;
+
+    /**
+     * 分桶快照（写时复制，读操作无锁）
+     */
+    private volatile Map<Integer, long[]> buckets = Collections.emptyMap();
+
+    /**
+     * 题目ID -> 所在桶，仅在持有锁时修改
+     */
+    private final Map<Long, Integer> bucketKeyById = new HashMap<>();
+
+    private final Object lock = new Object();
+
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * 定期全量重建（默认10分钟）
+     */
+    @Scheduled(fixedDelayString = "${app.question-sampler.reload-interval:600000}",
+            initialDelayString = "${app.question-sampler.reload-interval:600000}")
+    public void scheduledReload() {
+        reload();
+    }
+
+    /**
+     * 从数据库全量重建索引
+     */
+    public void reload() {
+        try {
+            synchronized (lock) {
+                List<QuestionBank> metas = questionBankMapper.selectActiveQuestionMeta();
+
+                Map<Integer, List<Long>> grouped = new HashMap<>();
+                bucketKeyById.clear();
+                for (QuestionBank meta : metas) {
+                    int key = bucketKey(meta);
+                    grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(meta.getId());
+                    bucketKeyById.put(meta.getId(), key);
+                }
+
+                Map<Integer, long[]> rebuilt = new HashMap<>();
+                grouped.forEach((key, ids) -> rebuilt.put(key, ids.stream().mapToLong(Long::longValue).toArray()));
+                buckets = rebuilt;
+                ready = true;
+
+                log.info("抽题索引重建完成: 启用题目数={}, 分桶数={}", metas.size(), rebuilt.size());
+            }
+        } catch (Exception e) {
+            log.error("抽题索引重建失败，将回退到数据库随机查询: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 题目新增或修改后刷新索引（事务提交后生效）
+     * 启用且未删除的题目加入对应分桶，否则从索引中移除
+     */
+    public void onQuestionSaved(QuestionBank question) {
+        if (question != null) {
+            onQuestionsSaved(Collections.singletonList(question));
+        }
+    }
+
+    /**
+     * 批量新增或修改后刷新索引（事务提交后生效）
+     * 按分桶合并变更，每个受影响的分桶只重建一次，用于导入等批量写入场景
+     */
+    public void onQuestionsSaved(Collection<QuestionBank> questions) {
+        if (questions == null || questions.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> changes = new HashMap<>(questions.size() * 2);
+        for (QuestionBank question : questions) {
+            if (question == null || question.getId() == null) {
+                continue;
+            }
+            boolean active = Integer.valueOf(1).equals(question.getStatus())
+                    && !Integer.valueOf(1).equals(question.getDeleted());
+            changes.put(question.getId(), active ? bucketKey(question) : null);
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            synchronized (lock) {
+                applyChanges(changes);
+            }
+        });
+    }
+
+    /**
+     * 题目删除后移除索引（事务提交后生效）
+     */
+    public void onQuestionsRemoved(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> changes = new HashMap<>(ids.size() * 2);
+        ids.forEach(id -> changes.put(id, null));
+        TransactionUtils.afterCommit(() -> {
+            synchronized (lock) {
+                applyChanges(changes);
+            }
+        });
+    }
+
+    /**
+     * 按题型随机抽取题目ID
+     *
+     * @param types 题型列表，null/空 或包含0表示不限题型
+     * @param count 抽取数量
+     * @return 按抽取顺序排列的题目ID；索引未就绪时返回null
+     */
+    public List<Long> sample(List<Integer> types, int count) {
+        if (!ready) {
+            return null;
+        }
+        Map<Integer, long[]> snapshot = buckets;
+        boolean anyType = types == null || types.isEmpty() || types.contains(0);
+
+        // 收集各优先级层的分桶，按优先级从高到低抽取
+        Map<Integer, List<long[]>> tiers = new HashMap<>();
+        for (Map.Entry<Integer, long[]> entry : snapshot.entrySet()) {
+            int key = entry.getKey();
+            if (anyType || types.contains(typeOf(key))) {
+                tiers.computeIfAbsent(priorityOf(key), p -> new ArrayList<>()).add(entry.getValue());
+            }
+        }
+        List<Integer> priorities = new ArrayList<>(tiers.keySet());
+        priorities.sort(Collections.reverseOrder());
+
+        List<Long> result = new ArrayList<>(count);
+        for (Integer priority : priorities) {
+            int need = count - result.size();
+            if (need <= 0) {
+                break;
+            }
+            drawFromTier(tiers.get(priority), need, result);
+        }
+        return result;
+    }
+
+    /**
+     * 当前索引中的启用题目数
+     */
+    public int size() {
+        int total = 0;
+        for (long[] ids : buckets.values()) {
+            total += ids.length;
+        }
+        return total;
+    }
+
+    /**
+     * 当前索引中各题型的启用题目数
+     */
+    public Map<Integer, Integer> countByType() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Map.Entry<Integer, long[]> entry : buckets.entrySet()) {
+            counts.merge(typeOf(entry.getKey()), entry.getValue().length, Integer::sum);
+        }
+        return counts;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 从同一优先级的多个分桶中无放回随机抽取
+     * 使用稀疏 Fisher-Yates：只记录被交换过的位置，复杂度 O(need)
+     */
+    private void drawFromTier(List<long[]> arrays, int need, List<Long> result) {
+        int total = 0;
+        for (long[] ids : arrays) {
+            total += ids.length;
+        }
+        int draws = Math.min(need, total);
+        if (draws == 0) {
+            return;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<Integer, Integer> swapped = new HashMap<>(draws * 2);
+        for (int i = 0; i < draws; i++) {
+            int j = i + random.nextInt(total - i);
+            int valueAtJ = swapped.getOrDefault(j, j);
+            int valueAtI = swapped.getOrDefault(i, i);
+            swapped.put(j, valueAtI);
+            result.add(idAt(arrays, valueAtJ));
+        }
+    }
+
+    private long idAt(List<long[]> arrays, int index) {
+        for (long[] ids : arrays) {
+            if (index < ids.length) {
+                return ids[index];
+            }
+            index -= ids.length;
+        }
+        throw new IndexOutOfBoundsException("抽题下标越界: " + index);
+    }
+
+    /**
+     * 应用一批变更：题目ID -> 新分桶（null 表示移出索引）
+     * 先按分桶汇总移除和新增的ID，再对每个受影响的分桶复制一次，整体替换快照
+     */
+    private void applyChanges(Map<Long, Integer> changes) {
+        Map<Integer, Set<Long>> removed = new HashMap<>();
+        Map<Integer, List<Long>> added = new HashMap<>();
+        changes.forEach((id, key) -> {
+            Integer oldKey = key != null ? bucketKeyById.put(id, key) : bucketKeyById.remove(id);
+            if (oldKey != null) {
+                removed.computeIfAbsent(oldKey, k -> new HashSet<>()).add(id);
+            }
+            if (key != null) {
+                added.computeIfAbsent(key, k -> new ArrayList<>()).add(id);
+            }
+        });
+
+        Set<Integer> touched = new HashSet<>(removed.keySet());
+        touched.addAll(added.keySet());
+        if (touched.isEmpty()) {
+            return;
+        }
+        Map<Integer, long[]> next = new HashMap<>(buckets);
+        for (Integer key : touched) {
+            long[] current = next.getOrDefault(key, new long[0]);
+            Set<Long> drop = removed.getOrDefault(key, Collections.emptySet());
+            List<Long> append = added.getOrDefault(key, Collections.emptyList());
+
+            long[] rebuilt = new long[current.length + append.size()];
+            int size = 0;
+            for (long id : current) {
+                if (!drop.contains(id)) {
+                    rebuilt[size++] = id;
+                }
+            }
+            for (Long id : append) {
+                rebuilt[size++] = id;
+            }
+            if (size == 0) {
+                next.remove(key);
+            } else {
+                next.put(key, size == rebuilt.length ? rebuilt : Arrays.copyOf(rebuilt, size));
+            }
+        }
+        buckets = next;
+    }
+
+    /**
+     * 分桶键：题型*100 + 优先级*10 + 难度（优先级/难度为空时记为0，与SQL中NULL排在最后一致）
+     */
+    private static int bucketKey(QuestionBank question) {
+        int type = question.getType() != null ? question.getType() : 0;
+        int priority = question.getPriority() != null ? question.getPriority() : 0;
+        int difficulty = question.getDifficulty() != null ? question.getDifficulty() : 0;
+        return type * 100 + priority * 10 + difficulty;
+    }
+
+    private static int typeOf(int key) {
+        return key / 100;
+    }
+
+    private static int priorityOf(int key) {
+        return key / 10 % 10;
+    }
+}
@@ -0,0 +1,31 @@
+package com.gujian.questionnaire.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.gujian.questionnaire.entity.AnswerRecord;
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.entity.QuestionSnapshot;
+
+import java.util.Collection;
+
+/**
+ * 题目快照服务接口
+ */
+public interface QuestionSnapshotService extends IService<QuestionSnapshot> {
+
+    /**
+     * 获取题目当前内容对应的已提交快照（答题时调用）
+     * 该版本尚无快照时在独立事务中创建并提交，不参与调用方的事务
+     */
+    QuestionSnapshot resolve(QuestionBank question);
+
+    /**
+     * 题目新增、修改、导入后在同一事务中为其当前内容创建快照（已有相同内容的快照时跳过）
+     * 题目内容从数据库重新读取，与答题时读到的内容（如JSON列规范化后的选项）一致
+     */
+    void capture(Collection<Long> questionIds);
+
+    /**
+     * 按 snapshot_id 为答题记录填充题目描述、选项和正确答案
+     */
+    void fillSnapshots(Collection<AnswerRecord> records);
+}
@@ -0,0 +1,46 @@
+package com.gujian.questionnaire.service;
+
+import com.gujian.questionnaire.entity.AnswerRecord;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 题目统计服务接口
+ *
+ * 每道题的作答次数、正确数、得分合计和用时分布保存在Redis Hash中，
+ * 答题和人工评分时增量更新，查询为 O(1)；历史数据通过 rebuild 全量回填
+ */
+public interface QuestionStatsService {
+
+    /**
+     * 记录新提交的答题记录（事务提交后生效）
+     */
+    void recordAnswers(Collection<AnswerRecord> records);
+
+    /**
+     * 记录得分变化（人工评分/改分）
+     * @param questionId 题目ID
+     * @param scoreDelta 最终得分的变化量
+     */
+    void recordScoreChange(Long questionId, int scoreDelta);
+
+    /**
+     * 记录重新评分造成的变化
+     * @param questionId 题目ID
+     * @param correctDelta 正确次数的变化量
+     * @param scoreDelta 最终得分的变化量
+     */
+    void recordScoreChange(Long questionId, int correctDelta, int scoreDelta);
+
+    /**
+     * 获取题目统计数据
+     */
+    Map<String, Object> getQuestionStats(Long questionId);
+
+    /**
+     * 按 answer_record 全量重建题目统计
+     * @return 重建的题目数
+     */
+    int rebuild();
+}
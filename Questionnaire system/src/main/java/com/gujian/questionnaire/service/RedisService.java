@@ -1,11 +1,22 @@
 package com.gujian.questionnaire.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.ConvertingCursor;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Redis服务类
@@ -80,11 +91,12 @@ public class RedisService {
 
     /**
      * 根据模式匹配获取key集合
-     * 注意：在生产环境中建议使用scan命令代替keys命令以避免阻塞
+     * 注意：KEYS 会阻塞Redis直到遍历完整个键空间，请使用 {@link #scan(String, int)}
      *
      * @param pattern 匹配模式，如 "user:session:*"
      * @return 匹配的key集合
      */
+    @Deprecated
     public Set<String> keys(String pattern) {
         try {
             return redisTemplate.keys(pattern);
@@ -94,6 +106,103 @@ public class RedisService {
         }
     }
 
+    /**
+     * 基于SCAN游标的键遍历，按批次惰性拉取，不阻塞Redis
+     * 返回的Stream持有连接，使用完毕后必须关闭（try-with-resources）
+     *
+     * @param pattern   匹配模式，如 "user:session:*"
+     * @param batchSize 每次SCAN的COUNT提示值
+     * @return 匹配的key流（可能包含重复key，由SCAN语义决定）
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<String> scan(String pattern, int batchSize) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(batchSize).build();
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        Cursor<String> cursor = redisTemplate.executeWithStickyConnection(
+                connection -> new ConvertingCursor<>(connection.scan(options), keySerializer::deserialize));
+        if (cursor == null) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    }
+
+    /**
+     * 按模式分批删除key（SCAN + UNLINK，每批一次命令）
+     *
+     * @param pattern   匹配模式
+     * @param batchSize 每批处理的key数量
+     * @return 删除的key数量
+     */
+    public long delByPattern(String pattern, int batchSize) {
+        long deleted = 0;
+        List<String> chunk = new ArrayList<>(batchSize);
+        try (Stream<String> keys = scan(pattern, batchSize)) {
+            Iterator<String> iterator = keys.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() >= batchSize) {
+                    deleted += unlinkChunk(chunk);
+                }
+            }
+        }
+        deleted += unlinkChunk(chunk);
+        return deleted;
+    }
+
+    private long unlinkChunk(List<String> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        Long count = redisTemplate.unlink(new ArrayList<>(chunk));
+        chunk.clear();
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 分批获取多个普通缓存（MGET）
+     *
+     * @param keys      键列表
+     * @param batchSize 每批的key数量
+     * @return 与keys一一对应的值，不存在的为null
+     */
+    public List<Object> multiGet(List<String> keys, int batchSize) {
+        List<Object> values = new ArrayList<>(keys.size());
+        for (int from = 0; from < keys.size(); from += batchSize) {
+            List<Object> batch = redisTemplate.opsForValue()
+                    .multiGet(keys.subList(from, Math.min(from + batchSize, keys.size())));
+            if (batch != null) {
+                values.addAll(batch);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 分批以管道方式获取多个Hash的全部键值（每批一次网络往返）
+     *
+     * @param keys      键列表
+     * @param batchSize 每批的key数量
+     * @return 与keys一一对应的Hash，不存在的为空Map
+     */
+    @SuppressWarnings("unchecked")
+    public List<Map<Object, Object>> pipelinedHmget(List<String> keys, int batchSize) {
+        List<Map<Object, Object>> values = new ArrayList<>(keys.size());
+        for (int from = 0; from < keys.size(); from += batchSize) {
+            List<String> batch = keys.subList(from, Math.min(from + batchSize, keys.size()));
+            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    batch.forEach(key -> ops.opsForHash().entries(key));
+                    return null;
+                }
+            });
+            results.forEach(result -> values.add(result != null ? (Map<Object, Object>) result : new HashMap<>()));
+        }
+        return values;
+    }
+
     // ============================String=============================
 
     /**
@@ -544,4 +653,159 @@ public class RedisService {
             return 0;
         }
     }
-} 
\ No newline at end of file
+
+    // ================================ZSet=================================
+
+    /**
+     * 添加或更新有序集合成员
+     *
+     * @param key   键
+     * @param value 成员
+     * @param score 分数
+     */
+    public boolean zAdd(String key, Object value, double score) {
+        try {
+            redisTemplate.opsForZSet().add(key, value, score);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * 批量添加或更新有序集合成员（一次ZADD）
+     *
+     * @param key    键
+     * @param tuples 成员及分数
+     * @return 新增的成员数
+     */
+    public long zAddAll(String key, Set<ZSetOperations.TypedTuple<Object>> tuples) {
+        try {
+            if (tuples == null || tuples.isEmpty()) {
+                return 0;
+            }
+            Long count = redisTemplate.opsForZSet().add(key, tuples);
+            return count == null ? 0 : count;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * 移除有序集合成员
+     *
+     * @param key    键
+     * @param values 成员 可以是多个
+     * @return 移除的个数
+     */
+    public long zRemove(String key, Object... values) {
+        try {
+            Long count = redisTemplate.opsForZSet().remove(key, values);
+            return count == null ? 0 : count;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * 统计分数在区间内的成员数（ZCOUNT）
+     *
+     * @param key 键
+     * @param min 最小分数（含）
+     * @param max 最大分数（含）
+     */
+    public long zCount(String key, double min, double max) {
+        try {
+            Long count = redisTemplate.opsForZSet().count(key, min, max);
+            return count == null ? 0 : count;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * 按分数从高到低获取区间内的成员及分数（ZREVRANGEBYSCORE ... WITHSCORES LIMIT）
+     *
+     * @param key    键
+     * @param min    最小分数（含）
+     * @param max    最大分数（含）
+     * @param offset 偏移量
+     * @param count  数量
+     */
+    public Set<ZSetOperations.TypedTuple<Object>> zReverseRangeByScoreWithScores(String key, double min, double max,
+                                                                                long offset, long count) {
+        try {
+            Set<ZSetOperations.TypedTuple<Object>> tuples =
+                    redisTemplate.opsForZSet().reverseRangeByScoreWithScores(key, min, max, offset, count);
+            return tuples == null ? new LinkedHashSet<>() : tuples;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new LinkedHashSet<>();
+        }
+    }
+
+    /**
+     * 移除分数在区间内的成员（ZREMRANGEBYSCORE）
+     *
+     * @param key 键
+     * @param min 最小分数（含）
+     * @param max 最大分数（含）
+     * @return 移除的个数
+     */
+    public long zRemoveRangeByScore(String key, double min, double max) {
+        try {
+            Long count = redisTemplate.opsForZSet().removeRangeByScore(key, min, max);
+            return count == null ? 0 : count;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    // ============================Pipeline/Script=============================
+
+    /**
+     * 以管道方式执行多条命令（一次网络往返）
+     *
+     * @param callback 命令回调，回调内的操作结果不可直接使用
+     * @return 各条命令的结果，按执行顺序排列（已按模板序列化方式反序列化）
+     */
+    public List<Object> executePipelined(SessionCallback<?> callback) {
+        return redisTemplate.executePipelined(callback);
+    }
+
+    /**
+     * 执行Lua脚本
+     *
+     * @param script 脚本
+     * @param keys   KEYS参数
+     * @param args   ARGV参数（按值序列化方式序列化）
+     * @return 脚本返回值
+     */
+    public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        return redisTemplate.execute(script, keys, args);
+    }
+
+    // ============================Pub/Sub=============================
+
+    /**
+     * 发布消息
+     *
+     * @param channel 频道
+     * @param message 消息（按值序列化方式序列化）
+     */
+    public void publish(String channel, Object message) {
+        redisTemplate.convertAndSend(channel, message);
+    }
+
+    /**
+     * 按值序列化方式反序列化订阅收到的消息体
+     */
+    public Object deserializeMessage(byte[] body) {
+        return redisTemplate.getValueSerializer().deserialize(body);
+    }
+}
@@ -0,0 +1,36 @@
+package com.gujian.questionnaire.service;
+
+import com.gujian.questionnaire.dto.RescoreDTO;
+import com.gujian.questionnaire.dto.RescoreProgressVO;
+
+/**
+ * 重新评分服务接口
+ *
+ * 按题目/会话/答题时间范围重新自动评分：按ID游标分批读取答题记录，
+ * 使用预编译答案并行评分，批量写回并重新汇总受影响会话的总分。
+ * 任务进度和断点保存在Redis中，中断后可从断点继续
+ */
+public interface RescoreService {
+
+    /**
+     * 提交后台重新评分任务
+     * @return 任务ID
+     */
+    String submit(RescoreDTO scope);
+
+    /**
+     * 从断点继续已中断或失败的任务
+     */
+    RescoreProgressVO resume(String jobId);
+
+    /**
+     * 查询任务进度
+     */
+    RescoreProgressVO getProgress(String jobId);
+
+    /**
+     * 在当前线程中同步重新评分（用于单个会话等小范围）
+     * @return 评分发生变化的记录数
+     */
+    long rescoreNow(RescoreDTO scope);
+}
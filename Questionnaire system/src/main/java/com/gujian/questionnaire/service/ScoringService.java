@@ -2,6 +2,7 @@ package com.gujian.questionnaire.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.gujian.questionnaire.dto.CursorPageVO;
 import com.gujian.questionnaire.dto.ScoringDTO;
 import com.gujian.questionnaire.entity.AnswerRecord;
 import com.gujian.questionnaire.entity.ScoringRecord;
@@ -38,6 +39,14 @@ public interface ScoringService extends IService<ScoringRecord> {
      */
     IPage<ScoringRecord> getScoringRecordsPage(int current, int size, Long sessionId, Long scorerId);
     
+    /**
+     * 游标分页查询评分记录（按评分时间倒序）
+     * @param cursor 上一页返回的游标，首页传null
+     * @param withTotal 是否统计总数
+     */
+    CursorPageVO<ScoringRecord> getScoringRecordsCursorPage(String cursor, int size, Long sessionId, Long scorerId,
+                                                            boolean withTotal);
+    
     /**
      * 获取会话的所有评分记录
      */
@@ -0,0 +1,18 @@
+package com.gujian.questionnaire.service;
+
+import java.io.Writer;
+
+/**
+ * 会话导出服务接口
+ *
+ * 会话及答题明细从数据库流式读取后逐行写出，内存占用与导出行数无关
+ */
+public interface SessionExportService {
+
+    /**
+     * 按管理员会话列表的过滤条件导出CSV（每行一条答题记录）
+     * @param writer 输出目标，由调用方负责关闭
+     * @return 导出的行数（不含表头）
+     */
+    long exportCsv(String userName, Integer status, String startTime, String endTime, Writer writer);
+}
@@ -0,0 +1,251 @@
+package com.gujian.questionnaire.service;
+
+import com.gujian.questionnaire.entity.AnswerSession;
+import com.gujian.questionnaire.mapper.AnswerSessionMapper;
+import com.gujian.questionnaire.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 会话超时调度器
+ *
+ * 以Redis有序集合 session:deadlines（成员为会话ID，分值为截止时间毫秒数）保存进行中会话的截止时间：
+ * 1. 开始/恢复/延时会话时写入或更新截止时间，结束会话时移除
+ * 2. 每秒用Lua脚本原子地取出并删除已到期的会话ID（多节点不会重复处理），再以单条 UPDATE ... WHERE id IN (...) 标记超时；
+ *    数据库按秒精度的 NOW() 判定到期，取出时延后 CLAIM_GRACE_MILLIS，未被标记超时但仍在进行中的会话按实际截止时间重新登记，
+ *    UPDATE 失败时全部放回
+ * 3. 启动时按数据库中进行中的会话重建索引
+ *
+ * 取出后进程崩溃导致的遗漏由 batchCheckTimeout 兜底扫描处理
+ */
+@Slf4j
+@Component
+public class SessionTimeoutScheduler {
+
+    private static final String DEADLINE_KEY = "session:deadlines";
+
+    private static final int CLAIM_BATCH_SIZE = 500;
+
+    private static final int RECOVERY_BATCH_SIZE = 1000;
+
+    /**
+     * 取出到期会话的延后时间：截止时间按毫秒计算，而 start_time 列和 NOW() 只精确到秒
+     */
+    private static final long CLAIM_GRACE_MILLIS = 1000L;
+
+    /**
+     * 取出已到期的会话ID并从集合中删除
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_DUE_SCRIPT = new DefaultRedisScript<>(
+            "local ids = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+            "if #ids > 0 then redis.call('zrem', KEYS[1], unpack(ids)) end " +
+            "return ids", List.class);
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private AnswerSessionMapper answerSessionMapper;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private ActiveSessionStore activeSessionStore;
+
+    /**
+     * 登记会话截止时间（事务提交后生效），已存在时更新为新的截止时间
+     */
+    public void schedule(AnswerSession session) {
+        Long deadline = deadlineOf(session.getStartTime(), session.getTimeoutMinutes());
+        if (session.getId() == null || deadline == null) {
+            return;
+        }
+        Long sessionId = session.getId();
+        TransactionUtils.afterCommit(() -> {
+            try {
+                redisService.zAdd(DEADLINE_KEY, sessionId, deadline);
+            } catch (Exception e) {
+                log.warn("登记会话截止时间失败: sessionId={}, 错误={}", sessionId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 移除会话截止时间（事务提交后生效）
+     */
+    public void cancel(Long sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                redisService.zRemove(DEADLINE_KEY, sessionId);
+            } catch (Exception e) {
+                log.warn("移除会话截止时间失败: sessionId={}, 错误={}", sessionId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 批量移除会话截止时间（事务提交后生效）
+     */
+    public void cancelAll(List<Long> sessionIds) {
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            return;
+        }
+        Object[] members = sessionIds.toArray();
+        TransactionUtils.afterCommit(() -> {
+            try {
+                redisService.zRemove(DEADLINE_KEY, members);
+            } catch (Exception e) {
+                log.warn("批量移除会话截止时间失败: 会话数={}, 错误={}", members.length, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 处理已到期的会话（默认每秒）
+     */
+    @Scheduled(fixedDelayString = "${app.scheduling.timeout-poll-interval:1000}")
+    public void expireDueSessions() {
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                List<Long> ids = claimDue(now - CLAIM_GRACE_MILLIS);
+                if (ids.isEmpty()) {
+                    return;
+                }
+                int expired;
+                try {
+                    expired = answerSessionMapper.expireSessions(ids);
+                } catch (Exception e) {
+                    // 放回后下次轮询重试
+                    requeue(ids, now);
+                    throw e;
+                }
+                statisticsService.recordSessionTransition(1, 3, expired);
+                activeSessionStore.evictAll(ids);
+                int requeued = expired < ids.size() ? requeueActive(ids) : 0;
+                if (expired > 0 || requeued > 0) {
+                    log.info("会话到期超时: 取出{}个, 标记超时{}个, 重新登记{}个", ids.size(), expired, requeued);
+                }
+                // 有会话被放回时留到下次轮询，避免在同一批到期会话上空转
+                if (ids.size() < CLAIM_BATCH_SIZE || requeued > 0) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("处理到期会话失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 按数据库中进行中的会话重建截止时间索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        try {
+            long start = System.currentTimeMillis();
+            int total = 0;
+            Long afterId = 0L;
+            while (true) {
+                List<AnswerSession> sessions = answerSessionMapper.selectActiveDeadlines(afterId, RECOVERY_BATCH_SIZE);
+                if (sessions.isEmpty()) {
+                    break;
+                }
+                Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>(sessions.size() * 2);
+                for (AnswerSession session : sessions) {
+                    Long deadline = deadlineOf(session.getStartTime(), session.getTimeoutMinutes());
+                    if (deadline != null) {
+                        tuples.add(new DefaultTypedTuple<>(session.getId(), deadline.doubleValue()));
+                    }
+                }
+                redisService.zAddAll(DEADLINE_KEY, tuples);
+                total += tuples.size();
+                afterId = sessions.get(sessions.size() - 1).getId();
+                if (sessions.size() < RECOVERY_BATCH_SIZE) {
+                    break;
+                }
+            }
+            log.info("会话超时索引重建完成: 进行中会话数={}, 耗时{}ms", total, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("会话超时索引重建失败，将依赖兜底扫描: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 取出的会话中仍在进行中的（未到数据库判定的截止时间），按实际截止时间重新登记
+     * @return 重新登记的会话数
+     */
+    private int requeueActive(List<Long> ids) {
+        List<AnswerSession> active = answerSessionMapper.selectActiveDeadlinesByIds(ids);
+        Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>(active.size() * 2);
+        for (AnswerSession session : active) {
+            Long deadline = deadlineOf(session.getStartTime(), session.getTimeoutMinutes());
+            if (deadline != null) {
+                tuples.add(new DefaultTypedTuple<>(session.getId(), deadline.doubleValue()));
+            }
+        }
+        if (!tuples.isEmpty()) {
+            redisService.zAddAll(DEADLINE_KEY, tuples);
+        }
+        return tuples.size();
+    }
+
+    /**
+     * 数据库不可用时按取出时间放回全部会话，已结束的会话在下次处理时被过滤
+     */
+    private void requeue(List<Long> ids, long deadline) {
+        try {
+            Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>(ids.size() * 2);
+            for (Long id : ids) {
+                tuples.add(new DefaultTypedTuple<>(id, (double) deadline));
+            }
+            redisService.zAddAll(DEADLINE_KEY, tuples);
+        } catch (Exception e) {
+            log.warn("放回到期会话失败，将依赖兜底扫描: 会话数={}, 错误={}", ids.size(), e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> claimDue(long now) {
+        List<Object> raw = redisService.execute(CLAIM_DUE_SCRIPT,
+                Collections.singletonList(DEADLINE_KEY), now, CLAIM_BATCH_SIZE);
+        if (raw == null || raw.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(raw.size());
+        for (Object id : raw) {
+            ids.add(id instanceof Number ? ((Number) id).longValue() : Long.valueOf(id.toString()));
+        }
+        return ids;
+    }
+
+    /**
+     * 截止时间 = 开始时间 + 时限，没有时限时返回null
+     */
+    private static Long deadlineOf(LocalDateTime startTime, Integer timeoutMinutes) {
+        if (startTime == null || timeoutMinutes == null) {
+            return null;
+        }
+        return startTime.plusMinutes(timeoutMinutes).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
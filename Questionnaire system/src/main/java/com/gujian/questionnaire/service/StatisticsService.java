@@ -0,0 +1,55 @@
+package com.gujian.questionnaire.service;
+
+import java.util.Map;
+
+/**
+ * 统计服务接口
+ *
+ * 计数在业务事件发生时增量写入Redis（总量 + 当日），
+ * 每日数据定期刷入 stats_daily 表，并由对账任务按原始数据校正
+ */
+public interface StatisticsService {
+
+    /**
+     * 记录会话状态变化
+     * @param fromStatus 原状态，新建会话时为null
+     * @param toStatus 新状态
+     */
+    void recordSessionTransition(Integer fromStatus, Integer toStatus);
+
+    /**
+     * 记录多个会话的相同状态变化（批量超时等）
+     * @param count 会话数
+     */
+    void recordSessionTransition(Integer fromStatus, Integer toStatus, int count);
+
+    /**
+     * 记录提交的答案数
+     */
+    void recordAnswers(int count);
+
+    /**
+     * 记录用户数变化
+     */
+    void recordUsers(int delta);
+
+    /**
+     * 获取仪表盘统计数据
+     */
+    Map<String, Object> getDashboardStats();
+
+    /**
+     * 获取最近N天的趋势数据
+     */
+    Map<String, Object> getTrend(int days);
+
+    /**
+     * 将Redis中的当日/昨日计数刷入 stats_daily
+     */
+    void flushDailyStats();
+
+    /**
+     * 按原始数据重新计算总量和最近几天的每日统计
+     */
+    void reconcile();
+}
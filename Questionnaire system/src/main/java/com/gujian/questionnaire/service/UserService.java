@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.gujian.questionnaire.entity.User;
 import com.gujian.questionnaire.entity.UserRole;
 import com.gujian.questionnaire.mapper.UserMapper;
+import com.gujian.questionnaire.security.UserPrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -20,6 +21,12 @@ public class UserService {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     /**
@@ -56,6 +63,7 @@ public class UserService {
         user.setEnabled(true);
         
         userMapper.insert(user);
+        statisticsService.recordUsers(1);
         return user;
     }
 
@@ -74,13 +82,16 @@ public class UserService {
         user.setId(userId);
         user.setEnabled(enabled);
         userMapper.updateById(user);
+        userPrincipalCache.invalidateUserId(userId);
     }
 
     /**
      * 删除用户
      */
     public void deleteUser(Long userId) {
-        userMapper.deleteById(userId);
+        if (userMapper.deleteById(userId) > 0) {
+            statisticsService.recordUsers(-1);
+        }
     }
 
     /**
@@ -5,19 +5,30 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gujian.questionnaire.dto.RescoreDTO;
 import com.gujian.questionnaire.dto.SubmitAnswerDTO;
 import com.gujian.questionnaire.dto.BatchSubmitAnswerDTO;
 import com.gujian.questionnaire.entity.AnswerRecord;
 import com.gujian.questionnaire.entity.AnswerSession;
 import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.entity.QuestionSnapshot;
 import com.gujian.questionnaire.common.enums.ErrorCode;
 import com.gujian.questionnaire.exception.BusinessException;
 import com.gujian.questionnaire.mapper.AnswerRecordMapper;
+import com.gujian.questionnaire.service.ActiveSessionStore;
+import com.gujian.questionnaire.service.AnswerKeyCache;
 import com.gujian.questionnaire.service.AnswerRecordService;
 import com.gujian.questionnaire.service.AnswerSessionService;
+import com.gujian.questionnaire.service.AnswerWriteBuffer;
 import com.gujian.questionnaire.service.QuestionBankService;
+import com.gujian.questionnaire.service.QuestionSnapshotService;
+import com.gujian.questionnaire.service.QuestionStatsService;
+import com.gujian.questionnaire.service.RescoreService;
+import com.gujian.questionnaire.service.StatisticsService;
+import com.gujian.questionnaire.utils.DuplicateKeyUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -25,11 +36,13 @@ import org.springframework.util.StringUtils;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.ArrayList;
 import java.util.Set;
-import java.util.HashSet;
 
 /**
  * 答题记录服务实现类
@@ -39,6 +52,16 @@ import java.util.HashSet;
 public class AnswerRecordServiceImpl extends ServiceImpl<AnswerRecordMapper, AnswerRecord>
         implements AnswerRecordService {
 
+    /**
+     * 单条多值INSERT的最大行数
+     */
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    /**
+     * 客户端幂等键最大长度（与 answer_record.idempotency_key 列一致）
+     */
+    private static final int IDEMPOTENCY_KEY_MAX_LENGTH = 64;
+
     @Autowired
     private AnswerSessionService answerSessionService;
 
@@ -48,11 +71,32 @@ public class AnswerRecordServiceImpl extends ServiceImpl<AnswerRecordMapper, Ans
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private QuestionStatsService questionStatsService;
+
+    @Autowired
+    private AnswerWriteBuffer answerWriteBuffer;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private ActiveSessionStore activeSessionStore;
+
+    @Autowired
+    private RescoreService rescoreService;
+
+    @Autowired
+    private QuestionSnapshotService questionSnapshotService;
+
     @Override
     @Transactional
     public AnswerRecord submitAnswer(SubmitAnswerDTO submitAnswerDTO, Long userId) {
         // 1. 验证会话
-        AnswerSession session = answerSessionService.getSessionByCode(submitAnswerDTO.getSessionCode());
+        AnswerSession session = answerSessionService.getActiveSession(submitAnswerDTO.getSessionCode());
         if (!session.getUserId().equals(userId)) {
             throw new BusinessException(ErrorCode.SESSION_PERMISSION_DENIED);
         }
@@ -72,16 +116,22 @@ public class AnswerRecordServiceImpl extends ServiceImpl<AnswerRecordMapper, Ans
             throw new BusinessException(ErrorCode.QUESTION_NOT_FOUND);
         }
 
-        // 4. 检查是否已答过此题
-        AnswerRecord existingRecord = lambdaQuery()
-                .eq(AnswerRecord::getSessionId, session.getId())
-                .eq(AnswerRecord::getQuestionId, submitAnswerDTO.getQuestionId())
-                .one();
+        String idempotencyKey = StringUtils.hasText(submitAnswerDTO.getIdempotencyKey())
+                ? submitAnswerDTO.getIdempotencyKey().trim() : null;
+        if (idempotencyKey != null && idempotencyKey.length() > IDEMPOTENCY_KEY_MAX_LENGTH) {
+            throw new BusinessException(ErrorCode.PARAMETER_INVALID, "幂等键长度不能超过" + IDEMPOTENCY_KEY_MAX_LENGTH);
+        }
 
-        if (existingRecord != null) {
-            // 如果是批量提交时遇到已提交的答案，返回已存在的记录
-            log.info("题目{}已提交过答案，返回已存在记录", submitAnswerDTO.getQuestionId());
-            return existingRecord;
+        // 4. 开启写后缓冲时记录异步入库，需先检查是否已答过此题或幂等键已使用（待入库记录在提交缓冲时原子检查）；
+        //    否则直接插入，由唯一索引判定重复提交
+        if (answerWriteBuffer.isEnabled()) {
+            AnswerRecord existingRecord = findExisting(session.getId(), submitAnswerDTO.getQuestionId(),
+                    idempotencyKey, false);
+            if (existingRecord != null) {
+                log.info("题目{}已提交过答案，返回已存在记录", submitAnswerDTO.getQuestionId());
+                questionSnapshotService.fillSnapshots(Collections.singletonList(existingRecord));
+                return existingRecord;
+            }
         }
 
         // 5. 创建答题记录
@@ -89,11 +139,10 @@ public class AnswerRecordServiceImpl extends ServiceImpl<AnswerRecordMapper, Ans
         answerRecord.setSessionId(session.getId());
         answerRecord.setQuestionId(submitAnswerDTO.getQuestionId());
         answerRecord.setQuestionType(question.getType());
-        answerRecord.setQuestionContent(question.getTitle() + "\n" + question.getContent());
-        answerRecord.setQuestionOptions(question.getOptions());
-        answerRecord.setCorrectAnswer(question.getCorrectAnswer());
+        applySnapshot(answerRecord, questionSnapshotService.resolve(question));
         answerRecord.setTimeSpentSeconds(submitAnswerDTO.getTimeSpentSeconds());
         answerRecord.setAnswerTime(LocalDateTime.now());
+        answerRecord.setIdempotencyKey(idempotencyKey);
 
         // 6. 处理用户答案
         String userAnswer;
@@ -105,15 +154,24 @@ public class AnswerRecordServiceImpl extends ServiceImpl<AnswerRecordMapper, Ans
         }
         answerRecord.setUserAnswer(userAnswer);
 
-        // 7. 获取下一题序号
-        Integer nextSequence = baseMapper.getNextSequenceNumber(session.getId());
-        answerRecord.setSequenceNumber(nextSequence);
+        // 7. 从会话计数器分配下一题序号
+        answerRecord.setSequenceNumber(allocateSequence(session, 1, false));
 
         // 8. 自动评分
         autoScore(answerRecord, question);
 
-        // 9. 保存答题记录
-        save(answerRecord);
+        // 9. 保存答题记录（开启写后缓冲时写入WAL后返回，由后台批量入库）
+        AnswerRecord existingRecord = answerWriteBuffer.isEnabled()
+                ? answerWriteBuffer.submitIfAbsent(answerRecord)
+                : insertIdempotent(session, answerRecord);
+        if (existingRecord != null) {
+            // 重复点击或客户端重试，返回已存在的记录
+            log.info("题目{}已提交过答案，返回已存在记录", submitAnswerDTO.getQuestionId());
+            questionSnapshotService.fillSnapshots(Collections.singletonList(existingRecord));
+            return existingRecord;
+        }
+        statisticsService.recordAnswers(1);
+        questionStatsService.recordAnswers(Collections.singletonList(answerRecord));
 
         // 10. 记录答题日志
         log.info("用户{}提交答案: 会话={}, 题目={}, 得分={}",
@@ -161,7 +219,9 @@ public class AnswerRecordServiceImpl extends ServiceImpl<AnswerRecordMapper, Ans
 
     @Override
     public List<AnswerRecord> getSessionRecords(Long sessionId) {
+        answerWriteBuffer.flushSession(sessionId);
         List<AnswerRecord> records = baseMapper.selectBySessionId(sessionId);
+        questionSnapshotService.fillSnapshots(records);
         records.forEach(this::processAnswerRecord);
         return records;
     }
@@ -171,6 +231,7 @@ public class AnswerRecordServiceImpl extends ServiceImpl<AnswerRecordMapper, Ans
         Page<AnswerRecord> page = new Page<>(current, size);
         IPage<AnswerRecord> result = baseMapper.selectNeedScoringPage(page);
 
+        questionSnapshotService.fillSnapshots(result.getRecords());
         result.getRecords().forEach(this::processAnswerRecord);
         return result;
     }
@@ -191,7 +252,7 @@ public class AnswerRecordServiceImpl extends ServiceImpl<AnswerRecordMapper, Ans
         String correctAnswer = question.getCorrectAnswer();
 
         // 添加调试日志
-        log.info("自动评分 - 题目ID: {}, 题型: {}, 用户答案: '{}', 正确答案: '{}'",
+        log.debug("自动评分 - 题目ID: {}, 题型: {}, 用户答案: '{}', 正确答案: '{}'",
                 question.getId(), questionType, userAnswer, correctAnswer);
 
         if (!StringUtils.hasText(userAnswer) || !StringUtils.hasText(correctAnswer)) {
@@ -201,26 +262,15 @@ public class AnswerRecordServiceImpl extends ServiceImpl<AnswerRecordMapper, Ans
             return true;
         }
 
-        boolean isCorrect = false;
-
-        switch (questionType) {
-            case 1: // 单选题
-                isCorrect = compareSingleChoice(userAnswer, correctAnswer, question);
-                break;
-            case 2: // 多选题
-                isCorrect = compareMultipleChoice(userAnswer, correctAnswer, question);
-                break;
-            case 3: // 填空题
-                isCorrect = compareFillBlank(userAnswer, correctAnswer);
-                break;
-            case 5: // 评分题（类似单选题）
-                isCorrect = compareSingleChoice(userAnswer, correctAnswer, question);
-                break;
-            default:
-                return false;
+        // 单选/多选/填空/评分题之外的题型不支持自动评分
+        if (questionType != 1 && questionType != 2 && questionType != 3 && questionType != 5) {
+            return false;
         }
 
-        log.info("自动评分结果 - 题目ID: {}, 是否正确: {}", question.getId(), isCorrect);
+        // 预编译答案按题目ID+更新时间缓存，评分只做位掩码/字符串比较
+        boolean isCorrect = answerKeyCache.get(question).matches(userAnswer);
+
+        log.debug("自动评分结果 - 题目ID: {}, 是否正确: {}", question.getId(), isCorrect);
 
         answerRecord.setIsCorrect(isCorrect);
         answerRecord.setAutoScore(isCorrect ? question.getScore() : 0);
@@ -233,25 +283,18 @@ public class AnswerRecordServiceImpl extends ServiceImpl<AnswerRecordMapper, Ans
     public AnswerRecord getRecordDetail(Long recordId) {
         AnswerRecord record = getById(recordId);
         if (record != null) {
+            questionSnapshotService.fillSnapshots(Collections.singletonList(record));
             processAnswerRecord(record);
         }
         return record;
     }
 
     @Override
-    @Transactional
     public boolean batchAutoScore(Long sessionId) {
-        List<AnswerRecord> records = baseMapper.selectBySessionId(sessionId);
-        for (AnswerRecord record : records) {
-            if (record.getQuestionType() == 4) { // 只跳过简答题
-                continue;
-            }
-            QuestionBank question = questionBankService.getQuestionDetail(record.getQuestionId());
-            if (question != null) {
-                autoScore(record, question);
-                updateById(record);
-            }
-        }
+        // 复用重新评分引擎：只写回变化的记录（保留人工评分）并重新汇总会话总分
+        RescoreDTO scope = new RescoreDTO();
+        scope.setSessionId(sessionId);
+        rescoreService.rescoreNow(scope);
         return true;
     }
 
@@ -264,7 +307,7 @@ public class AnswerRecordServiceImpl extends ServiceImpl<AnswerRecordMapper, Ans
     @Transactional
     public List<AnswerRecord> batchSubmitAnswers(BatchSubmitAnswerDTO batchSubmitDTO, Long userId) {
         // 1. 验证会话
-        AnswerSession session = answerSessionService.getSessionByCode(batchSubmitDTO.getSessionCode());
+        AnswerSession session = answerSessionService.getActiveSession(batchSubmitDTO.getSessionCode());
         if (!session.getUserId().equals(userId)) {
             throw new BusinessException(ErrorCode.SESSION_PERMISSION_DENIED);
         }
@@ -278,249 +321,202 @@ public class AnswerRecordServiceImpl extends ServiceImpl<AnswerRecordMapper, Ans
             throw new BusinessException(ErrorCode.SESSION_TIMEOUT);
         }
 
-        List<AnswerRecord> records = new ArrayList<>();
-
-        // 3. 批量处理每道题的答案
-        for (BatchSubmitAnswerDTO.AnswerDTO answerDTO : batchSubmitDTO.getAnswers()) {
-            // 验证题目
-            QuestionBank question = questionBankService.getQuestionDetail(answerDTO.getQuestionId());
-            if (question == null) {
-                throw new BusinessException(ErrorCode.QUESTION_NOT_FOUND);
-            }
+        List<BatchSubmitAnswerDTO.AnswerDTO> answers = batchSubmitDTO.getAnswers();
+        if (answers == null || answers.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-            // 检查是否已答过此题
-            AnswerRecord existingRecord = lambdaQuery()
-                    .eq(AnswerRecord::getSessionId, session.getId())
-                    .eq(AnswerRecord::getQuestionId, answerDTO.getQuestionId())
-                    .one();
+        // 3. 经题目缓存批量加载所有涉及的题目
+        Set<Long> questionIds = answers.stream()
+                .map(BatchSubmitAnswerDTO.AnswerDTO::getQuestionId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, QuestionBank> questionMap = questionBankService.getQuestionDetails(questionIds);
+        if (questionMap.size() < questionIds.size()) {
+            throw new BusinessException(ErrorCode.QUESTION_NOT_FOUND);
+        }
 
+        // 4. 一次查询加载本会话中已作答的题目
+        Map<Long, AnswerRecord> answeredMap = lambdaQuery()
+                .eq(AnswerRecord::getSessionId, session.getId())
+                .in(AnswerRecord::getQuestionId, questionIds)
+                .list()
+                .stream()
+                .collect(Collectors.toMap(AnswerRecord::getQuestionId, Function.identity(), (a, b) -> a));
+        for (AnswerRecord pendingRecord : answerWriteBuffer.getPendingRecords(session.getId())) {
+            answeredMap.putIfAbsent(pendingRecord.getQuestionId(), pendingRecord);
+        }
+
+        // 5. 内存中评分，已作答（含本次请求内重复）的题目返回已有记录
+        LocalDateTime now = LocalDateTime.now();
+        List<AnswerRecord> records = new ArrayList<>(answers.size());
+        List<AnswerRecord> newRecords = new ArrayList<>();
+        for (BatchSubmitAnswerDTO.AnswerDTO answerDTO : answers) {
+            AnswerRecord existingRecord = answeredMap.get(answerDTO.getQuestionId());
             if (existingRecord != null) {
                 records.add(existingRecord);
                 continue;
             }
 
+            QuestionBank question = questionMap.get(answerDTO.getQuestionId());
+
             // 创建答题记录
             AnswerRecord answerRecord = new AnswerRecord();
             answerRecord.setSessionId(session.getId());
             answerRecord.setQuestionId(answerDTO.getQuestionId());
             answerRecord.setQuestionType(question.getType());
-            answerRecord.setQuestionContent(question.getTitle() + "\n" + question.getContent());
-            answerRecord.setQuestionOptions(question.getOptions());
-            answerRecord.setCorrectAnswer(question.getCorrectAnswer());
+            applySnapshot(answerRecord, questionSnapshotService.resolve(question));
             answerRecord.setTimeSpentSeconds(answerDTO.getTimeSpentSeconds());
-            answerRecord.setAnswerTime(LocalDateTime.now());
+            answerRecord.setAnswerTime(now);
             answerRecord.setUserAnswer(answerDTO.getUserAnswer());
 
-            // 获取序号
-            Integer nextSequence = baseMapper.getNextSequenceNumber(session.getId());
-            answerRecord.setSequenceNumber(nextSequence);
-
             // 自动评分
             autoScore(answerRecord, question);
 
-            // 保存答题记录
-            save(answerRecord);
+            answeredMap.put(answerRecord.getQuestionId(), answerRecord);
+            newRecords.add(answerRecord);
             records.add(answerRecord);
         }
 
-        log.info("用户{}批量提交答案: 会话={}, 题目数量={}",
-                userId, batchSubmitDTO.getSessionCode(), records.size());
-
-        return records;
-    }
-
-    private boolean compareMultipleChoice(String userAnswer, String correctAnswer, QuestionBank question) {
-        if (userAnswer == null || correctAnswer == null) {
-            return false;
-        }
-
-        List<String> userAnswers = Arrays.asList(userAnswer.trim().split(","));
-        List<String> correctAnswers = Arrays.asList(correctAnswer.trim().split(","));
-
-        // 去除空格并排序
-        userAnswers = userAnswers.stream().map(String::trim).sorted().collect(Collectors.toList());
-        correctAnswers = correctAnswers.stream().map(String::trim).sorted().collect(Collectors.toList());
-
-        // 方法1: 直接比较（忽略大小写）
-        if (userAnswers.size() == correctAnswers.size()) {
-            boolean directMatch = true;
-            for (int i = 0; i < userAnswers.size(); i++) {
-                if (!userAnswers.get(i).equalsIgnoreCase(correctAnswers.get(i))) {
-                    directMatch = false;
-                    break;
-                }
-            }
-            if (directMatch) {
-                return true;
+        // 6. 从会话计数器一次分配全部新记录的连续序号
+        if (!newRecords.isEmpty()) {
+            int nextSequence = allocateSequence(session, newRecords.size(), false);
+            for (AnswerRecord answerRecord : newRecords) {
+                answerRecord.setSequenceNumber(nextSequence++);
             }
         }
 
-        // 方法2: 智能转换比较（处理字母格式 vs 选项内容格式）
-        List<String> options = new ArrayList<>();
-        if (StringUtils.hasText(question.getOptions())) {
+        // 7. 多值INSERT批量保存，回填自增ID（开启写后缓冲时写入WAL后返回，由后台批量入库）
+        if (answerWriteBuffer.isEnabled()) {
+            answerWriteBuffer.submit(newRecords);
+        } else {
             try {
-                options = objectMapper.readValue(
-                        question.getOptions(),
-                        new TypeReference<List<String>>() {
-                        });
-
-                // 转换用户答案为统一格式（都转换为字母）
-                Set<String> userLetters = convertToLetters(userAnswers, options);
-                Set<String> correctLetters = convertToLetters(correctAnswers, options);
-
-                return userLetters.equals(correctLetters);
-
-            } catch (Exception e) {
-                log.error("解析题目选项失败: {}", e.getMessage());
+                insertRecords(session, newRecords);
+            } catch (DuplicateKeyException e) {
+                // 其中部分题目被并发提交：逐条插入，已存在的题目返回已有记录
+                log.warn("批量提交的题目已被并发提交，改为逐条入库: 会话={}", batchSubmitDTO.getSessionCode());
+                newRecords = insertRemaining(session, records, newRecords);
             }
         }
+        statisticsService.recordAnswers(newRecords.size());
+        questionStatsService.recordAnswers(newRecords);
 
-        return false;
-    }
+        log.info("用户{}批量提交答案: 会话={}, 题目数量={}",
+                userId, batchSubmitDTO.getSessionCode(), records.size());
 
-    private Set<String> convertToLetters(List<String> answers, List<String> options) {
-        Set<String> letters = new HashSet<>();
+        // 已提交过的题目返回的是数据库中的记录，补充快照内容
+        questionSnapshotService.fillSnapshots(records.stream()
+                .filter(record -> record.getQuestionContent() == null)
+                .collect(Collectors.toList()));
+        return records;
+    }
 
-        for (String answer : answers) {
-            String trimmed = answer.trim();
+    /**
+     * 分配 count 个会话内连续的答题序号，返回第一个
+     * 计数器不存在时以数据库和写后缓冲中已用的最大序号初始化
+     */
+    private int allocateSequence(AnswerSession session, int count, boolean resync) {
+        return activeSessionStore.allocateSequence(session.getSessionCode(), count,
+                () -> answerWriteBuffer.nextSequenceNumber(session.getId(),
+                        baseMapper.getNextSequenceNumber(session.getId())) - 1,
+                resync);
+    }
 
-            // 如果已经是字母格式
-            if (trimmed.matches("^[A-Za-z]$")) {
-                letters.add(trimmed.toUpperCase());
-            } else {
-                // 如果是选项内容，找到对应的字母
-                for (int i = 0; i < options.size(); i++) {
-                    if (options.get(i).trim().equalsIgnoreCase(trimmed)) {
-                        letters.add(String.valueOf((char) ('A' + i)));
-                        break;
-                    }
-                }
+    /**
+     * 插入单条答题记录，重复提交由 (session_id, question_id) 和 (session_id, idempotency_key) 唯一索引判定
+     * @return 重复提交时返回已有记录（加共享锁读取，可见并发事务刚提交的记录），插入成功返回null
+     */
+    private AnswerRecord insertIdempotent(AnswerSession session, AnswerRecord answerRecord) {
+        try {
+            insertRecords(session, Collections.singletonList(answerRecord));
+            return null;
+        } catch (DuplicateKeyException e) {
+            AnswerRecord existing = findExisting(answerRecord.getSessionId(), answerRecord.getQuestionId(),
+                    answerRecord.getIdempotencyKey(), true);
+            if (existing == null) {
+                throw e;
             }
+            return existing;
         }
-
-        return letters;
     }
 
-    private boolean compareFillBlank(String userAnswer, String correctAnswer) {
-        if (!StringUtils.hasText(userAnswer) || !StringUtils.hasText(correctAnswer)) {
-            return false;
+    /**
+     * 查询会话中已入库的同一请求（按幂等键）或同一题目的记录
+     * @param lock 是否加共享锁读取（可见并发事务刚提交的记录）
+     */
+    private AnswerRecord findExisting(Long sessionId, Long questionId, String idempotencyKey, boolean lock) {
+        AnswerRecord existing = null;
+        if (idempotencyKey != null) {
+            existing = lambdaQuery()
+                    .eq(AnswerRecord::getSessionId, sessionId)
+                    .eq(AnswerRecord::getIdempotencyKey, idempotencyKey)
+                    .last(lock, "LOCK IN SHARE MODE")
+                    .one();
         }
-
-        String userTrimmed = userAnswer.trim();
-        String correctTrimmed = correctAnswer.trim();
-
-        // 方法1: 忽略大小写的完全匹配
-        if (userTrimmed.equalsIgnoreCase(correctTrimmed)) {
-            return true;
+        if (existing == null) {
+            existing = lambdaQuery()
+                    .eq(AnswerRecord::getSessionId, sessionId)
+                    .eq(AnswerRecord::getQuestionId, questionId)
+                    .last(lock, "LOCK IN SHARE MODE")
+                    .one();
         }
+        return existing;
+    }
 
-        // 方法2: 支持多个正确答案（用分隔符分开）
-        String[] correctAnswers = correctTrimmed.split("[,，;；|、]");
-        for (String correct : correctAnswers) {
-            if (userTrimmed.equalsIgnoreCase(correct.trim())) {
-                return true;
+    /**
+     * 批量插入因重复失败后，逐条插入尚未入库的记录，已存在的题目在结果中替换为已有记录
+     * @return 实际新插入的记录
+     */
+    private List<AnswerRecord> insertRemaining(AnswerSession session, List<AnswerRecord> records,
+                                               List<AnswerRecord> newRecords) {
+        List<AnswerRecord> inserted = new ArrayList<>(newRecords.size());
+        for (AnswerRecord answerRecord : newRecords) {
+            // 已回填ID的是失败前已成功入库的批次
+            if (answerRecord.getId() != null) {
+                inserted.add(answerRecord);
+                continue;
             }
-        }
-
-        // 方法3: 多答案对比（用户答案和正确答案都可能包含多个部分）
-        if (correctAnswers.length > 1) {
-            String[] userAnswers = userTrimmed.split("[,，;；|、]");
-            if (userAnswers.length > 1) {
-                // 将两边的答案都转换为标准化的集合进行比较
-                Set<String> userSet = Arrays.stream(userAnswers)
-                        .map(String::trim)
-                        .map(String::toLowerCase)
-                        .filter(s -> !s.isEmpty())
-                        .collect(Collectors.toSet());
-
-                Set<String> correctSet = Arrays.stream(correctAnswers)
-                        .map(String::trim)
-                        .map(String::toLowerCase)
-                        .filter(s -> !s.isEmpty())
-                        .collect(Collectors.toSet());
-
-                if (userSet.equals(correctSet)) {
-                    return true;
-                }
+            AnswerRecord existing = insertIdempotent(session, answerRecord);
+            if (existing == null) {
+                inserted.add(answerRecord);
+            } else {
+                records.replaceAll(record -> record == answerRecord ? existing : record);
             }
         }
-
-        // 方法4: 数字答案的相等性检查（忽略前导零等）
-        try {
-            double userNum = Double.parseDouble(userTrimmed);
-            double correctNum = Double.parseDouble(correctTrimmed);
-            return Math.abs(userNum - correctNum) < 0.0001; // 允许微小的浮点误差
-        } catch (NumberFormatException e) {
-            // 不是数字，继续其他检查
-        }
-
-        return false;
+        return inserted;
     }
 
-    private boolean compareSingleChoice(String userAnswer, String correctAnswer, QuestionBank question) {
-        if (!StringUtils.hasText(userAnswer) || !StringUtils.hasText(correctAnswer)) {
-            return false;
-        }
-
-        String userOption = userAnswer.trim();
-        String correctOption = correctAnswer.trim();
-
-        // 方法1: 直接比较（最常见情况）
-        if (userOption.equalsIgnoreCase(correctOption)) {
-            return true;
-        }
-
-        // 方法2: 字母与选项内容的智能转换比较
-        List<String> options = new ArrayList<>();
-        if (StringUtils.hasText(question.getOptions())) {
+    /**
+     * 分批多值INSERT保存答题记录
+     * 序号与已有记录冲突（计数器丢失后重建）时校正计数器，为该批重新分配序号后重试一次；
+     * 其他唯一索引冲突（重复提交）直接抛出，由调用方处理
+     */
+    private void insertRecords(AnswerSession session, List<AnswerRecord> records) {
+        for (int from = 0; from < records.size(); from += INSERT_BATCH_SIZE) {
+            List<AnswerRecord> batch = records.subList(from, Math.min(from + INSERT_BATCH_SIZE, records.size()));
             try {
-                options = objectMapper.readValue(
-                        question.getOptions(),
-                        new TypeReference<List<String>>() {
-                        });
-
-                // 如果用户答案是字母格式（A, B, C...）
-                if (userOption.matches("^[A-Za-z]$")) {
-                    int optionIndex = userOption.toUpperCase().charAt(0) - 'A';
-                    if (optionIndex >= 0 && optionIndex < options.size()) {
-                        String optionContent = options.get(optionIndex).trim();
-                        if (optionContent.equalsIgnoreCase(correctOption)) {
-                            return true;
-                        }
-                    }
-                }
-
-                // 如果正确答案是字母格式，用户答案是内容格式
-                if (correctOption.matches("^[A-Za-z]$")) {
-                    int correctIndex = correctOption.toUpperCase().charAt(0) - 'A';
-                    if (correctIndex >= 0 && correctIndex < options.size()) {
-                        String correctContent = options.get(correctIndex).trim();
-                        if (correctContent.equalsIgnoreCase(userOption)) {
-                            return true;
-                        }
-                    }
-                }
-
-                // 如果都是内容格式，通过选项列表找到对应的字母进行比较
-                int userIndex = -1, correctIndex = -1;
-                for (int i = 0; i < options.size(); i++) {
-                    if (options.get(i).trim().equalsIgnoreCase(userOption)) {
-                        userIndex = i;
-                    }
-                    if (options.get(i).trim().equalsIgnoreCase(correctOption)) {
-                        correctIndex = i;
-                    }
+                baseMapper.insertBatch(batch);
+            } catch (DuplicateKeyException e) {
+                if (!DuplicateKeyUtils.isViolated(e, AnswerRecordMapper.UK_SESSION_SEQUENCE)) {
+                    throw e;
                 }
-                if (userIndex >= 0 && correctIndex >= 0 && userIndex == correctIndex) {
-                    return true;
+                log.warn("答题序号冲突，校正会话计数器后重试: 会话={}, 错误={}", session.getSessionCode(), e.getMessage());
+                int nextSequence = allocateSequence(session, batch.size(), true);
+                for (AnswerRecord answerRecord : batch) {
+                    answerRecord.setSequenceNumber(nextSequence++);
                 }
-
-            } catch (Exception e) {
-                log.error("解析题目选项失败: {}", e.getMessage());
+                baseMapper.insertBatch(batch);
             }
         }
+    }
 
-        return false;
+    /**
+     * 答题记录引用题目快照，并带上快照内容用于本次响应（不入库）
+     */
+    private static void applySnapshot(AnswerRecord record, QuestionSnapshot snapshot) {
+        record.setSnapshotId(snapshot.getId());
+        record.setQuestionContent(snapshot.getContent());
+        record.setQuestionOptions(snapshot.getOptions());
+        record.setCorrectAnswer(snapshot.getCorrectAnswer());
     }
 
     private void processAnswerRecord(AnswerRecord record) {
@@ -5,7 +5,10 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.gujian.questionnaire.common.enums.ErrorCode;
+import com.gujian.questionnaire.dto.CursorPageVO;
 import com.gujian.questionnaire.dto.StartAnswerDTO;
 import com.gujian.questionnaire.dto.SubmitAnswerDTO;
 import com.gujian.questionnaire.entity.AnswerSession;
@@ -14,24 +17,36 @@ import com.gujian.questionnaire.entity.QuestionBank;
 import com.gujian.questionnaire.exception.BusinessException;
 import com.gujian.questionnaire.mapper.AnswerSessionMapper;
 import com.gujian.questionnaire.mapper.AnswerRecordMapper;
-import com.gujian.questionnaire.mapper.QuestionBankMapper;
+import com.gujian.questionnaire.mapper.AnswerSessionQuestionMapper;
+import com.gujian.questionnaire.service.ActiveSessionStore;
 import com.gujian.questionnaire.service.AnswerSessionService;
+import com.gujian.questionnaire.service.AnswerWriteBuffer;
 import com.gujian.questionnaire.service.QuestionBankService;
+import com.gujian.questionnaire.service.SessionTimeoutScheduler;
+import com.gujian.questionnaire.service.StatisticsService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
 import com.gujian.questionnaire.security.UserPrincipal;
 import com.gujian.questionnaire.utils.UserContextUtils;
 import com.gujian.questionnaire.dto.SessionStatusVO;
 import com.gujian.questionnaire.dto.QuestionVO;
-import com.gujian.questionnaire.utils.JsonUtils;
+import com.gujian.questionnaire.dto.SessionBundleVO;
+import com.gujian.questionnaire.utils.KeysetCursor;
+import com.gujian.questionnaire.utils.TransactionUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.HashMap;
@@ -44,6 +59,11 @@ import java.util.HashMap;
 public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, AnswerSession>
         implements AnswerSessionService {
 
+    /**
+     * 超时兜底扫描每批处理的会话数
+     */
+    private static final int TIMEOUT_BATCH_SIZE = 500;
+
     @Autowired
     private AnswerSessionMapper answerSessionMapper;
 
@@ -57,7 +77,40 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
     private AnswerRecordMapper answerRecordMapper;
 
     @Autowired
-    private QuestionBankMapper questionBankMapper;
+    private AnswerSessionQuestionMapper answerSessionQuestionMapper;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private SessionTimeoutScheduler sessionTimeoutScheduler;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AnswerWriteBuffer answerWriteBuffer;
+
+    @Autowired
+    private ActiveSessionStore activeSessionStore;
+
+    /**
+     * 会话题目顺序缓存（会话ID -> 题目ID列表）
+     * 题目顺序在会话创建后不再变化，按最长答题时长保留
+     */
+    private final Cache<Long, List<Long>> sessionQuestionCache = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(3, TimeUnit.HOURS)
+            .build();
+
+    /**
+     * 会话题目包缓存（会话ID -> 全部题目）
+     * 短时过期，使管理员修改题目后的内容能在答题过程中生效
+     */
+    private final Cache<Long, SessionBundleVO> sessionBundleCache = Caffeine.newBuilder()
+            .maximumSize(2_000)
+            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .build();
 
     @Override
     @Transactional
@@ -69,6 +122,9 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
             existingSession.setStatus(4); // 已放弃
             existingSession.setEndTime(LocalDateTime.now());
             updateById(existingSession);
+            statisticsService.recordSessionTransition(1, 4);
+            sessionTimeoutScheduler.cancel(existingSession.getId());
+            activeSessionStore.put(existingSession);
             log.info("用户{}开始新会话，自动放弃旧会话: {}", userId, existingSession.getSessionCode());
         }
 
@@ -106,6 +162,14 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
         session.setTotalScore(totalScore);
 
         save(session);
+        statisticsService.recordSessionTransition(null, 1);
+        sessionTimeoutScheduler.schedule(session);
+        activeSessionStore.put(session);
+
+        // 题目顺序写入 answer_session_question（单条批量INSERT），并放入缓存
+        answerSessionQuestionMapper.insertBatch(session.getId(), questionIds);
+        List<Long> cachedIds = Collections.unmodifiableList(questionIds);
+        TransactionUtils.afterCommit(() -> sessionQuestionCache.put(session.getId(), cachedIds));
 
         // 手动设置 stateData 到数据库（解决 JacksonTypeHandler 可能的问题）
         try {
@@ -117,10 +181,6 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
                     session.getId(), questionIds, startAnswerDTO.getQuestionTypes());
             answerSessionMapper.updateStateData(session.getId(), stateData);
             log.info("手动更新 stateData 成功: sessionId={}", session.getId());
-
-            // 验证更新结果
-            List<Long> retrievedIds = answerSessionMapper.getQuestionIdsFromStateData(session.getSessionCode());
-            log.info("验证数据存储: 获取到的题目ID列表: {}", retrievedIds);
         } catch (Exception e) {
             log.error("手动更新 stateData 失败: {}", e.getMessage(), e);
         }
@@ -150,6 +210,9 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
                 session.setStatus(3); // 已超时
                 session.setEndTime(now);
                 updateById(session);
+                statisticsService.recordSessionTransition(1, 3);
+                sessionTimeoutScheduler.cancel(session.getId());
+                activeSessionStore.put(session);
                 return null; // 返回null表示没有可用的会话
             }
         }
@@ -181,6 +244,18 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
         return session;
     }
 
+    /**
+     * 从活跃会话缓存获取会话快照，未命中时回源数据库
+     */
+    @Override
+    public AnswerSession getActiveSession(String sessionCode) {
+        AnswerSession session = activeSessionStore.get(sessionCode);
+        if (session == null) {
+            throw new BusinessException(ErrorCode.SESSION_NOT_FOUND);
+        }
+        return session;
+    }
+
     @Override
     @Transactional
     public boolean finishSession(String sessionCode, Long userId) {
@@ -193,9 +268,18 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
             throw new BusinessException(ErrorCode.SESSION_ALREADY_FINISHED);
         }
 
+        // 等待写后缓冲中本会话的答案入库
+        answerWriteBuffer.flushSession(session.getId());
+
         session.setStatus(2); // 已完成
         session.setEndTime(LocalDateTime.now());
-        return updateById(session);
+        boolean updated = updateById(session);
+        if (updated) {
+            statisticsService.recordSessionTransition(1, 2);
+            sessionTimeoutScheduler.cancel(session.getId());
+            activeSessionStore.put(session);
+        }
+        return updated;
     }
 
     @Override
@@ -226,13 +310,21 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
         }
 
         // 更新状态
+        Integer oldStatus = session.getStatus();
         session.setStatus(status);
         if (status == 2 || status == 3 || status == 4 || status == 5) { // 已完成/已超时/已放弃/异常结束
             session.setEndTime(LocalDateTime.now());
         }
         updateById(session);
+        statisticsService.recordSessionTransition(oldStatus, status);
+        if (status == 1) {
+            sessionTimeoutScheduler.schedule(session);
+        } else {
+            sessionTimeoutScheduler.cancel(session.getId());
+        }
+        activeSessionStore.put(session);
 
-        log.info("更新会话{}状态: {} -> {}", sessionCode, session.getStatus(), status);
+        log.info("更新会话{}状态: {} -> {}", sessionCode, oldStatus, status);
     }
 
     @Override
@@ -248,6 +340,33 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
         return answerSessionMapper.selectSessionPageWithFilters(page, userName, status, startTime, endTime);
     }
 
+    @Override
+    public CursorPageVO<AnswerSession> getUserSessionCursorPage(String cursor, int size, Long userId, Integer status,
+                                                                boolean withTotal) {
+        return sessionSeek(cursor, size, userId, null, status, null, null, withTotal);
+    }
+
+    @Override
+    public CursorPageVO<AnswerSession> getAllSessionCursorPage(String cursor, int size, String userName,
+                                                               Integer status, String startTime, String endTime,
+                                                               boolean withTotal) {
+        return sessionSeek(cursor, size, null, userName, status, startTime, endTime, withTotal);
+    }
+
+    private CursorPageVO<AnswerSession> sessionSeek(String cursor, int size, Long userId, String userName,
+                                                    Integer status, String startTime, String endTime,
+                                                    boolean withTotal) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
+        // 多取一行判断是否还有下一页
+        List<AnswerSession> rows = answerSessionMapper.selectSessionSeek(userId, userName, status, startTime, endTime,
+                position.getTime(), position.getId(), pageSize + 1);
+        Long total = withTotal
+                ? answerSessionMapper.countSessionSeek(userId, userName, status, startTime, endTime)
+                : null;
+        return KeysetCursor.page(rows, pageSize, AnswerSession::getCreateTime, AnswerSession::getId, total);
+    }
+
     @Override
     public Object getUserStats(Long userId) {
         return answerSessionMapper.getUserStats(userId);
@@ -285,7 +404,7 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
 
     @Override
     public boolean checkSessionTimeout(String sessionCode) {
-        AnswerSession session = getSessionByCode(sessionCode);
+        AnswerSession session = getActiveSession(sessionCode);
         if (session == null || session.getStatus() != 1) {
             return true;
         }
@@ -308,7 +427,12 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
         }
 
         session.setTimeoutMinutes(session.getTimeoutMinutes() + extendMinutes);
-        return updateById(session);
+        boolean updated = updateById(session);
+        if (updated) {
+            sessionTimeoutScheduler.schedule(session);
+            activeSessionStore.put(session);
+        }
+        return updated;
     }
 
     @Override
@@ -318,35 +442,46 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
             return false;
         }
 
+        Integer oldStatus = session.getStatus();
         session.setStatus(2); // 已完成
         session.setEndTime(LocalDateTime.now());
-        return updateById(session);
+        boolean updated = updateById(session);
+        if (updated) {
+            statisticsService.recordSessionTransition(oldStatus, 2);
+            sessionTimeoutScheduler.cancel(session.getId());
+            activeSessionStore.put(session);
+        }
+        return updated;
     }
 
+    /**
+     * 分批将已到期的会话标记为超时：每批在独立事务中锁定最多 TIMEOUT_BATCH_SIZE 个会话ID并以单条UPDATE更新，
+     * 直到没有到期会话，避免长事务和整表加载
+     */
     @Override
-    public int batchCheckTimeout() {
-        LocalDateTime now = LocalDateTime.now();
-
-        // 查找所有可能超时的会话
-        QueryWrapper<AnswerSession> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("status", 1) // 进行中
-                .isNotNull("timeout_minutes")
-                .lt("start_time", now.minusMinutes(1440)); // 最多查找24小时前的会话
-
-        List<AnswerSession> sessions = list(queryWrapper);
-        int count = 0;
-
-        for (AnswerSession session : sessions) {
-            long timeSinceStart = java.time.Duration.between(session.getStartTime(), now).toMinutes();
-            if (timeSinceStart > session.getTimeoutMinutes()) {
-                session.setStatus(3); // 已超时
-                session.setEndTime(now);
-                updateById(session);
-                count++;
+    public List<Long> batchCheckTimeout() {
+        List<Long> expiredIds = new ArrayList<>();
+        while (true) {
+            List<Long> batch = transactionTemplate.execute(status -> {
+                List<Long> ids = answerSessionMapper.selectExpiredIdsForUpdate(TIMEOUT_BATCH_SIZE);
+                if (ids.isEmpty()) {
+                    return ids;
+                }
+                answerSessionMapper.expireSessions(ids);
+                statisticsService.recordSessionTransition(1, 3, ids.size());
+                sessionTimeoutScheduler.cancelAll(ids);
+                activeSessionStore.evictAll(ids);
+                return ids;
+            });
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            expiredIds.addAll(batch);
+            if (batch.size() < TIMEOUT_BATCH_SIZE) {
+                break;
             }
         }
-
-        return count;
+        return expiredIds;
     }
 
     @Override
@@ -367,6 +502,8 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
         if (session.getTimeoutMinutes() != null && timeSinceStart > session.getTimeoutMinutes()) {
             session.setStatus(3); // 已超时
             updateById(session);
+            statisticsService.recordSessionTransition(5, 3);
+            activeSessionStore.put(session);
             throw new BusinessException(ErrorCode.SESSION_TIMEOUT);
         }
 
@@ -374,6 +511,9 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
         session.setStatus(1); // 进行中
         // session.setLastActivityTime(now); // 移除lastActivityTime字段
         updateById(session);
+        statisticsService.recordSessionTransition(5, 1);
+        sessionTimeoutScheduler.schedule(session);
+        activeSessionStore.put(session);
 
         return session;
     }
@@ -386,6 +526,7 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
         }
 
         // 计算总分
+        answerWriteBuffer.flushSession(sessionId);
         List<AnswerRecord> records = answerRecordMapper.selectBySessionId(sessionId);
         int totalScore = records.stream()
                 .mapToInt(AnswerRecord::getFinalScore)
@@ -413,6 +554,24 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
         return false;
     }
 
+    /**
+     * 获取会话的题目ID列表（按出题顺序）
+     * 缓存未命中时按主键范围读取 answer_session_question，空结果不缓存
+     */
+    private List<Long> getSessionQuestionIds(Long sessionId) {
+        List<Long> questionIds = sessionQuestionCache.getIfPresent(sessionId);
+        if (questionIds != null) {
+            return questionIds;
+        }
+
+        questionIds = answerSessionQuestionMapper.selectQuestionIds(sessionId);
+        if (questionIds != null && !questionIds.isEmpty()) {
+            questionIds = Collections.unmodifiableList(questionIds);
+            sessionQuestionCache.put(sessionId, questionIds);
+        }
+        return questionIds;
+    }
+
     /**
      * 生成会话编码
      */
@@ -442,10 +601,7 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
     public SessionStatusVO getSessionStatus(String sessionCode) {
         try {
             // 获取会话信息
-            AnswerSession session = answerSessionMapper.selectBySessionCode(sessionCode);
-            if (session == null) {
-                throw new BusinessException(ErrorCode.SESSION_NOT_FOUND);
-            }
+            AnswerSession session = getActiveSession(sessionCode);
 
             // 计算剩余时间
             int remainingTime = 0;
@@ -477,11 +633,7 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
         log.info("获取题目: sessionCode={}, index={}", sessionCode, index);
 
         // 获取会话信息
-        AnswerSession session = answerSessionMapper.selectBySessionCode(sessionCode);
-        if (session == null) {
-            log.error("会话不存在: sessionCode={}", sessionCode);
-            throw new BusinessException(ErrorCode.SESSION_NOT_FOUND);
-        }
+        AnswerSession session = getActiveSession(sessionCode);
 
         log.info("会话信息: id={}, questionTypes={}, totalCount={}",
                 session.getId(),
@@ -494,9 +646,8 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
             throw new BusinessException(ErrorCode.INVALID_QUESTION_INDEX);
         }
 
-        // 从数据库中直接获取题目ID列表
-        List<Long> questionIds = answerSessionMapper.getQuestionIdsFromStateData(sessionCode);
-        log.info("从数据库直接获取到题目ID列表: {}", questionIds);
+        // 获取会话题目顺序（优先读缓存）
+        List<Long> questionIds = getSessionQuestionIds(session.getId());
 
         if (questionIds == null || questionIds.isEmpty()) {
             log.error("会话题目ID列表为空: sessionCode={}", sessionCode);
@@ -516,22 +667,66 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
             throw new BusinessException(ErrorCode.QUESTION_NOT_FOUND);
         }
 
-        QuestionBank question = questionBankMapper.selectById(questionId);
+        QuestionBank question = questionBankService.getQuestionDetail(questionId);
         log.info("查询到的题目: {}", question);
 
-        if (question == null) {
-            log.error("题目不存在: questionId={}", questionId);
+        return toQuestionVO(question);
+    }
+
+    /**
+     * 获取会话全部题目
+     * 经题目缓存批量加载所有题目，结果按会话缓存；ETag 由题目ID顺序和题目更新时间计算
+     */
+    @Override
+    public SessionBundleVO getSessionBundle(String sessionCode) {
+        AnswerSession session = getActiveSession(sessionCode);
+
+        SessionBundleVO cached = sessionBundleCache.getIfPresent(session.getId());
+        if (cached != null) {
+            return cached;
+        }
+
+        List<Long> questionIds = getSessionQuestionIds(session.getId());
+        if (questionIds == null || questionIds.isEmpty()) {
+            log.error("会话题目ID列表为空: sessionCode={}", sessionCode);
             throw new BusinessException(ErrorCode.QUESTION_NOT_FOUND);
         }
 
-        // 构建返回对象
+        Map<Long, QuestionBank> questionMap = questionBankService.getQuestionDetails(questionIds);
+
+        List<QuestionVO> questions = new ArrayList<>(questionIds.size());
+        StringBuilder versionSource = new StringBuilder(sessionCode);
+        for (Long questionId : questionIds) {
+            QuestionBank question = questionMap.get(questionId);
+            if (question == null) {
+                log.error("题目不存在: sessionCode={}, questionId={}", sessionCode, questionId);
+                throw new BusinessException(ErrorCode.QUESTION_NOT_FOUND);
+            }
+            questions.add(toQuestionVO(question));
+            versionSource.append('|').append(questionId).append(':').append(question.getUpdateTime());
+        }
+
+        SessionBundleVO bundle = SessionBundleVO.builder()
+                .sessionCode(sessionCode)
+                .totalQuestions(questions.size())
+                .questions(Collections.unmodifiableList(questions))
+                .etag("\"" + DigestUtils.md5DigestAsHex(versionSource.toString().getBytes(StandardCharsets.UTF_8)) + "\"")
+                .build();
+        sessionBundleCache.put(session.getId(), bundle);
+        return bundle;
+    }
+
+    /**
+     * 构建题目返回对象
+     */
+    private QuestionVO toQuestionVO(QuestionBank question) {
         return QuestionVO.builder()
                 .id(question.getId())
                 .title(question.getTitle())
                 .content(question.getContent())
                 .description(question.getContent()) // 使用 content 作为 description
                 .type(String.valueOf(question.getType()))
-                .options(JsonUtils.parseList(question.getOptions(), String.class))
+                .options(question.getOptionList() != null ? question.getOptionList() : Collections.emptyList())
                 .score(question.getScore())
                 .difficulty(question.getDifficulty())
                 .explanation(question.getExplanation())
@@ -554,9 +749,16 @@ public class AnswerSessionServiceImpl extends ServiceImpl<AnswerSessionMapper, A
             throw new BusinessException(ErrorCode.SESSION_ALREADY_FINISHED);
         }
 
+        // 等待写后缓冲中本会话的答案入库
+        answerWriteBuffer.flushSession(session.getId());
+
         // 更新会话状态
+        Integer oldStatus = session.getStatus();
         session.setStatus(2); // 已完成
         session.setEndTime(LocalDateTime.now());
         answerSessionMapper.updateById(session);
+        statisticsService.recordSessionTransition(oldStatus, 2);
+        sessionTimeoutScheduler.cancel(session.getId());
+        activeSessionStore.put(session);
     }
 }
\ No newline at end of file
@@ -6,11 +6,17 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gujian.questionnaire.dto.CursorPageVO;
 import com.gujian.questionnaire.entity.QuestionBank;
 import com.gujian.questionnaire.common.enums.ErrorCode;
 import com.gujian.questionnaire.exception.BusinessException;
 import com.gujian.questionnaire.mapper.QuestionBankMapper;
 import com.gujian.questionnaire.service.QuestionBankService;
+import com.gujian.questionnaire.service.AnswerKeyCache;
+import com.gujian.questionnaire.service.QuestionCache;
+import com.gujian.questionnaire.service.QuestionSampler;
+import com.gujian.questionnaire.service.QuestionSnapshotService;
+import com.gujian.questionnaire.utils.KeysetCursor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -19,10 +25,12 @@ import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -32,19 +40,49 @@ import java.util.stream.Collectors;
 @Service
 public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, QuestionBank> implements QuestionBankService {
 
+    /**
+     * 单条多值INSERT的最大行数
+     */
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
+    /**
+     * 全文检索词的最小长度（与 MySQL ngram_token_size 一致）
+     */
+    private static final int SEARCH_MIN_TERM_LENGTH = 2;
+
+    /**
+     * 无分页列表的最大返回条数
+     */
+    private static final int QUESTION_LIST_LIMIT = 1000;
+
     @Autowired
     private QuestionBankMapper questionBankMapper;
     
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private QuestionSampler questionSampler;
+
+    @Autowired
+    private QuestionSnapshotService questionSnapshotService;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private QuestionCache questionCache;
+
 
     
     @Override
     public IPage<QuestionBank> getQuestionPage(int current, int size, Integer type, Integer status, 
                                               Integer difficulty, Integer priority, String keyword) {
         Page<QuestionBank> page = new Page<>(current, size);
-        IPage<QuestionBank> result = questionBankMapper.selectQuestionPage(page, type, status, difficulty, priority, keyword);
+        String query = toSearchQuery(keyword);
+        IPage<QuestionBank> result = query != null
+                ? questionBankMapper.searchQuestionPage(page, query, type, status, difficulty, priority)
+                : questionBankMapper.selectQuestionPage(page, type, status, difficulty, priority, keyword);
         
         // 处理选项和类型名称
         result.getRecords().forEach(this::processQuestionInfo);
@@ -52,13 +90,36 @@ public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, Que
         return result;
     }
 
+    @Override
+    public CursorPageVO<QuestionBank> getQuestionCursorPage(String cursor, int size, Integer type, Integer status,
+                                                            Integer difficulty, Integer priority, String keyword,
+                                                            boolean withTotal) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
+        String query = toSearchQuery(keyword);
+        String likeKeyword = StringUtils.hasText(keyword) ? keyword.trim() : null;
+        
+        List<QuestionBank> rows = questionBankMapper.selectQuestionSeek(type, status, difficulty, priority, query,
+                likeKeyword, position.getTime(), position.getId(), pageSize + 1);
+        Long total = withTotal
+                ? questionBankMapper.countQuestionSeek(type, status, difficulty, priority, query, likeKeyword)
+                : null;
+        CursorPageVO<QuestionBank> result = KeysetCursor.page(rows, pageSize, QuestionBank::getCreateTime,
+                QuestionBank::getId, total);
+        result.getRecords().forEach(this::processQuestionInfo);
+        return result;
+    }
+
     @Override
     public List<QuestionBank> getRandomQuestions(Integer type, Integer count) {
         if (count <= 0 || count > 50) {
             throw new BusinessException(ErrorCode.QUESTION_COUNT_INVALID);
         }
         
-        List<QuestionBank> questions = questionBankMapper.selectRandomQuestions(type, count);
+        List<QuestionBank> questions = loadSampledQuestions(Collections.singletonList(type), count);
+        if (questions == null) {
+            questions = questionBankMapper.selectRandomQuestions(type, count);
+        }
         questions.forEach(this::processQuestionInfo);
         
         return questions;
@@ -70,8 +131,11 @@ public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, Que
             throw new BusinessException(ErrorCode.BAD_REQUEST, "参数无效");
         }
         
-        // 使用新的Mapper方法直接获取随机题目
-        List<QuestionBank> questions = questionBankMapper.selectRandomQuestionsFromTypes(types, count);
+        // 优先使用内存抽题索引，索引不可用时回退到数据库随机查询
+        List<QuestionBank> questions = loadSampledQuestions(types, count);
+        if (questions == null) {
+            questions = questionBankMapper.selectRandomQuestionsFromTypes(types, count);
+        }
         
         // 处理题目信息
         questions.forEach(this::processQuestionInfo);
@@ -88,7 +152,12 @@ public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, Que
         question.setCreateTime(LocalDateTime.now());
         question.setUpdateTime(LocalDateTime.now());
         
-        return save(question);
+        boolean saved = save(question);
+        if (saved) {
+            questionSampler.onQuestionSaved(question);
+            questionSnapshotService.capture(Collections.singletonList(question.getId()));
+        }
+        return saved;
     }
 
     @Override
@@ -103,7 +172,15 @@ public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, Que
         
         question.setUpdateTime(LocalDateTime.now());
         
-        return updateById(question);
+        boolean updated = updateById(question);
+        if (updated) {
+            // 请求体可能只包含部分字段，以数据库中的最新记录刷新抽题索引
+            questionSampler.onQuestionSaved(getById(question.getId()));
+            questionSnapshotService.capture(Collections.singletonList(question.getId()));
+            answerKeyCache.invalidate(question.getId());
+            questionCache.invalidate(question.getId());
+        }
+        return updated;
     }
 
     @Override
@@ -115,7 +192,13 @@ public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, Que
         }
         
         // 使用MyBatis Plus的逻辑删除功能
-        return removeById(id);
+        boolean removed = removeById(id);
+        if (removed) {
+            questionSampler.onQuestionsRemoved(Collections.singletonList(id));
+            answerKeyCache.invalidate(id);
+            questionCache.invalidate(id);
+        }
+        return removed;
     }
 
     @Override
@@ -126,7 +209,13 @@ public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, Que
         }
         
         // 使用MyBatis Plus的批量逻辑删除功能
-        return removeByIds(ids);
+        boolean removed = removeByIds(ids);
+        if (removed) {
+            questionSampler.onQuestionsRemoved(ids);
+            answerKeyCache.invalidateAll(ids);
+            questionCache.invalidateAll(ids);
+        }
+        return removed;
     }
 
     @Override
@@ -140,7 +229,12 @@ public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, Que
         question.setStatus(status);
         question.setUpdateTime(LocalDateTime.now());
         
-        return updateById(question);
+        boolean updated = updateById(question);
+        if (updated) {
+            questionSampler.onQuestionSaved(question);
+            questionCache.invalidate(id);
+        }
+        return updated;
     }
 
     @Override
@@ -198,15 +292,61 @@ public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, Que
 
     @Override
     public QuestionBank getQuestionDetail(Long id) {
-        QuestionBank question = getById(id);
+        QuestionBank question = questionCache.get(id, this::loadQuestionDetails);
         if (question == null) {
             throw new BusinessException(ErrorCode.QUESTION_NOT_FOUND);
         }
-        
-        processQuestionInfo(question);
         return question;
     }
 
+    @Override
+    public Map<Long, QuestionBank> getQuestionDetails(Collection<Long> ids) {
+        return questionCache.getAll(ids, this::loadQuestionDetails);
+    }
+
+    @Override
+    public Map<String, Object> getQuestionCacheStats() {
+        return questionCache.stats();
+    }
+
+    /**
+     * 题目缓存未命中时从数据库批量加载并预处理
+     */
+    private List<QuestionBank> loadQuestionDetails(List<Long> ids) {
+        List<QuestionBank> questions = questionBankMapper.selectBatchIds(ids);
+        questions.forEach(this::processQuestionInfo);
+        return questions;
+    }
+
+    /**
+     * 通过内存抽题索引抽取题目并批量加载
+     * 索引未就绪，或抽中的题目已被其他节点删除/停用时返回null，由调用方回退到数据库随机查询
+     */
+    private List<QuestionBank> loadSampledQuestions(List<Integer> types, int count) {
+        List<Long> ids = questionSampler.sample(types, count);
+        if (ids == null) {
+            return null;
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, QuestionBank> loaded = questionBankMapper.selectBatchIds(ids).stream()
+                .filter(q -> Integer.valueOf(1).equals(q.getStatus()))
+                .collect(Collectors.toMap(QuestionBank::getId, Function.identity()));
+        if (loaded.size() < ids.size()) {
+            log.warn("抽题索引与数据库不一致（期望{}题，有效{}题），回退到数据库随机查询", ids.size(), loaded.size());
+            // 移除已失效的题目，后续抽题不再命中
+            questionSampler.onQuestionsRemoved(ids.stream()
+                    .filter(id -> !loaded.containsKey(id))
+                    .collect(Collectors.toList()));
+            return null;
+        }
+
+        // 保持抽取顺序
+        return ids.stream().map(loaded::get).collect(Collectors.toList());
+    }
+
     /**
      * 处理题目信息（解析选项、设置类型名称等）
      */
@@ -231,7 +371,8 @@ public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, Que
     /**
      * 验证题目数据
      */
-    private void validateQuestion(QuestionBank question) {
+    @Override
+    public void validateQuestion(QuestionBank question) {
         if (!StringUtils.hasText(question.getTitle())) {
             throw new BusinessException(ErrorCode.QUESTION_TITLE_EMPTY);
         }
@@ -267,6 +408,40 @@ public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, Que
         }
     }
 
+    /**
+     * 关键词转换为全文检索式：按空白拆分，每个词作为必须命中的短语（+"词"），保证连续匹配
+     * 存在少于 ngram_token_size 个字符的词时无法使用ngram索引，返回null由调用方回退到LIKE
+     */
+    private static String toSearchQuery(String keyword) {
+        if (!StringUtils.hasText(keyword)) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        for (String term : keyword.trim().split("\\s+")) {
+            // 短语内只有双引号有特殊含义
+            String phrase = term.replace("\"", "");
+            if (phrase.codePointCount(0, phrase.length()) < SEARCH_MIN_TERM_LENGTH) {
+                return null;
+            }
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append("+\"").append(phrase).append('"');
+        }
+        return query.toString();
+    }
+
+    /**
+     * LIKE 回退：标题、内容、选项任一包含关键词
+     */
+    private static void likeKeyword(LambdaQueryWrapper<QuestionBank> queryWrapper, String keyword) {
+        queryWrapper.and(w -> w.like(QuestionBank::getTitle, keyword)
+                .or()
+                .like(QuestionBank::getContent, keyword)
+                .or()
+                .like(QuestionBank::getOptions, keyword));
+    }
+
     /**
      * 获取题型名称
      */
@@ -296,13 +471,16 @@ public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, Que
     @Override
     public IPage<QuestionBank> getQuestionPage(int current, int size, String keyword, Integer type) {
         Page<QuestionBank> page = new Page<>(current, size);
+        String query = toSearchQuery(keyword);
+        if (query != null) {
+            return questionBankMapper.searchQuestionPage(page, query, type, null, null, null);
+        }
+        
         LambdaQueryWrapper<QuestionBank> queryWrapper = new LambdaQueryWrapper<>();
         
-        // 添加查询条件
+        // 添加查询条件（关键词过短无法全文检索时回退到LIKE）
         if (keyword != null && !keyword.trim().isEmpty()) {
-            queryWrapper.like(QuestionBank::getContent, keyword.trim())
-                       .or()
-                       .like(QuestionBank::getOptions, keyword.trim());
+            likeKeyword(queryWrapper, keyword.trim());
         }
         
         if (type != null) {
@@ -316,13 +494,29 @@ public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, Que
     }
     
     @Override
+    @Transactional
     public boolean batchImportQuestions(List<QuestionBank> questions) {
         if (questions == null || questions.isEmpty()) {
             throw new BusinessException(ErrorCode.BAD_REQUEST, "题目列表不能为空");
         }
         
-        // 批量保存
-        return saveBatch(questions);
+        LocalDateTime now = LocalDateTime.now();
+        for (QuestionBank question : questions) {
+            validateQuestion(question);
+            if (question.getStatus() == null) {
+                question.setStatus(1);
+            }
+            question.setCreateTime(now);
+            question.setUpdateTime(now);
+        }
+        
+        // 分批单条多值INSERT
+        for (int i = 0; i < questions.size(); i += IMPORT_BATCH_SIZE) {
+            questionBankMapper.insertBatch(questions.subList(i, Math.min(i + IMPORT_BATCH_SIZE, questions.size())));
+        }
+        questionSampler.onQuestionsSaved(questions);
+        questionSnapshotService.capture(questions.stream().map(QuestionBank::getId).collect(Collectors.toList()));
+        return true;
     }
     
     @Override
@@ -347,15 +541,30 @@ public class QuestionBankServiceImpl extends ServiceImpl<QuestionBankMapper, Que
             }
         }
         
+        // 关键词优先走全文检索，按相关度排序
+        String query = toSearchQuery(keyword);
+        if (query != null) {
+            Integer difficultyValue = null;
+            if (difficulty != null && !difficulty.trim().isEmpty()) {
+                try {
+                    difficultyValue = Integer.parseInt(difficulty.trim());
+                } catch (NumberFormatException e) {
+                    // 格式错误时忽略难度条件，与下方一致
+                }
+            }
+            List<QuestionBank> questions = questionBankMapper.searchQuestionList(query, type, status, difficultyValue,
+                    QUESTION_LIST_LIMIT);
+            questions.forEach(this::processQuestionInfo);
+            return questions;
+        }
+        
         if (keyword != null && !keyword.trim().isEmpty()) {
-            queryWrapper.like(QuestionBank::getContent, keyword.trim())
-                       .or()
-                       .like(QuestionBank::getOptions, keyword.trim());
+            likeKeyword(queryWrapper, keyword.trim());
         }
         
         // 按创建时间倒序，限制返回数量以防止内存溢出
         queryWrapper.orderByDesc(QuestionBank::getCreateTime)
-                   .last("LIMIT 1000"); // 限制最多返回1000条
+                   .last("LIMIT " + QUESTION_LIST_LIMIT); // 限制最多返回1000条
         
         List<QuestionBank> questions = list(queryWrapper);
         
@@ -0,0 +1,434 @@
+package com.gujian.questionnaire.service.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.gujian.questionnaire.common.enums.ErrorCode;
+import com.gujian.questionnaire.dto.QuestionImportResultVO;
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.exception.BusinessException;
+import com.gujian.questionnaire.mapper.QuestionBankMapper;
+import com.gujian.questionnaire.service.QuestionBankService;
+import com.gujian.questionnaire.service.QuestionImportService;
+import com.gujian.questionnaire.service.QuestionSampler;
+import com.gujian.questionnaire.service.QuestionSnapshotService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 题目导入服务实现类
+ *
+ * JSON/JSONL 使用 Jackson 流式解析器逐个读取题目对象，CSV 使用 jackson-dataformat-csv 逐行读取；
+ * 通过校验和去重的题目攒满一批后以单条多值INSERT写入（每批独立事务），
+ * 整批失败时逐条重试以定位出错的行
+ */
+@Slf4j
+@Service
+public class QuestionImportServiceImpl implements QuestionImportService {
+
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String FORMAT_JSON = "json";
+    private static final String FORMAT_JSONL = "jsonl";
+    private static final String FORMAT_CSV = "csv";
+
+    private static final TypeReference<List<String>> OPTION_LIST_TYPE = new TypeReference<List<String>>() {
+    };
+
+    /**
+     * CSV中未使用JSON数组格式的选项以该字符分隔
+     */
+    private static final String CSV_OPTION_SEPARATOR = "\\|";
+
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    @Autowired
+    private QuestionBankService questionBankService;
+
+    @Autowired
+    private QuestionBankMapper questionBankMapper;
+
+    @Autowired
+    private QuestionSampler questionSampler;
+
+    @Autowired
+    private QuestionSnapshotService questionSnapshotService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public QuestionImportResultVO importQuestions(InputStream in, String format, Long creatorId) {
+        String normalized = format != null ? format.trim().toLowerCase(Locale.ROOT) : "";
+        if (!FORMAT_JSON.equals(normalized) && !FORMAT_JSONL.equals(normalized) && !FORMAT_CSV.equals(normalized)) {
+            throw new BusinessException(ErrorCode.PARAMETER_INVALID, "不支持的导入格式，仅支持 json、jsonl、csv");
+        }
+
+        long start = System.currentTimeMillis();
+        ImportContext context = new ImportContext(creatorId, loadExistingTitleHashes());
+        try {
+            if (FORMAT_CSV.equals(normalized)) {
+                readCsv(in, context);
+            } else {
+                readJson(in, context);
+            }
+        } catch (IOException e) {
+            // 内容格式损坏时无法继续定位下一条记录，中止读取，已读取的题目照常入库
+            context.fail(context.row + 1, null, "解析失败，后续内容未导入: " + originalMessage(e));
+        }
+        context.flush();
+
+        QuestionImportResultVO result = context.result;
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("题目导入完成: 格式={}, 读取={}, 导入={}, 重复={}, 失败={}, 耗时{}ms", normalized,
+                result.getTotal(), result.getImported(), result.getDuplicated(), result.getFailed(),
+                result.getElapsedMillis());
+        return result;
+    }
+
+    @Override
+    public String detectFormat(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".jsonl") || lower.endsWith(".ndjson")) {
+            return FORMAT_JSONL;
+        }
+        if (lower.endsWith(".json")) {
+            return FORMAT_JSON;
+        }
+        if (lower.endsWith(".csv")) {
+            return FORMAT_CSV;
+        }
+        return null;
+    }
+
+    /**
+     * JSON数组和JSONL都是顶层对象序列，用同一个流式解析器逐个读取
+     */
+    private void readJson(InputStream in, ImportContext context) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.START_ARRAY || token == JsonToken.END_ARRAY) {
+                    continue;
+                }
+                long row = ++context.row;
+                if (token != JsonToken.START_OBJECT) {
+                    context.fail(row, null, "不是JSON对象");
+                    parser.skipChildren();
+                    continue;
+                }
+                ObjectNode node = parser.readValueAsTree();
+                QuestionBank question;
+                try {
+                    question = fromJson(node);
+                } catch (JsonProcessingException e) {
+                    context.fail(row, textOf(node.get("title")), "字段格式错误: " + originalMessage(e));
+                    continue;
+                }
+                context.accept(row, question);
+            }
+        }
+    }
+
+    private QuestionBank fromJson(ObjectNode node) throws JsonProcessingException {
+        // 选项允许直接写成数组，入库前转换为JSON文本
+        JsonNode options = node.get("options");
+        if (options != null && options.isArray()) {
+            node.put("options", objectMapper.writeValueAsString(options));
+        }
+        return objectMapper.treeToValue(node, QuestionBank.class);
+    }
+
+    private void readCsv(InputStream in, ImportContext context) throws IOException {
+        try (MappingIterator<String[]> iterator = csvMapper.readerFor(String[].class)
+                .with(CsvParser.Feature.WRAP_AS_ARRAY)
+                .readValues(in)) {
+            if (!iterator.hasNextValue()) {
+                return;
+            }
+            Map<String, Integer> header = new HashMap<>();
+            String[] names = iterator.nextValue();
+            for (int i = 0; i < names.length; i++) {
+                header.put(normalizeColumn(names[i]), i);
+            }
+            if (!header.containsKey("title")) {
+                throw new BusinessException(ErrorCode.PARAMETER_INVALID, "CSV表头缺少 title 列");
+            }
+
+            while (iterator.hasNextValue()) {
+                String[] cells = iterator.nextValue();
+                if (Arrays.stream(cells).noneMatch(StringUtils::hasText)) {
+                    continue;
+                }
+                long row = ++context.row;
+                QuestionBank question;
+                try {
+                    question = fromCsv(header, cells);
+                } catch (IllegalArgumentException | JsonProcessingException e) {
+                    context.fail(row, cell(header, cells, "title"), e.getMessage());
+                    continue;
+                }
+                context.accept(row, question);
+            }
+        }
+    }
+
+    /**
+     * CSV行转换为题目，空单元格保留实体默认值
+     */
+    private QuestionBank fromCsv(Map<String, Integer> header, String[] cells) throws JsonProcessingException {
+        QuestionBank question = new QuestionBank();
+        question.setTitle(cell(header, cells, "title"));
+        question.setContent(cell(header, cells, "content"));
+        question.setCorrectAnswer(cell(header, cells, "correctanswer"));
+        question.setExplanation(cell(header, cells, "explanation"));
+        question.setTags(cell(header, cells, "tags"));
+
+        Integer type = intCell(header, cells, "type");
+        question.setType(type);
+        Integer priority = intCell(header, cells, "priority");
+        if (priority != null) {
+            question.setPriority(priority);
+        }
+        Integer score = intCell(header, cells, "score");
+        if (score != null) {
+            question.setScore(score);
+        }
+        Integer difficulty = intCell(header, cells, "difficulty");
+        if (difficulty != null) {
+            question.setDifficulty(difficulty);
+        }
+        Integer status = intCell(header, cells, "status");
+        if (status != null) {
+            question.setStatus(status);
+        }
+
+        String options = cell(header, cells, "options");
+        if (StringUtils.hasText(options) && !options.trim().startsWith("[")) {
+            List<String> list = new ArrayList<>();
+            for (String option : options.split(CSV_OPTION_SEPARATOR)) {
+                list.add(option.trim());
+            }
+            options = objectMapper.writeValueAsString(list);
+        }
+        question.setOptions(options);
+        return question;
+    }
+
+    /**
+     * 流式读取题库中已有的标题哈希
+     */
+    private Set<Long> loadExistingTitleHashes() {
+        Set<Long> hashes = new HashSet<>();
+        questionBankMapper.streamTitles(context -> {
+            String title = context.getResultObject();
+            if (title != null) {
+                hashes.add(titleHash(title));
+            }
+        });
+        return hashes;
+    }
+
+    /**
+     * 标题哈希：去除首尾空白、合并连续空白并忽略大小写后取MD5前8字节
+     */
+    private static long titleHash(String title) {
+        String normalized = title.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return ByteBuffer.wrap(DigestUtils.md5Digest(normalized.getBytes(StandardCharsets.UTF_8))).getLong();
+    }
+
+    private static String normalizeColumn(String name) {
+        return name == null ? "" : name.trim().replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static String cell(Map<String, Integer> header, String[] cells, String column) {
+        Integer index = header.get(column);
+        if (index == null || index >= cells.length || !StringUtils.hasText(cells[index])) {
+            return null;
+        }
+        return cells[index];
+    }
+
+    private static Integer intCell(Map<String, Integer> header, String[] cells, String column) {
+        String value = cell(header, cells, column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " 不是有效的整数: " + value);
+        }
+    }
+
+    private static String textOf(JsonNode node) {
+        return node != null && !node.isNull() ? node.asText() : null;
+    }
+
+    private static String originalMessage(IOException e) {
+        if (e instanceof JsonProcessingException) {
+            JsonProcessingException jpe = (JsonProcessingException) e;
+            return jpe.getOriginalMessage() + (jpe.getLocation() != null ? "（第" + jpe.getLocation().getLineNr() + "行）" : "");
+        }
+        return e.getMessage();
+    }
+
+    /**
+     * 单次导入的状态：当前批次、已见标题哈希和结果统计
+     */
+    private class ImportContext {
+
+        private final Long creatorId;
+
+        private final Set<Long> seenTitles;
+
+        private final QuestionImportResultVO result = new QuestionImportResultVO();
+
+        private final List<QuestionBank> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+
+        private final List<Long> batchRows = new ArrayList<>(IMPORT_BATCH_SIZE);
+
+        private long row;
+
+        ImportContext(Long creatorId, Set<Long> seenTitles) {
+            this.creatorId = creatorId;
+            this.seenTitles = seenTitles;
+        }
+
+        void accept(long rowNumber, QuestionBank question) {
+            result.setTotal(result.getTotal() + 1);
+            try {
+                questionBankService.validateQuestion(question);
+                validateOptions(question);
+            } catch (BusinessException e) {
+                fail(rowNumber, question.getTitle(), e.getMessage());
+                return;
+            }
+
+            if (!seenTitles.add(titleHash(question.getTitle()))) {
+                result.setDuplicated(result.getDuplicated() + 1);
+                return;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            question.setId(null);
+            question.setCreatorId(creatorId);
+            question.setCreateTime(now);
+            question.setUpdateTime(now);
+            if (question.getStatus() == null) {
+                question.setStatus(1);
+            }
+            batch.add(question);
+            batchRows.add(rowNumber);
+            if (batch.size() >= IMPORT_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    questionBankMapper.insertBatch(batch);
+                    questionSnapshotService.capture(idsOf(batch));
+                });
+                result.setImported(result.getImported() + batch.size());
+                questionSampler.onQuestionsSaved(batch);
+            } catch (DataAccessException e) {
+                log.warn("题目批量写入失败，改为逐条写入: 行={}~{}, 错误={}",
+                        batchRows.get(0), batchRows.get(batchRows.size() - 1), e.getMessage());
+                insertOneByOne();
+            } finally {
+                batch.clear();
+                batchRows.clear();
+            }
+        }
+
+        private void insertOneByOne() {
+            List<QuestionBank> inserted = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                QuestionBank question = batch.get(i);
+                question.setId(null);
+                try {
+                    questionBankMapper.insert(question);
+                    result.setImported(result.getImported() + 1);
+                    inserted.add(question);
+                } catch (DataAccessException e) {
+                    String message = e.getMostSpecificCause().getMessage();
+                    fail(batchRows.get(i), question.getTitle(), "写入失败: " + message);
+                }
+            }
+            questionSampler.onQuestionsSaved(inserted);
+            try {
+                questionSnapshotService.capture(idsOf(inserted));
+            } catch (DataAccessException e) {
+                // 缺少的快照在首次答题时创建
+                log.warn("导入题目创建快照失败: 题目数={}, 错误={}", inserted.size(), e.getMessage());
+            }
+        }
+
+        private List<Long> idsOf(List<QuestionBank> questions) {
+            return questions.stream().map(QuestionBank::getId).collect(Collectors.toList());
+        }
+
+        void fail(long rowNumber, String title, String message) {
+            result.setFailed(result.getFailed() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                if (title != null && title.length() > 100) {
+                    title = title.substring(0, 100) + "...";
+                }
+                result.getErrors().add(new QuestionImportResultVO.RowError(rowNumber, title, message));
+            } else {
+                result.setErrorsTruncated(true);
+            }
+        }
+
+        private void validateOptions(QuestionBank question) {
+            if (!StringUtils.hasText(question.getOptions())) {
+                return;
+            }
+            try {
+                objectMapper.readValue(question.getOptions(), OPTION_LIST_TYPE);
+            } catch (JsonProcessingException e) {
+                throw new BusinessException(ErrorCode.PARAMETER_INVALID, "选项必须是字符串数组");
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.gujian.questionnaire.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gujian.questionnaire.entity.AnswerRecord;
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.entity.QuestionSnapshot;
+import com.gujian.questionnaire.mapper.QuestionBankMapper;
+import com.gujian.questionnaire.mapper.QuestionSnapshotMapper;
+import com.gujian.questionnaire.service.QuestionSnapshotService;
+import com.gujian.questionnaire.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 题目快照服务实现类
+ *
+ * 快照按 (题目ID, 内容哈希) 去重，同一题目版本只保存一份。快照创建后不再修改，
+ * 因此按ID缓存无需失效；按题目缓存的最新快照在题目内容变化后因哈希不一致自动重新解析。
+ *
+ * 快照在题目新增、修改、导入的事务中创建（capture），答题时只读取已提交的快照（resolve）；
+ * 题目内容未经本服务修改而缺少快照时，答题路径在独立的短事务中创建并立即提交，失败时重试，
+ * 不在答题事务中持有快照表的锁，写后缓冲中的记录也不会引用回滚掉的快照
+ */
+@Slf4j
+@Service
+public class QuestionSnapshotServiceImpl extends ServiceImpl<QuestionSnapshotMapper, QuestionSnapshot>
+        implements QuestionSnapshotService {
+
+    /**
+     * 单次查询/插入的最大题目数
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * 答题路径创建快照的最大尝试次数（唯一索引冲突、死锁、锁等待超时时重试）
+     */
+    private static final int CREATE_MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private QuestionBankMapper questionBankMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 独立事务模板：答题路径创建的快照与答题事务分开提交
+     */
+    private TransactionTemplate requiresNewTemplate;
+
+    /**
+     * 题目ID -> 最近解析到的快照
+     */
+    private final Cache<Long, QuestionSnapshot> latestSnapshots = Caffeine.newBuilder()
+            .maximumSize(20_000)
+            .build();
+
+    /**
+     * 快照ID -> 快照
+     */
+    private final Cache<Long, QuestionSnapshot> snapshotsById = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .build();
+
+    @PostConstruct
+    public void init() {
+        requiresNewTemplate = new TransactionTemplate(transactionManager);
+        requiresNewTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public QuestionSnapshot resolve(QuestionBank question) {
+        QuestionSnapshot current = newSnapshot(question);
+
+        QuestionSnapshot snapshot = latestSnapshots.getIfPresent(question.getId());
+        if (snapshot != null && current.getContentHash().equals(snapshot.getContentHash())) {
+            return snapshot;
+        }
+
+        // 答题事务不创建快照，读到的都是已提交的快照
+        snapshot = lambdaQuery()
+                .eq(QuestionSnapshot::getQuestionId, question.getId())
+                .eq(QuestionSnapshot::getContentHash, current.getContentHash())
+                .one();
+        if (snapshot == null) {
+            snapshot = createCommitted(current);
+        }
+        cache(snapshot);
+        return snapshot;
+    }
+
+    @Override
+    public void capture(Collection<Long> questionIds) {
+        if (questionIds.isEmpty()) {
+            return;
+        }
+
+        // 分批读取题目当前内容及其已有的快照哈希
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(questionIds));
+        Map<Long, QuestionSnapshot> current = new LinkedHashMap<>();
+        Set<String> existingHashes = new HashSet<>();
+        Set<Long> versioned = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            for (QuestionBank question : questionBankMapper.selectBatchIds(chunk)) {
+                current.put(question.getId(), newSnapshot(question));
+            }
+            lambdaQuery()
+                    .select(QuestionSnapshot::getQuestionId, QuestionSnapshot::getContentHash)
+                    .in(QuestionSnapshot::getQuestionId, chunk)
+                    .list()
+                    .forEach(snapshot -> {
+                        versioned.add(snapshot.getQuestionId());
+                        existingHashes.add(snapshot.getQuestionId() + ":" + snapshot.getContentHash());
+                    });
+        }
+
+        // 新题目的首个版本批量插入，已有快照的题目以下一个版本号逐条插入
+        List<QuestionSnapshot> created = new ArrayList<>();
+        List<QuestionSnapshot> firstVersions = new ArrayList<>();
+        for (QuestionSnapshot snapshot : current.values()) {
+            if (existingHashes.contains(snapshot.getQuestionId() + ":" + snapshot.getContentHash())) {
+                continue;
+            }
+            if (versioned.contains(snapshot.getQuestionId())) {
+                created.add(create(snapshot));
+            } else {
+                snapshot.setVersion(1);
+                firstVersions.add(snapshot);
+            }
+        }
+        for (int from = 0; from < firstVersions.size(); from += BATCH_SIZE) {
+            List<QuestionSnapshot> batch = firstVersions.subList(from, Math.min(from + BATCH_SIZE, firstVersions.size()));
+            try {
+                baseMapper.insertBatch(batch);
+                created.addAll(batch);
+            } catch (DuplicateKeyException e) {
+                // 答题路径已为其中的题目创建了快照
+                for (QuestionSnapshot snapshot : batch) {
+                    snapshot.setId(null);
+                    created.add(create(snapshot));
+                }
+            }
+        }
+        if (!created.isEmpty()) {
+            log.info("创建题目快照: 题目数={}, 快照数={}", current.size(), created.size());
+        }
+
+        TransactionUtils.afterCommit(() -> created.forEach(this::cache));
+    }
+
+    @Override
+    public void fillSnapshots(Collection<AnswerRecord> records) {
+        Set<Long> snapshotIds = records.stream()
+                .map(AnswerRecord::getSnapshotId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (snapshotIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, QuestionSnapshot> snapshots = new HashMap<>(snapshotsById.getAllPresent(snapshotIds));
+        List<Long> missing = new ArrayList<>();
+        for (Long snapshotId : snapshotIds) {
+            if (!snapshots.containsKey(snapshotId)) {
+                missing.add(snapshotId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (QuestionSnapshot snapshot : listByIds(missing)) {
+                snapshotsById.put(snapshot.getId(), snapshot);
+                snapshots.put(snapshot.getId(), snapshot);
+            }
+        }
+
+        for (AnswerRecord record : records) {
+            QuestionSnapshot snapshot = record.getSnapshotId() != null ? snapshots.get(record.getSnapshotId()) : null;
+            if (snapshot != null) {
+                record.setQuestionContent(snapshot.getContent());
+                record.setQuestionOptions(snapshot.getOptions());
+                record.setCorrectAnswer(snapshot.getCorrectAnswer());
+            }
+        }
+    }
+
+    /**
+     * 答题路径：在独立事务中以下一个版本号创建快照并提交
+     * 并发创建同一题目的快照时可能出现唯一索引冲突或死锁，重试时先读取其他事务已提交的快照
+     */
+    private QuestionSnapshot createCommitted(QuestionSnapshot snapshot) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return requiresNewTemplate.execute(status -> {
+                    QuestionSnapshot existing = lambdaQuery()
+                            .eq(QuestionSnapshot::getQuestionId, snapshot.getQuestionId())
+                            .eq(QuestionSnapshot::getContentHash, snapshot.getContentHash())
+                            .one();
+                    if (existing != null) {
+                        return existing;
+                    }
+                    snapshot.setId(null);
+                    baseMapper.insertNextVersion(snapshot);
+                    log.info("答题时创建题目快照: 题目ID={}, 快照ID={}", snapshot.getQuestionId(), snapshot.getId());
+                    return snapshot;
+                });
+            } catch (DuplicateKeyException | ConcurrencyFailureException e) {
+                if (attempt >= CREATE_MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("创建题目快照冲突，重试: 题目ID={}, 第{}次, 错误={}", snapshot.getQuestionId(), attempt, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 题目保存事务中以下一个版本号插入快照
+     * 并发创建同一内容时返回已提交的快照；版本号被同题目的其他内容抢占时重试一次
+     */
+    private QuestionSnapshot create(QuestionSnapshot snapshot) {
+        try {
+            baseMapper.insertNextVersion(snapshot);
+        } catch (DuplicateKeyException e) {
+            QuestionSnapshot existing = baseMapper.selectByHash(snapshot.getQuestionId(), snapshot.getContentHash());
+            if (existing != null) {
+                return existing;
+            }
+            log.warn("题目快照版本号冲突，重试: 题目ID={}", snapshot.getQuestionId());
+            baseMapper.insertNextVersion(snapshot);
+        }
+        return snapshot;
+    }
+
+    private void cache(QuestionSnapshot snapshot) {
+        latestSnapshots.put(snapshot.getQuestionId(), snapshot);
+        snapshotsById.put(snapshot.getId(), snapshot);
+    }
+
+    /**
+     * 题目当前内容对应的快照（未入库）
+     */
+    private static QuestionSnapshot newSnapshot(QuestionBank question) {
+        String content = question.getTitle() + "\n" + question.getContent();
+        QuestionSnapshot snapshot = new QuestionSnapshot();
+        snapshot.setQuestionId(question.getId());
+        snapshot.setContentHash(contentHash(content, question.getOptions(), question.getCorrectAnswer()));
+        snapshot.setContent(content);
+        snapshot.setOptions(question.getOptions());
+        snapshot.setCorrectAnswer(question.getCorrectAnswer());
+        return snapshot;
+    }
+
+    /**
+     * 快照内容哈希：SHA-256(题目描述 \0 选项 \0 正确答案)，null按空串处理（与 V15 迁移脚本一致）
+     */
+    private static String contentHash(String content, String options, String correctAnswer) {
+        String raw = nullToEmpty(content) + '\0' + nullToEmpty(options) + '\0' + nullToEmpty(correctAnswer);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(raw.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,283 @@
+package com.gujian.questionnaire.service.impl;
+
+import com.gujian.questionnaire.entity.AnswerRecord;
+import com.gujian.questionnaire.mapper.AnswerRecordMapper;
+import com.gujian.questionnaire.service.QuestionStatsService;
+import com.gujian.questionnaire.service.RedisService;
+import com.gujian.questionnaire.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 题目统计服务实现类
+ *
+ * Redis结构：stats:question:{题目ID}（Hash）
+ * - attempts   作答次数
+ * - judged     可判定对错的作答次数（客观题）
+ * - correct    正确次数
+ * - score_sum  最终得分合计
+ * - time_sum / timed  用时合计 / 有用时数据的作答次数
+ * - h0..hN     用时分布直方图，桶边界见 TIME_BOUNDS
+ */
+@Slf4j
+@Service
+public class QuestionStatsServiceImpl implements QuestionStatsService {
+
+    private static final String KEY_PREFIX = "stats:question:";
+
+    /**
+     * 全量重建完成标记，不存在时启动后自动重建一次
+     */
+    private static final String BUILT_KEY = "stats:question:built";
+
+    /**
+     * 用时直方图桶上限（秒）：[0,10) [10,30) [30,60) [60,120) [120,300) [300,600) [600,+∞)
+     */
+    private static final int[] TIME_BOUNDS = {10, 30, 60, 120, 300, 600};
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private static final String ATTEMPTS = "attempts";
+    private static final String JUDGED = "judged";
+    private static final String CORRECT = "correct";
+    private static final String SCORE_SUM = "score_sum";
+    private static final String TIME_SUM = "time_sum";
+    private static final String TIMED = "timed";
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private AnswerRecordMapper answerRecordMapper;
+
+    @Override
+    public void recordAnswers(Collection<AnswerRecord> records) {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+
+        // 同一题目的增量先在内存中合并
+        Map<Long, Map<String, Long>> deltas = new HashMap<>();
+        for (AnswerRecord record : records) {
+            if (record.getQuestionId() == null) {
+                continue;
+            }
+            Map<String, Long> delta = deltas.computeIfAbsent(record.getQuestionId(), k -> new HashMap<>());
+            delta.merge(ATTEMPTS, 1L, Long::sum);
+            if (record.getIsCorrect() != null) {
+                delta.merge(JUDGED, 1L, Long::sum);
+                if (record.getIsCorrect()) {
+                    delta.merge(CORRECT, 1L, Long::sum);
+                }
+            }
+            if (record.getFinalScore() != null && record.getFinalScore() != 0) {
+                delta.merge(SCORE_SUM, (long) record.getFinalScore(), Long::sum);
+            }
+            Integer seconds = record.getTimeSpentSeconds();
+            if (seconds != null && seconds >= 0) {
+                delta.merge(TIME_SUM, (long) seconds, Long::sum);
+                delta.merge(TIMED, 1L, Long::sum);
+                delta.merge(bucketField(bucketOf(seconds)), 1L, Long::sum);
+            }
+        }
+        increment(deltas);
+    }
+
+    @Override
+    public void recordScoreChange(Long questionId, int scoreDelta) {
+        recordScoreChange(questionId, 0, scoreDelta);
+    }
+
+    @Override
+    public void recordScoreChange(Long questionId, int correctDelta, int scoreDelta) {
+        if (questionId == null || (correctDelta == 0 && scoreDelta == 0)) {
+            return;
+        }
+        Map<String, Long> delta = new HashMap<>();
+        if (correctDelta != 0) {
+            delta.put(CORRECT, (long) correctDelta);
+        }
+        if (scoreDelta != 0) {
+            delta.put(SCORE_SUM, (long) scoreDelta);
+        }
+        Map<Long, Map<String, Long>> deltas = new HashMap<>();
+        deltas.put(questionId, delta);
+        increment(deltas);
+    }
+
+    @Override
+    public Map<String, Object> getQuestionStats(Long questionId) {
+        Map<Object, Object> values = redisService.hmget(KEY_PREFIX + questionId);
+
+        long attempts = getLong(values, ATTEMPTS);
+        long judged = getLong(values, JUDGED);
+        long correct = getLong(values, CORRECT);
+        long timed = getLong(values, TIMED);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("questionId", questionId);
+        stats.put("totalAnswers", attempts);
+        stats.put("correctCount", correct);
+        stats.put("correctRate", judged > 0 ? round((double) correct / judged) : 0.0);
+        stats.put("avgScore", attempts > 0 ? round((double) getLong(values, SCORE_SUM) / attempts) : 0.0);
+        stats.put("avgTimeSpent", timed > 0 ? round((double) getLong(values, TIME_SUM) / timed) : 0.0);
+
+        List<Map<String, Object>> histogram = new ArrayList<>(TIME_BOUNDS.length + 1);
+        for (int i = 0; i <= TIME_BOUNDS.length; i++) {
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("minSeconds", i == 0 ? 0 : TIME_BOUNDS[i - 1]);
+            bucket.put("maxSeconds", i < TIME_BOUNDS.length ? TIME_BOUNDS[i] : null);
+            bucket.put("count", getLong(values, bucketField(i)));
+            histogram.add(bucket);
+        }
+        stats.put("timeHistogram", histogram);
+
+        return stats;
+    }
+
+    /**
+     * 全量重建：按题目ID游标分批汇总 answer_record，整体覆盖各题目的统计Hash
+     * 重建期间新提交的答案可能被覆盖，应在低峰期执行
+     */
+    @Override
+    @Scheduled(cron = "${app.statistics.question-rebuild-cron:-}")
+    public int rebuild() {
+        long start = System.currentTimeMillis();
+        int rebuilt = 0;
+        Long afterId = 0L;
+        try {
+            while (true) {
+                List<Long> questionIds = answerRecordMapper.selectAnsweredQuestionIds(afterId, REBUILD_BATCH_SIZE);
+                if (questionIds.isEmpty()) {
+                    break;
+                }
+                List<Map<String, Object>> rows = answerRecordMapper.aggregateByQuestion(questionIds, TIME_BOUNDS);
+                writeSnapshots(rows);
+                rebuilt += rows.size();
+                afterId = questionIds.get(questionIds.size() - 1);
+                if (questionIds.size() < REBUILD_BATCH_SIZE) {
+                    break;
+                }
+            }
+            redisService.set(BUILT_KEY, System.currentTimeMillis());
+            log.info("题目统计重建完成: 题目数={}, 耗时{}ms", rebuilt, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("题目统计重建失败: 已处理题目数={}, 错误={}", rebuilt, e.getMessage(), e);
+        }
+        return rebuilt;
+    }
+
+    /**
+     * 首次启动（没有重建标记）时回填历史数据
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfAbsent() {
+        if (!redisService.hasKey(BUILT_KEY)) {
+            rebuild();
+        }
+    }
+
+    private void increment(Map<Long, Map<String, Long>> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                redisService.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                        RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                        deltas.forEach((questionId, delta) -> delta.forEach((field, value) ->
+                                ops.opsForHash().increment(KEY_PREFIX + questionId, field, value)));
+                        return null;
+                    }
+                });
+            } catch (Exception e) {
+                // 统计失败不影响答题，偏差可通过重建校正
+                log.warn("题目统计写入失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void writeSnapshots(List<Map<String, Object>> rows) {
+        redisService.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (Map<String, Object> row : rows) {
+                    String key = KEY_PREFIX + toLong(row.get("question_id"));
+                    ops.delete(key);
+                    ops.opsForHash().putAll(key, toSnapshot(row));
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 汇总行转换为Hash字段，累计数转换为各桶计数
+     */
+    private Map<String, Object> toSnapshot(Map<String, Object> row) {
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put(ATTEMPTS, toLong(row.get(ATTEMPTS)));
+        snapshot.put(JUDGED, toLong(row.get(JUDGED)));
+        snapshot.put(CORRECT, toLong(row.get(CORRECT)));
+        snapshot.put(SCORE_SUM, toLong(row.get(SCORE_SUM)));
+        snapshot.put(TIME_SUM, toLong(row.get(TIME_SUM)));
+
+        long timed = toLong(row.get(TIMED));
+        snapshot.put(TIMED, timed);
+        long previous = 0;
+        for (int i = 0; i < TIME_BOUNDS.length; i++) {
+            long cumulative = toLong(row.get("lt_" + i));
+            snapshot.put(bucketField(i), cumulative - previous);
+            previous = cumulative;
+        }
+        snapshot.put(bucketField(TIME_BOUNDS.length), timed - previous);
+        return snapshot;
+    }
+
+    private static int bucketOf(int seconds) {
+        for (int i = 0; i < TIME_BOUNDS.length; i++) {
+            if (seconds < TIME_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return TIME_BOUNDS.length;
+    }
+
+    private static String bucketField(int index) {
+        return "h" + index;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static long getLong(Map<Object, Object> map, String field) {
+        return map != null ? toLong(map.get(field)) : 0;
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return value != null ? Long.parseLong(value.toString()) : 0;
+    }
+}
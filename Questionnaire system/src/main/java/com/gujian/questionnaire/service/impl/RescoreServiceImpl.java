@@ -0,0 +1,417 @@
+package com.gujian.questionnaire.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gujian.questionnaire.common.enums.ErrorCode;
+import com.gujian.questionnaire.dto.RescoreDTO;
+import com.gujian.questionnaire.dto.RescoreProgressVO;
+import com.gujian.questionnaire.entity.AnswerRecord;
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.exception.BusinessException;
+import com.gujian.questionnaire.mapper.AnswerRecordMapper;
+import com.gujian.questionnaire.mapper.AnswerSessionMapper;
+import com.gujian.questionnaire.mapper.QuestionBankMapper;
+import com.gujian.questionnaire.service.AnswerKey;
+import com.gujian.questionnaire.service.AnswerKeyCache;
+import com.gujian.questionnaire.service.QuestionStatsService;
+import com.gujian.questionnaire.service.RedisService;
+import com.gujian.questionnaire.service.RescoreService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 重新评分服务实现类
+ *
+ * Redis结构：rescore:job:{任务ID}（Hash），保存任务范围、状态、计数和断点（lastId）。
+ * 每页先在一个数据库事务内写回变化的记录并重新汇总会话总分，提交后再写Redis：题目统计增量、任务计数和断点。
+ * 两步之间中断时，任务从上一个断点重做该页：记录已是新结果，不会重复写回或重复计数，
+ * 但该页的题目统计增量和任务计数会丢失，需执行题目统计全量重建（{@link QuestionStatsService#rebuild()}）修正
+ */
+@Slf4j
+@Service
+public class RescoreServiceImpl implements RescoreService {
+
+    private static final String JOB_KEY_PREFIX = "rescore:job:";
+
+    private static final long JOB_TTL_SECONDS = 7 * 24 * 3600L;
+
+    /**
+     * RUNNING 状态超过该时间未更新视为节点已中断，允许继续
+     */
+    private static final long STALE_MILLIS = 60_000L;
+
+    private static final String STATUS_RUNNING = "RUNNING";
+    private static final String STATUS_COMPLETED = "COMPLETED";
+    private static final String STATUS_FAILED = "FAILED";
+
+    private static final String STATUS = "status";
+    private static final String SCOPE = "scope";
+    private static final String TOTAL = "total";
+    private static final String PROCESSED = "processed";
+    private static final String CHANGED = "changed";
+    private static final String AFFECTED_SESSIONS = "affectedSessions";
+    private static final String LAST_ID = "lastId";
+    private static final String START_TIME = "startTime";
+    private static final String UPDATE_TIME = "updateTime";
+    private static final String ERROR = "error";
+
+    @Value("${app.rescore.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.rescore.parallelism:0}")
+    private int parallelism;
+
+    @Autowired
+    private AnswerRecordMapper answerRecordMapper;
+
+    @Autowired
+    private AnswerSessionMapper answerSessionMapper;
+
+    @Autowired
+    private QuestionBankMapper questionBankMapper;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private QuestionStatsService questionStatsService;
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 评分计算线程池，与公共 ForkJoinPool 隔离
+     */
+    private ForkJoinPool scoringPool;
+
+    /**
+     * 后台任务串行执行，避免多个任务同时占用数据库
+     */
+    private ExecutorService jobExecutor;
+
+    /**
+     * 本节点正在执行的任务
+     */
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        scoringPool = new ForkJoinPool(threads);
+        jobExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "rescore-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        scoringPool.shutdown();
+    }
+
+    @Override
+    public String submit(RescoreDTO scope) {
+        if (scope == null || !scope.hasScope()) {
+            throw new BusinessException(ErrorCode.PARAMETER_INVALID, "请指定题目、会话或答题时间范围");
+        }
+
+        String jobId = UUID.randomUUID().toString().replace("-", "");
+        long now = System.currentTimeMillis();
+        Map<String, Object> job = new HashMap<>();
+        job.put(STATUS, STATUS_RUNNING);
+        job.put(SCOPE, writeScope(scope));
+        job.put(TOTAL, answerRecordMapper.countForRescore(scope));
+        job.put(PROCESSED, 0L);
+        job.put(CHANGED, 0L);
+        job.put(AFFECTED_SESSIONS, 0L);
+        job.put(LAST_ID, 0L);
+        job.put(START_TIME, now);
+        job.put(UPDATE_TIME, now);
+        redisService.hmset(jobKey(jobId), job, JOB_TTL_SECONDS);
+
+        launch(jobId, scope, 0L);
+        log.info("提交重新评分任务: 任务ID={}, 范围={}, 记录数={}", jobId, scope, job.get(TOTAL));
+        return jobId;
+    }
+
+    @Override
+    public RescoreProgressVO resume(String jobId) {
+        RescoreProgressVO progress = getProgress(jobId);
+        if (STATUS_COMPLETED.equals(progress.getStatus()) || runningJobs.contains(jobId)) {
+            return progress;
+        }
+        if (STATUS_RUNNING.equals(progress.getStatus())
+                && System.currentTimeMillis() - progress.getUpdateTime() < STALE_MILLIS) {
+            throw new BusinessException(ErrorCode.BUSINESS_ERROR, "任务正在其他节点执行中");
+        }
+
+        Map<String, Object> update = new HashMap<>();
+        update.put(STATUS, STATUS_RUNNING);
+        update.put(UPDATE_TIME, System.currentTimeMillis());
+        redisService.hmset(jobKey(jobId), update, JOB_TTL_SECONDS);
+        redisService.hdel(jobKey(jobId), ERROR);
+
+        launch(jobId, progress.getScope(), progress.getLastId());
+        log.info("继续重新评分任务: 任务ID={}, 断点ID={}", jobId, progress.getLastId());
+        return getProgress(jobId);
+    }
+
+    @Override
+    public RescoreProgressVO getProgress(String jobId) {
+        Map<Object, Object> job = redisService.hmget(jobKey(jobId));
+        if (job == null || job.isEmpty()) {
+            throw new BusinessException(ErrorCode.NOT_FOUND, "重新评分任务不存在或已过期");
+        }
+
+        RescoreProgressVO progress = new RescoreProgressVO();
+        progress.setJobId(jobId);
+        progress.setStatus((String) job.get(STATUS));
+        progress.setScope(readScope((String) job.get(SCOPE)));
+        progress.setTotal(toLong(job.get(TOTAL)));
+        progress.setProcessed(toLong(job.get(PROCESSED)));
+        progress.setChanged(toLong(job.get(CHANGED)));
+        progress.setAffectedSessions(toLong(job.get(AFFECTED_SESSIONS)));
+        progress.setLastId(toLong(job.get(LAST_ID)));
+        progress.setStartTime(toLong(job.get(START_TIME)));
+        progress.setUpdateTime(toLong(job.get(UPDATE_TIME)));
+        progress.setError((String) job.get(ERROR));
+        if (STATUS_COMPLETED.equals(progress.getStatus())) {
+            progress.setPercent(100.0);
+        } else if (progress.getTotal() > 0) {
+            double percent = Math.min(100.0, progress.getProcessed() * 100.0 / progress.getTotal());
+            progress.setPercent(Math.round(percent * 100) / 100.0);
+        } else {
+            progress.setPercent(0.0);
+        }
+        return progress;
+    }
+
+    @Override
+    public long rescoreNow(RescoreDTO scope) {
+        return run(null, scope, 0L);
+    }
+
+    private void launch(String jobId, RescoreDTO scope, long afterId) {
+        runningJobs.add(jobId);
+        jobExecutor.execute(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                long changed = run(jobId, scope, afterId);
+                redisService.hset(jobKey(jobId), STATUS, STATUS_COMPLETED, JOB_TTL_SECONDS);
+                log.info("重新评分任务完成: 任务ID={}, 变化记录数={}, 耗时{}ms",
+                        jobId, changed, System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                log.error("重新评分任务失败: 任务ID={}, 错误={}", jobId, e.getMessage(), e);
+                Map<String, Object> update = new HashMap<>();
+                update.put(STATUS, STATUS_FAILED);
+                update.put(ERROR, String.valueOf(e.getMessage()));
+                update.put(UPDATE_TIME, System.currentTimeMillis());
+                redisService.hmset(jobKey(jobId), update, JOB_TTL_SECONDS);
+            } finally {
+                runningJobs.remove(jobId);
+            }
+        });
+    }
+
+    /**
+     * 从 afterId 之后按ID游标逐页重新评分
+     * @param jobId 后台任务ID，同步调用时为null（不记录进度）
+     * @return 评分发生变化的记录数
+     */
+    private long run(String jobId, RescoreDTO scope, long afterId) {
+        long changedTotal = 0;
+        while (true) {
+            List<AnswerRecord> page = answerRecordMapper.selectForRescore(scope, afterId, batchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getId();
+            PageResult result = rescorePage(page);
+            changedTotal += result.changed;
+            if (jobId != null) {
+                updateProgress(jobId, afterId, page.size(), result);
+            }
+            if (page.size() < batchSize) {
+                break;
+            }
+        }
+        return changedTotal;
+    }
+
+    /**
+     * 重新评分一页记录：并行计算，只写回发生变化的记录并重新汇总其会话总分
+     */
+    private PageResult rescorePage(List<AnswerRecord> page) {
+        Set<Long> questionIds = page.stream().map(AnswerRecord::getQuestionId).collect(Collectors.toSet());
+        Map<Long, QuestionBank> questions = questionBankMapper.selectBatchIds(questionIds).stream()
+                .collect(Collectors.toMap(QuestionBank::getId, Function.identity()));
+        Map<Long, AnswerKey> keys = new HashMap<>();
+        questions.forEach((id, question) -> keys.put(id, answerKeyCache.get(question)));
+
+        List<ScoreChange> changes;
+        try {
+            changes = scoringPool.submit(() -> page.parallelStream()
+                    .map(record -> rescore(record, questions.get(record.getQuestionId()),
+                            keys.get(record.getQuestionId())))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("重新评分被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("重新评分计算失败: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        PageResult result = new PageResult();
+        if (changes.isEmpty()) {
+            return result;
+        }
+
+        List<AnswerRecord> updates = changes.stream().map(change -> change.update).collect(Collectors.toList());
+        Set<Long> sessionIds = updates.stream().map(AnswerRecord::getSessionId).collect(Collectors.toSet());
+        transactionTemplate.executeWithoutResult(status -> {
+            answerRecordMapper.updateScoresBatch(updates);
+            answerSessionMapper.recomputeFinalScores(sessionIds);
+        });
+
+        // 题目统计按题目合并增量
+        Map<Long, int[]> deltas = new HashMap<>();
+        for (ScoreChange change : changes) {
+            int[] delta = deltas.computeIfAbsent(change.update.getQuestionId(), k -> new int[2]);
+            delta[0] += change.correctDelta;
+            delta[1] += change.scoreDelta;
+        }
+        deltas.forEach((questionId, delta) -> questionStatsService.recordScoreChange(questionId, delta[0], delta[1]));
+
+        result.changed = changes.size();
+        result.sessionIds = sessionIds;
+        return result;
+    }
+
+    /**
+     * 按当前题目答案重新计算单条记录，结果未变化时返回null
+     * 写回时最终得分在SQL中按行内当前的人工评分计算，这里按读取时的人工评分计算的值只用于判断变化和统计增量
+     */
+    private static ScoreChange rescore(AnswerRecord record, QuestionBank question, AnswerKey key) {
+        // 题目已删除或已改为不可自动评分的题型时保持原结果
+        if (question == null || key == null || !isAutoScoredType(question.getType())) {
+            return null;
+        }
+
+        boolean isCorrect = StringUtils.hasText(record.getUserAnswer())
+                && StringUtils.hasText(question.getCorrectAnswer())
+                && key.matches(record.getUserAnswer());
+        int autoScore = isCorrect && question.getScore() != null ? question.getScore() : 0;
+        int manualScore = record.getManualScore() != null ? record.getManualScore() : 0;
+        int finalScore = autoScore + manualScore;
+
+        if (Objects.equals(record.getIsCorrect(), isCorrect)
+                && Objects.equals(record.getAutoScore(), autoScore)
+                && Objects.equals(record.getFinalScore(), finalScore)) {
+            return null;
+        }
+
+        AnswerRecord update = new AnswerRecord();
+        update.setId(record.getId());
+        update.setSessionId(record.getSessionId());
+        update.setQuestionId(record.getQuestionId());
+        update.setIsCorrect(isCorrect);
+        update.setAutoScore(autoScore);
+
+        ScoreChange change = new ScoreChange();
+        change.update = update;
+        change.correctDelta = (isCorrect ? 1 : 0) - (Boolean.TRUE.equals(record.getIsCorrect()) ? 1 : 0);
+        change.scoreDelta = finalScore - (record.getFinalScore() != null ? record.getFinalScore() : 0);
+        return change;
+    }
+
+    private static boolean isAutoScoredType(Integer type) {
+        return type != null && (type == 1 || type == 2 || type == 3 || type == 5);
+    }
+
+    private void updateProgress(String jobId, long lastId, int processed, PageResult result) {
+        String key = jobKey(jobId);
+        redisService.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                ops.opsForHash().increment(key, PROCESSED, processed);
+                ops.opsForHash().increment(key, CHANGED, result.changed);
+                ops.opsForHash().increment(key, AFFECTED_SESSIONS, result.sessionIds.size());
+                ops.opsForHash().put(key, LAST_ID, lastId);
+                ops.opsForHash().put(key, UPDATE_TIME, System.currentTimeMillis());
+                return null;
+            }
+        });
+    }
+
+    private String writeScope(RescoreDTO scope) {
+        try {
+            return objectMapper.writeValueAsString(scope);
+        } catch (Exception e) {
+            throw new BusinessException(ErrorCode.PARAMETER_INVALID, "重新评分范围无法序列化");
+        }
+    }
+
+    private RescoreDTO readScope(String json) {
+        try {
+            return objectMapper.readValue(json, RescoreDTO.class);
+        } catch (Exception e) {
+            throw new BusinessException(ErrorCode.BUSINESS_ERROR, "重新评分任务数据已损坏");
+        }
+    }
+
+    private static String jobKey(String jobId) {
+        return JOB_KEY_PREFIX + jobId;
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return value != null ? Long.parseLong(value.toString()) : 0;
+    }
+
+    private static final class ScoreChange {
+        private AnswerRecord update;
+        private int correctDelta;
+        private int scoreDelta;
+    }
+
+    private static final class PageResult {
+        private int changed;
+        private Set<Long> sessionIds = new HashSet<>();
+    }
+}
@@ -4,15 +4,19 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.gujian.questionnaire.common.enums.ErrorCode;
+import com.gujian.questionnaire.dto.CursorPageVO;
 import com.gujian.questionnaire.dto.ScoringDTO;
 import com.gujian.questionnaire.entity.AnswerRecord;
 import com.gujian.questionnaire.entity.AnswerSession;
 import com.gujian.questionnaire.entity.ScoringRecord;
 import com.gujian.questionnaire.exception.BusinessException;
+import com.gujian.questionnaire.mapper.AnswerRecordMapper;
 import com.gujian.questionnaire.mapper.ScoringRecordMapper;
 import com.gujian.questionnaire.service.AnswerRecordService;
 import com.gujian.questionnaire.service.AnswerSessionService;
+import com.gujian.questionnaire.service.QuestionStatsService;
 import com.gujian.questionnaire.service.ScoringService;
+import com.gujian.questionnaire.utils.KeysetCursor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -33,10 +37,16 @@ public class ScoringServiceImpl extends ServiceImpl<ScoringRecordMapper, Scoring
     
     @Autowired
     private AnswerRecordService answerRecordService;
+
+    @Autowired
+    private AnswerRecordMapper answerRecordMapper;
     
     @Autowired
     private AnswerSessionService answerSessionService;
 
+    @Autowired
+    private QuestionStatsService questionStatsService;
+
     @Override
     @Transactional
     public ScoringRecord createScoringRecord(ScoringDTO scoringDTO, Long scorerId) {
@@ -75,9 +85,13 @@ public class ScoringServiceImpl extends ServiceImpl<ScoringRecordMapper, Scoring
         save(scoringRecord);
         
         // 6. 更新答题记录的人工评分
+        int oldFinalScore = answerRecord.getFinalScore() != null ? answerRecord.getFinalScore() : 0;
+        // 只更新人工评分，最终得分在SQL中按当前自动评分计算（重新评分可能同时写入自动评分）
         answerRecord.setManualScore(scoringDTO.getScore());
         answerRecord.setFinalScore(answerRecord.getAutoScore() + scoringDTO.getScore());
-        answerRecordService.updateById(answerRecord);
+        answerRecordMapper.updateManualScore(answerRecord.getId(), scoringDTO.getScore());
+        questionStatsService.recordScoreChange(answerRecord.getQuestionId(),
+                answerRecord.getFinalScore() - oldFinalScore);
         
         // 7. 更新会话评分状态和总分
         updateSessionScoringStatus(answerRecord.getSessionId());
@@ -115,7 +129,8 @@ public class ScoringServiceImpl extends ServiceImpl<ScoringRecordMapper, Scoring
         Integer scoreDiff = scoringDTO.getScore() - oldScore;
         answerRecord.setManualScore(scoringDTO.getScore());
         answerRecord.setFinalScore(answerRecord.getFinalScore() + scoreDiff);
-        answerRecordService.updateById(answerRecord);
+        answerRecordMapper.updateManualScore(answerRecord.getId(), scoringDTO.getScore());
+        questionStatsService.recordScoreChange(answerRecord.getQuestionId(), scoreDiff);
         
         // 5. 更新会话总分
         AnswerSession session = answerSessionService.getById(answerRecord.getSessionId());
@@ -145,9 +160,7 @@ public class ScoringServiceImpl extends ServiceImpl<ScoringRecordMapper, Scoring
         
         // 3. 更新答题记录的分数
         AnswerRecord answerRecord = answerRecordService.getById(scoringRecord.getAnswerRecordId());
-        answerRecord.setManualScore(0);
-        answerRecord.setFinalScore(answerRecord.getAutoScore());
-        answerRecordService.updateById(answerRecord);
+        answerRecordMapper.updateManualScore(answerRecord.getId(), 0);
         
         // 4. 更新会话评分状态和总分
         updateSessionScoringStatus(answerRecord.getSessionId());
@@ -168,6 +181,20 @@ public class ScoringServiceImpl extends ServiceImpl<ScoringRecordMapper, Scoring
         return result;
     }
 
+    @Override
+    public CursorPageVO<ScoringRecord> getScoringRecordsCursorPage(String cursor, int size, Long sessionId,
+                                                                   Long scorerId, boolean withTotal) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(size);
+        List<ScoringRecord> rows = scoringRecordMapper.selectSeekWithDetails(sessionId, scorerId,
+                position.getTime(), position.getId(), pageSize + 1);
+        Long total = withTotal ? scoringRecordMapper.countScoringRecords(sessionId, scorerId) : null;
+        CursorPageVO<ScoringRecord> result = KeysetCursor.page(rows, pageSize, ScoringRecord::getScoringTime,
+                ScoringRecord::getId, total);
+        result.getRecords().forEach(this::processScoringRecord);
+        return result;
+    }
+
     @Override
     public List<ScoringRecord> getSessionScoringRecords(Long sessionId) {
         List<ScoringRecord> records = scoringRecordMapper.selectBySessionId(sessionId);
@@ -0,0 +1,138 @@
+package com.gujian.questionnaire.service.impl;
+
+import com.gujian.questionnaire.mapper.AnswerSessionMapper;
+import com.gujian.questionnaire.service.SessionExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * 会话导出服务实现类
+ */
+@Slf4j
+@Service
+public class SessionExportServiceImpl implements SessionExportService {
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 导出列：查询列名 -> 表头
+     */
+    private static final String[][] COLUMNS = {
+            {"session_id", "会话ID"},
+            {"session_code", "会话编码"},
+            {"user_name", "用户名"},
+            {"status_name", "会话状态"},
+            {"start_time", "开始时间"},
+            {"end_time", "结束时间"},
+            {"total_count", "题目数"},
+            {"total_score", "总分"},
+            {"session_score", "会话得分"},
+            {"sequence_number", "题序"},
+            {"question_id", "题目ID"},
+            {"question_type", "题型"},
+            {"user_answer", "用户答案"},
+            {"is_correct", "是否正确"},
+            {"auto_score", "自动得分"},
+            {"manual_score", "人工得分"},
+            {"final_score", "最终得分"},
+            {"time_spent_seconds", "用时（秒）"},
+            {"answer_time", "答题时间"}
+    };
+
+    @Autowired
+    private AnswerSessionMapper answerSessionMapper;
+
+    @Override
+    public long exportCsv(String userName, Integer status, String startTime, String endTime, Writer writer) {
+        long start = System.currentTimeMillis();
+        long[] rows = {0};
+        try {
+            // UTF-8 BOM，Excel 直接打开时中文不乱码
+            writer.write('\uFEFF');
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(COLUMNS[i][1]);
+            }
+            writer.write("\r\n");
+
+            answerSessionMapper.streamExportRows(userName, status, startTime, endTime, context -> {
+                writeRow(writer, context.getResultObject());
+                rows[0]++;
+            });
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("导出会话答题明细完成: 行数={}, 耗时{}ms", rows[0], System.currentTimeMillis() - start);
+        return rows[0];
+    }
+
+    private static void writeRow(Writer writer, Map<String, Object> row) {
+        try {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCell(writer, row.get(COLUMNS[i][0]));
+            }
+            writer.write("\r\n");
+        } catch (IOException e) {
+            // 客户端断开等写出失败时终止查询
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCell(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text;
+        if (value instanceof LocalDateTime) {
+            text = ((LocalDateTime) value).format(DATE_TIME_FORMATTER);
+        } else if (value instanceof Date) {
+            text = new Timestamp(((Date) value).getTime()).toLocalDateTime().format(DATE_TIME_FORMATTER);
+        } else if (value instanceof Boolean) {
+            text = (Boolean) value ? "是" : "否";
+        } else {
+            text = value.toString();
+        }
+        if (text.isEmpty()) {
+            return;
+        }
+
+        // 用户输入以公式字符开头时加前缀，防止在表格软件中被当作公式执行
+        char first = text.charAt(0);
+        boolean formula = value instanceof String
+                && (first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r');
+        boolean quote = formula || text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+                || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        if (formula) {
+            writer.write('\'');
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
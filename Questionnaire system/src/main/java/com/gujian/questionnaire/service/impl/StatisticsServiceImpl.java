@@ -0,0 +1,382 @@
+package com.gujian.questionnaire.service.impl;
+
+import com.gujian.questionnaire.entity.StatsDaily;
+import com.gujian.questionnaire.mapper.StatsDailyMapper;
+import com.gujian.questionnaire.service.QuestionSampler;
+import com.gujian.questionnaire.service.RedisService;
+import com.gujian.questionnaire.service.StatisticsService;
+import com.gujian.questionnaire.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 统计服务实现类
+ *
+ * Redis结构：
+ * - stats:totals          总量计数（Hash）
+ * - stats:daily:{日期}     当日事件计数（Hash，保留40天）
+ * 仪表盘只读取上述Hash和内存抽题索引，读取成本与历史数据量无关
+ */
+@Slf4j
+@Service
+public class StatisticsServiceImpl implements StatisticsService {
+
+    private static final String TOTALS_KEY = "stats:totals";
+    private static final String DAILY_PREFIX = "stats:daily:";
+    private static final long DAILY_TTL_SECONDS = 40L * 24 * 3600;
+
+    private static final String STARTED = "started";
+    private static final String IN_PROGRESS = "in_progress";
+    private static final String COMPLETED = "completed";
+    private static final String TIMEOUT = "timeout";
+    private static final String ABANDONED = "abandoned";
+    private static final String ANSWERS = "answers";
+    private static final String USERS = "users";
+
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private StatsDailyMapper statsDailyMapper;
+
+    @Autowired
+    private QuestionSampler questionSampler;
+
+    @Value("${app.statistics.reconcile-days:7}")
+    private int reconcileDays;
+
+    @Override
+    public void recordSessionTransition(Integer fromStatus, Integer toStatus) {
+        recordSessionTransition(fromStatus, toStatus, 1);
+    }
+
+    @Override
+    public void recordSessionTransition(Integer fromStatus, Integer toStatus, int count) {
+        if (toStatus == null || toStatus.equals(fromStatus) || count <= 0) {
+            return;
+        }
+        long n = count;
+
+        Map<String, Long> totals = new HashMap<>();
+        Map<String, Long> daily = new HashMap<>();
+
+        if (fromStatus == null && toStatus == 1) {
+            totals.put(STARTED, n);
+            daily.put(STARTED, n);
+        }
+        // 进行中会话数
+        if (toStatus == 1) {
+            totals.merge(IN_PROGRESS, n, Long::sum);
+        }
+        if (fromStatus != null && fromStatus == 1) {
+            totals.merge(IN_PROGRESS, -n, Long::sum);
+        }
+        // 结束状态：总量从原结束状态移到新结束状态，当日只记录新事件
+        String fromField = terminalField(fromStatus);
+        if (fromField != null) {
+            totals.merge(fromField, -n, Long::sum);
+        }
+        String toField = terminalField(toStatus);
+        if (toField != null) {
+            totals.merge(toField, n, Long::sum);
+            daily.put(toField, n);
+        }
+
+        increment(totals, daily);
+    }
+
+    @Override
+    public void recordAnswers(int count) {
+        if (count <= 0) {
+            return;
+        }
+        Map<String, Long> delta = new HashMap<>();
+        delta.put(ANSWERS, (long) count);
+        increment(delta, delta);
+    }
+
+    @Override
+    public void recordUsers(int delta) {
+        if (delta == 0) {
+            return;
+        }
+        Map<String, Long> totals = new HashMap<>();
+        totals.put(USERS, (long) delta);
+        increment(totals, new HashMap<>());
+    }
+
+    @Override
+    public Map<String, Object> getDashboardStats() {
+        Map<Object, Object> totals = redisService.hmget(TOTALS_KEY);
+
+        long completed = getLong(totals, COMPLETED);
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalQuestions", questionSampler.size()); // 总题目数
+        stats.put("totalSessions", getLong(totals, STARTED)); // 总会话数
+        stats.put("completedSessions", completed); // 已完成会话数
+        stats.put("totalUsers", getLong(totals, USERS)); // 总用户数
+        stats.put("totalAnswers", getLong(totals, ANSWERS)); // 总答题数
+
+        // 会话状态分布
+        stats.put("draftCount", Math.max(0, getLong(totals, IN_PROGRESS))); // 进行中
+        stats.put("publishedCount", completed); // 已完成
+        stats.put("endedCount", getLong(totals, TIMEOUT) + getLong(totals, ABANDONED)); // 已超时/放弃
+
+        // 题型分布（来自内存抽题索引）
+        Map<Integer, Integer> typeCounts = questionSampler.countByType();
+        Map<String, Object> questionStats = new HashMap<>();
+        questionStats.put("total", questionSampler.size());
+        questionStats.put("single_choice", typeCounts.getOrDefault(1, 0));
+        questionStats.put("multiple_choice", typeCounts.getOrDefault(2, 0));
+        questionStats.put("fill_blank", typeCounts.getOrDefault(3, 0));
+        questionStats.put("essay", typeCounts.getOrDefault(4, 0));
+        questionStats.put("rating", typeCounts.getOrDefault(5, 0));
+        stats.put("questionStats", questionStats);
+
+        return stats;
+    }
+
+    @Override
+    public Map<String, Object> getTrend(int days) {
+        int range = Math.max(1, Math.min(days, 90));
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(range - 1);
+
+        Map<LocalDate, StatsDaily> rows = statsDailyMapper.selectRange(from, today).stream()
+                .collect(Collectors.toMap(StatsDaily::getStatDate, Function.identity()));
+        // 当日数据以Redis实时计数为准
+        rows.put(today, readDaily(today));
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM-dd");
+        List<String> dates = new ArrayList<>(range);
+        List<Integer> counts = new ArrayList<>(range);
+        List<Integer> completedCounts = new ArrayList<>(range);
+        List<Integer> answerCounts = new ArrayList<>(range);
+        for (LocalDate date = from; !date.isAfter(today); date = date.plusDays(1)) {
+            StatsDaily row = rows.get(date);
+            dates.add(date.format(formatter));
+            counts.add(row != null ? row.getSessionsStarted() : 0);
+            completedCounts.add(row != null ? row.getSessionsCompleted() : 0);
+            answerCounts.add(row != null ? row.getAnswersSubmitted() : 0);
+        }
+
+        Map<String, Object> trendData = new HashMap<>();
+        trendData.put("dates", dates);
+        trendData.put("counts", counts);
+        trendData.put("completedCounts", completedCounts);
+        trendData.put("answerCounts", answerCounts);
+        return trendData;
+    }
+
+    /**
+     * 定期将当日和昨日的Redis计数刷入 stats_daily（覆盖写，可在多个节点重复执行）
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${app.statistics.flush-interval:300000}")
+    public void flushDailyStats() {
+        try {
+            LocalDate today = LocalDate.now();
+            statsDailyMapper.upsert(readDaily(today.minusDays(1)));
+            statsDailyMapper.upsert(readDaily(today));
+        } catch (Exception e) {
+            log.error("每日统计刷入失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 对账：按原始数据重算总量和最近几天的每日统计，校正增量计数的偏差
+     */
+    @Override
+    @Scheduled(cron = "${app.statistics.reconcile-cron:0 30 3 * * ?}")
+    public void reconcile() {
+        try {
+            long start = System.currentTimeMillis();
+
+            // 1. 总量
+            Map<String, Object> totals = new HashMap<>();
+            long started = 0;
+            for (Map<String, Object> row : statsDailyMapper.countSessionsByStatus()) {
+                long count = toLong(row.get("cnt"));
+                started += count;
+                Integer status = row.get("status") != null ? ((Number) row.get("status")).intValue() : null;
+                if (status != null && status == 1) {
+                    totals.put(IN_PROGRESS, count);
+                }
+                String field = terminalField(status);
+                if (field != null) {
+                    totals.put(field, count);
+                }
+            }
+            totals.putIfAbsent(IN_PROGRESS, 0L);
+            totals.putIfAbsent(COMPLETED, 0L);
+            totals.putIfAbsent(TIMEOUT, 0L);
+            totals.putIfAbsent(ABANDONED, 0L);
+            totals.put(STARTED, started);
+            totals.put(ANSWERS, statsDailyMapper.countAnswers());
+            totals.put(USERS, statsDailyMapper.countUsers());
+            redisService.hmset(TOTALS_KEY, totals);
+
+            // 2. 最近几天的每日统计
+            LocalDate today = LocalDate.now();
+            LocalDate from = today.minusDays(Math.max(1, reconcileDays) - 1);
+            Map<LocalDate, StatsDaily> days = new LinkedHashMap<>();
+            for (LocalDate date = from; !date.isAfter(today); date = date.plusDays(1)) {
+                StatsDaily day = new StatsDaily();
+                day.setStatDate(date);
+                days.put(date, day);
+            }
+            for (Map<String, Object> row : statsDailyMapper.countStartedByDay(from.atStartOfDay())) {
+                StatsDaily day = days.get(toDate(row.get("stat_date")));
+                if (day != null) {
+                    day.setSessionsStarted((int) toLong(row.get("cnt")));
+                }
+            }
+            for (Map<String, Object> row : statsDailyMapper.countEndedByDay(from.atStartOfDay())) {
+                StatsDaily day = days.get(toDate(row.get("stat_date")));
+                if (day == null) {
+                    continue;
+                }
+                int count = (int) toLong(row.get("cnt"));
+                switch (((Number) row.get("status")).intValue()) {
+                    case 2: day.setSessionsCompleted(count); break;
+                    case 3: day.setSessionsTimeout(count); break;
+                    case 4: day.setSessionsAbandoned(count); break;
+                    default: break;
+                }
+            }
+            for (Map<String, Object> row : statsDailyMapper.countAnswersByDay(from.atStartOfDay())) {
+                StatsDaily day = days.get(toDate(row.get("stat_date")));
+                if (day != null) {
+                    day.setAnswersSubmitted((int) toLong(row.get("cnt")));
+                }
+            }
+            for (StatsDaily day : days.values()) {
+                statsDailyMapper.upsert(day);
+                writeDaily(day);
+            }
+
+            log.info("统计对账完成: 总会话数={}, 对账天数={}, 耗时{}ms",
+                    started, days.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("统计对账失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 首次启动（Redis中没有总量计数）时执行一次对账
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initIfAbsent() {
+        if (!redisService.hasKey(TOTALS_KEY)) {
+            reconcile();
+        }
+    }
+
+    /**
+     * 事务提交后以一次管道调用写入总量和当日计数
+     */
+    private void increment(Map<String, Long> totals, Map<String, Long> daily) {
+        if (totals.isEmpty() && daily.isEmpty()) {
+            return;
+        }
+        String dailyKey = DAILY_PREFIX + LocalDate.now();
+        TransactionUtils.afterCommit(() -> {
+            try {
+                redisService.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                        RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                        totals.forEach((field, delta) -> ops.opsForHash().increment(TOTALS_KEY, field, delta));
+                        if (!daily.isEmpty()) {
+                            daily.forEach((field, delta) -> ops.opsForHash().increment(dailyKey, field, delta));
+                            ops.expire(dailyKey, DAILY_TTL_SECONDS, TimeUnit.SECONDS);
+                        }
+                        return null;
+                    }
+                });
+            } catch (Exception e) {
+                // 计数失败不影响业务，偏差由对账任务校正
+                log.warn("统计计数写入失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    private StatsDaily readDaily(LocalDate date) {
+        Map<Object, Object> values = redisService.hmget(DAILY_PREFIX + date);
+        StatsDaily day = new StatsDaily();
+        day.setStatDate(date);
+        day.setSessionsStarted((int) getLong(values, STARTED));
+        day.setSessionsCompleted((int) getLong(values, COMPLETED));
+        day.setSessionsTimeout((int) getLong(values, TIMEOUT));
+        day.setSessionsAbandoned((int) getLong(values, ABANDONED));
+        day.setAnswersSubmitted((int) getLong(values, ANSWERS));
+        return day;
+    }
+
+    private void writeDaily(StatsDaily day) {
+        Map<String, Object> values = new HashMap<>();
+        values.put(STARTED, day.getSessionsStarted());
+        values.put(COMPLETED, day.getSessionsCompleted());
+        values.put(TIMEOUT, day.getSessionsTimeout());
+        values.put(ABANDONED, day.getSessionsAbandoned());
+        values.put(ANSWERS, day.getAnswersSubmitted());
+        redisService.hmset(DAILY_PREFIX + day.getStatDate(), values, DAILY_TTL_SECONDS);
+    }
+
+    /**
+     * 结束状态对应的计数字段：2-已完成 3-已超时 4-已放弃
+     */
+    private static String terminalField(Integer status) {
+        if (status == null) {
+            return null;
+        }
+        switch (status) {
+            case 2: return COMPLETED;
+            case 3: return TIMEOUT;
+            case 4: return ABANDONED;
+            default: return null;
+        }
+    }
+
+    private static long getLong(Map<Object, Object> map, String field) {
+        return map != null ? toLong(map.get(field)) : 0;
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return value != null ? Long.parseLong(value.toString()) : 0;
+    }
+
+    private static LocalDate toDate(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).toLocalDate();
+        }
+        if (value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        return value != null ? LocalDate.parse(value.toString()) : null;
+    }
+}
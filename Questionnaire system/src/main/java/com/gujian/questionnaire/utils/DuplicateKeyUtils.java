@@ -0,0 +1,44 @@
+package com.gujian.questionnaire.utils;
+
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 唯一索引冲突工具类
+ */
+public class DuplicateKeyUtils {
+
+    /**
+     * MySQL冲突信息：Duplicate entry '...' for key 'uk_xxx'（8.0起为 'table.uk_xxx'）
+     */
+    private static final Pattern KEY_PATTERN = Pattern.compile("for key '(?:[^'.]*\\.)?([^'.]+)'");
+
+    private DuplicateKeyUtils() {
+    }
+
+    /**
+     * 解析冲突的唯一索引名，无法识别时返回null
+     * 冲突值可能包含客户端提交的内容，取最后一处匹配
+     */
+    public static String violatedKey(DuplicateKeyException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        if (message == null) {
+            return null;
+        }
+        String key = null;
+        Matcher matcher = KEY_PATTERN.matcher(message);
+        while (matcher.find()) {
+            key = matcher.group(1);
+        }
+        return key;
+    }
+
+    /**
+     * 是否为指定唯一索引的冲突
+     */
+    public static boolean isViolated(DuplicateKeyException e, String keyName) {
+        return keyName.equalsIgnoreCase(violatedKey(e));
+    }
+}
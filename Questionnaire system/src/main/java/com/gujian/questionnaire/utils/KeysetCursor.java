@@ -0,0 +1,89 @@
+package com.gujian.questionnaire.utils;
+
+import com.gujian.questionnaire.common.enums.ErrorCode;
+import com.gujian.questionnaire.dto.CursorPageVO;
+import com.gujian.questionnaire.exception.BusinessException;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 键集（seek）分页游标
+ *
+ * 列表按 (时间, id) 倒序排列，游标记录上一页最后一行的 (时间, id)，下一页查询条件为
+ * 时间 &lt; 游标时间 OR (时间 = 游标时间 AND id &lt; 游标id)，可直接沿索引定位，
+ * 耗时与页深度无关。游标对客户端不透明（URL安全的Base64）
+ */
+public final class KeysetCursor {
+
+    /**
+     * 单页最大条数（与分页插件上限一致）
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final LocalDateTime time;
+
+    private final Long id;
+
+    private KeysetCursor(LocalDateTime time, Long id) {
+        this.time = time;
+        this.id = id;
+    }
+
+    /**
+     * 解析游标，首页（空游标）返回的 time/id 均为null
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return new KeysetCursor(null, null);
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.valueOf(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new BusinessException(ErrorCode.PARAMETER_INVALID, "无效的分页游标");
+        }
+    }
+
+    public static String encode(LocalDateTime time, Long id) {
+        String raw = time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 限制单页条数
+     */
+    public static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * 由多查询一行（size + 1）的结果构造分页结果
+     * @param rows 按 (时间, id) 倒序的查询结果，最多 size + 1 行
+     * @param total 总数，未统计时为null
+     */
+    public static <T> CursorPageVO<T> page(List<T> rows, int size, Function<T, LocalDateTime> timeOf,
+                                           Function<T, Long> idOf, Long total) {
+        boolean hasMore = rows.size() > size;
+        List<T> records = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            T last = records.get(records.size() - 1);
+            nextCursor = encode(timeOf.apply(last), idOf.apply(last));
+        }
+        return new CursorPageVO<>(records, nextCursor, hasMore, total);
+    }
+
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -2,6 +2,7 @@ package com.gujian.questionnaire.utils;
 
 import com.gujian.questionnaire.entity.User;
 import com.gujian.questionnaire.entity.UserRole;
+import com.gujian.questionnaire.security.UserPrincipalCache;
 import com.gujian.questionnaire.service.AuthService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,7 +17,7 @@ import java.util.Map;
  * 
  * 功能：
  * 1. 从Spring Security上下文获取当前用户信息
- * 2. 从Redis缓存中组装完整的用户对象
+ * 2. 优先使用认证过滤器放入Security上下文的User对象，其次本地缓存，最后从Redis组装
  * 3. 提供便捷的用户信息获取方法
  * 4. 统一异常处理和日志记录
  * 
@@ -33,6 +34,9 @@ public class UserContextUtils {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     /**
      * 获取当前登录的用户名
      * @return 用户名，未登录返回null
@@ -62,18 +66,29 @@ public class UserContextUtils {
     }
 
     /**
-     * 获取当前用户的完整信息（从Redis组装）
+     * 获取当前用户的完整信息
+     * 认证过滤器每个请求只解析一次用户并放入Security上下文，此处直接复用
      * @return User对象，获取失败返回null
      */
     public User getCurrentUser() {
         try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof User) {
+                return (User) authentication.getPrincipal();
+            }
+
             String username = getCurrentUsername();
             if (username == null) {
                 log.debug("未找到当前登录用户");
                 return null;
             }
 
-            return assembleUserFromRedis(username);
+            User user = userPrincipalCache.get(username);
+            if (user == null) {
+                user = assembleUserFromRedis(username);
+                userPrincipalCache.put(user);
+            }
+            return user;
         } catch (Exception e) {
             log.error("获取当前用户信息失败: {}", e.getMessage());
             return null;
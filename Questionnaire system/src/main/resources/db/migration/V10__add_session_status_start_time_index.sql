@@ -0,0 +1,3 @@
+-- 超时扫描按 status = 1 过滤并按 start_time 从早到晚锁定到期会话
+-- 复合索引可直接按开始时间顺序读取进行中会话，无需先取出全部进行中会话再排序
+ALTER TABLE answer_session ADD INDEX idx_status_start_time (status, start_time);
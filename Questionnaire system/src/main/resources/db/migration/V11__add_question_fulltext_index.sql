@@ -0,0 +1,15 @@
+-- 题目全文检索：ngram 解析器按 ngram_token_size（默认2）切分，中文无需分词器
+-- 替代 content/options LIKE '%关键词%' 全表扫描，按相关度排序
+
+-- ngram 会丢弃包含停用词的词元（默认停用词表含单字母 a、i 等），建索引前关闭停用词
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+-- options 为 JSON 类型不能建全文索引，用存储生成列保存其文本，随 options 自动更新
+ALTER TABLE question_bank
+    ADD COLUMN options_text TEXT GENERATED ALWAYS AS (JSON_UNQUOTE(options)) STORED COMMENT '选项文本（全文检索用）';
+
+-- 标题单独建索引用于提高标题命中的权重
+ALTER TABLE question_bank ADD FULLTEXT INDEX ft_question_title (title) WITH PARSER ngram;
+
+ALTER TABLE question_bank
+    ADD FULLTEXT INDEX ft_question_search (title, content, options_text, tags, explanation) WITH PARSER ngram;
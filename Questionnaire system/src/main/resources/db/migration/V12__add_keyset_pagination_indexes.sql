@@ -0,0 +1,20 @@
+-- 键集分页按 (create_time, id) 倒序读取会话，二级索引隐含主键id，可直接沿索引定位游标位置
+-- init.sql 和 fix_answer_session.sql 已创建过同名索引 idx_create_time，索引不存在时才创建
+SET @sql = IF(
+    (SELECT COUNT(*) FROM information_schema.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'answer_session' AND INDEX_NAME = 'idx_create_time') = 0,
+    'ALTER TABLE answer_session ADD INDEX idx_create_time (create_time)',
+    'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 用户自己的会话列表按用户过滤后同样按创建时间倒序
+SET @sql = IF(
+    (SELECT COUNT(*) FROM information_schema.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'answer_session' AND INDEX_NAME = 'idx_user_create_time') = 0,
+    'ALTER TABLE answer_session ADD INDEX idx_user_create_time (user_id, create_time)',
+    'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,22 @@
+-- 会话内答题序号改由原子计数器分配，以 (session_id, sequence_number) 唯一约束兜底，防止并发提交得到相同序号
+
+-- 先将存在重复序号的会话按原序号和ID重新编号
+UPDATE answer_record r
+JOIN (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY session_id ORDER BY sequence_number, id) AS rn
+    FROM answer_record
+    WHERE session_id IN (
+        SELECT session_id FROM (
+            SELECT session_id
+            FROM answer_record
+            GROUP BY session_id, sequence_number
+            HAVING COUNT(*) > 1
+        ) d
+    )
+) t ON r.id = t.id
+SET r.sequence_number = t.rn;
+
+-- 唯一索引以 session_id 开头，可替代原 idx_session
+ALTER TABLE answer_record
+    ADD UNIQUE KEY uk_session_sequence (session_id, sequence_number),
+    DROP INDEX idx_session;
@@ -0,0 +1,26 @@
+-- 答题提交改为由唯一索引判定重复：同一会话同一题目只保留一条记录，客户端幂等键在会话内唯一
+
+-- 清理并发重复提交产生的重复记录（保留最早的一条），并重算受影响会话的得分
+CREATE TEMPORARY TABLE tmp_duplicate_answer AS
+SELECT r.id, r.session_id
+FROM answer_record r
+JOIN answer_record k ON k.session_id = r.session_id AND k.question_id = r.question_id AND k.id < r.id;
+
+DELETE s FROM scoring_record s JOIN tmp_duplicate_answer d ON s.answer_record_id = d.id;
+DELETE r FROM answer_record r JOIN tmp_duplicate_answer d ON r.id = d.id;
+
+UPDATE answer_session s
+JOIN (
+    SELECT session_id, COALESCE(SUM(final_score), 0) AS total
+    FROM answer_record
+    WHERE session_id IN (SELECT session_id FROM tmp_duplicate_answer)
+    GROUP BY session_id
+) t ON s.id = t.session_id
+SET s.final_score = t.total;
+
+DROP TEMPORARY TABLE tmp_duplicate_answer;
+
+ALTER TABLE answer_record
+    ADD COLUMN idempotency_key VARCHAR(64) NULL COMMENT '客户端幂等键（重试时重复提交同一键返回原记录）' AFTER sequence_number,
+    ADD UNIQUE KEY uk_session_question (session_id, question_id),
+    ADD UNIQUE KEY uk_session_idempotency (session_id, idempotency_key);
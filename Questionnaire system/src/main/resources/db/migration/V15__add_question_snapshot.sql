@@ -0,0 +1,52 @@
+-- 题目快照从答题记录中拆出：每个题目版本只保存一份，答题记录只引用快照ID
+-- content_hash = SHA-256(题目描述 \0 选项 \0 正确答案)，与 QuestionSnapshotServiceImpl 中的计算方式一致
+
+CREATE TABLE IF NOT EXISTS question_snapshot (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '快照ID',
+    question_id BIGINT NOT NULL COMMENT '题目ID',
+    version INT NOT NULL COMMENT '快照版本（同一题目内递增）',
+    content_hash CHAR(64) NOT NULL COMMENT '快照内容哈希',
+    content TEXT COMMENT '题目描述快照（标题 + 描述）',
+    options JSON COMMENT '题目选项快照',
+    correct_answer TEXT COMMENT '正确答案快照',
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+
+    UNIQUE KEY uk_question_version (question_id, version),
+    UNIQUE KEY uk_question_hash (question_id, content_hash)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='题目快照表';
+
+ALTER TABLE answer_record
+    ADD COLUMN snapshot_id BIGINT NULL COMMENT '题目快照ID' AFTER question_type;
+
+-- 已有答题记录按内容去重生成快照，版本按首次出现的顺序编号
+INSERT INTO question_snapshot (question_id, version, content_hash, content, options, correct_answer, create_time)
+SELECT question_id,
+       ROW_NUMBER() OVER (PARTITION BY question_id ORDER BY first_id),
+       content_hash, content, options, correct_answer, first_time
+FROM (
+    SELECT question_id, content_hash,
+           MIN(id) AS first_id,
+           MIN(answer_time) AS first_time,
+           ANY_VALUE(question_content) AS content,
+           ANY_VALUE(question_options) AS options,
+           ANY_VALUE(correct_answer) AS correct_answer
+    FROM (
+        SELECT id, question_id, answer_time, question_content, question_options, correct_answer,
+               SHA2(CONCAT(COALESCE(question_content, ''), CHAR(0), COALESCE(question_options, ''), CHAR(0),
+                           COALESCE(correct_answer, '')), 256) AS content_hash
+        FROM answer_record
+    ) h
+    GROUP BY question_id, content_hash
+) s;
+
+UPDATE answer_record r
+JOIN question_snapshot s
+  ON s.question_id = r.question_id
+ AND s.content_hash = SHA2(CONCAT(COALESCE(r.question_content, ''), CHAR(0), COALESCE(r.question_options, ''), CHAR(0),
+                                  COALESCE(r.correct_answer, '')), 256)
+SET r.snapshot_id = s.id;
+
+ALTER TABLE answer_record
+    DROP COLUMN question_content,
+    DROP COLUMN question_options,
+    DROP COLUMN correct_answer;
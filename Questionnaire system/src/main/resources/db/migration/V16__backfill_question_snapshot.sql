@@ -0,0 +1,24 @@
+-- 为尚无当前内容快照的题目补建快照，答题时只需读取已有快照
+-- content = 标题 + '\n' + 描述（null按字符串 'null' 拼接），与 QuestionSnapshotServiceImpl 中的计算方式一致
+
+INSERT INTO question_snapshot (question_id, version, content_hash, content, options, correct_answer)
+SELECT q.id, COALESCE(v.max_version, 0) + 1, q.content_hash, q.content, q.options, q.correct_answer
+FROM (
+    SELECT id, content, options, correct_answer,
+           SHA2(CONCAT(content, CHAR(0), COALESCE(options, ''), CHAR(0), COALESCE(correct_answer, '')), 256) AS content_hash
+    FROM (
+        SELECT id, CONCAT(COALESCE(title, 'null'), CHAR(10), COALESCE(content, 'null')) AS content,
+               options, correct_answer
+        FROM question_bank
+        WHERE deleted = 0
+    ) c
+) q
+LEFT JOIN (
+    SELECT question_id, MAX(version) AS max_version
+    FROM question_snapshot
+    GROUP BY question_id
+) v ON v.question_id = q.id
+WHERE NOT EXISTS (
+    SELECT 1 FROM question_snapshot s
+    WHERE s.question_id = q.id AND s.content_hash = q.content_hash
+);
@@ -0,0 +1,18 @@
+-- 新增会话题目顺序表 answer_session_question
+-- 替代 state_data.questionIds 的 JSON 解析（原查询最多只能取出20道题）
+
+CREATE TABLE IF NOT EXISTS answer_session_question (
+    session_id BIGINT NOT NULL COMMENT '会话ID',
+    idx INT NOT NULL COMMENT '题目序号（从0开始）',
+    question_id BIGINT NOT NULL COMMENT '题目ID',
+    PRIMARY KEY (session_id, idx)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='答题会话题目顺序表';
+
+-- 迁移已有会话的题目列表
+INSERT IGNORE INTO answer_session_question (session_id, idx, question_id)
+SELECT s.id, jt.idx - 1, jt.question_id
+FROM answer_session s,
+     JSON_TABLE(s.state_data, '$.questionIds[*]'
+         COLUMNS (idx FOR ORDINALITY, question_id BIGINT PATH '$')) jt
+WHERE s.state_data IS NOT NULL
+  AND jt.question_id IS NOT NULL;
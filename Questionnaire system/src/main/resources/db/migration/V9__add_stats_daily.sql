@@ -0,0 +1,15 @@
+-- 新增每日统计汇总表 stats_daily
+-- 仪表盘趋势数据从该表读取，由Redis实时计数定期刷入，并由对账任务按原始数据校正
+
+CREATE TABLE IF NOT EXISTS stats_daily (
+    stat_date DATE PRIMARY KEY COMMENT '统计日期',
+    sessions_started INT NOT NULL DEFAULT 0 COMMENT '开始的会话数',
+    sessions_completed INT NOT NULL DEFAULT 0 COMMENT '完成的会话数',
+    sessions_timeout INT NOT NULL DEFAULT 0 COMMENT '超时的会话数',
+    sessions_abandoned INT NOT NULL DEFAULT 0 COMMENT '放弃的会话数',
+    answers_submitted INT NOT NULL DEFAULT 0 COMMENT '提交的答案数',
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='每日统计汇总表';
+
+-- 对账任务按结束时间汇总会话
+ALTER TABLE answer_session ADD INDEX idx_end_time (end_time);
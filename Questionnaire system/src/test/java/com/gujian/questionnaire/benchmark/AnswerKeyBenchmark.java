@@ -0,0 +1,153 @@
+package com.gujian.questionnaire.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.service.AnswerKey;
+import com.gujian.questionnaire.support.LegacyAnswerComparison;
+import com.gujian.questionnaire.support.MicroBenchmark;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 评分判定：原 compareSingleChoice / compareMultipleChoice / compareFillBlank 与 AnswerKey.matches 的对比
+ * 在随机生成的答题语料上校验判定结果一致，测量每次判定的耗时和分配字节数：
+ * 单选/评分题和选项可解析的多选题判定不分配内存
+ * 不属于常规测试，需显式运行：mvn test -Dtest=AnswerKeyBenchmark
+ */
+@Slf4j
+class AnswerKeyBenchmark {
+
+    private static final int CASES = 4096;
+
+    private static final TypeReference<List<String>> OPTION_LIST_TYPE = new TypeReference<List<String>>() {
+    };
+
+    private static final List<String> OPTION_SETS = Arrays.asList(
+            "[\"北京\",\" 上海 \",\"广州\",\"深圳\"]",
+            "[\"非常满意\",\"满意\",\"一般\",\"不满意\",\"非常不满意\"]",
+            null);
+
+    private static final List<String> CHOICE_ANSWERS = Arrays.asList(
+            "A", "b", "C", "d", "E", " B ", "北京", "上海", "广州", "深圳", "满意", "一般", "杭州");
+
+    private static final List<String> MULTIPLE_ANSWERS = Arrays.asList(
+            "A,C", "c,a", "B,D", "D,B,", "A,B,C", "北京,广州", "A,广州", "b,深圳", "A", "A, C ", "B,D,杭州");
+
+    private static final List<String> BLANK_ANSWERS = Arrays.asList(
+            "Java；JVM|jdk", "java", " JDK ", "jdk、java，JVM", "python", "3.14", "3.140", "03.14", "pi",
+            "Hello World", "hello world", "北京");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void answerKeyMatchesLegacyFasterWithoutAllocation() throws Exception {
+        List<Case> corpus = corpus();
+        for (Case c : corpus) {
+            assertEquals(LegacyAnswerComparison.compare(c.type, c.user, c.correct, c.options), c.key.matches(c.user),
+                    () -> "判定结果不一致: type=" + c.type + ", correct=" + c.correct + ", user=" + c.user
+                            + ", options=" + c.optionsJson);
+        }
+
+        List<MicroBenchmark.Result> all = compare("全部题型", corpus, c -> true);
+        List<MicroBenchmark.Result> single = compare("单选/评分题", corpus, c -> c.type == 1 || c.type == 5);
+        List<MicroBenchmark.Result> multiple = compare("多选题（选项可解析）", corpus, c -> c.type == 2 && c.options != null);
+        compare("多选题（选项无法解析）", corpus, c -> c.type == 2 && c.options == null);
+        compare("填空题", corpus, c -> c.type == 3);
+
+        assertTrue(all.get(2).getNanosPerOp() < all.get(1).getNanosPerOp(), "AnswerKey 应快于原比较逻辑（选项已解析）");
+
+        // 单选/评分题和选项可解析的多选题只做区间比较和位运算，不分配对象
+        assertTrue(single.get(2).getBytesPerOp() < 1, () -> "单选/评分题判定分配了内存: " + single.get(2));
+        assertTrue(multiple.get(2).getBytesPerOp() < 1, () -> "多选题判定分配了内存: " + multiple.get(2));
+    }
+
+    /**
+     * 对同一批语料分别测量：原比较逻辑（每次解析选项JSON）、原比较逻辑（选项已解析）、AnswerKey
+     * 原实现只在直接比较不一致时才解析选项，第一项是其上限；加速比按第二项计算
+     */
+    private List<MicroBenchmark.Result> compare(String name, List<Case> corpus, Predicate<Case> filter) {
+        List<Case> cases = subset(corpus, filter);
+        MicroBenchmark.Result legacyParsing = MicroBenchmark.measure("原逻辑（每次解析选项）", cases.size(), i -> {
+            Case c = cases.get(i);
+            return LegacyAnswerComparison.compare(c.type, c.user, c.correct, parseOptions(c.optionsJson));
+        });
+        MicroBenchmark.Result legacy = MicroBenchmark.measure("原逻辑（选项已解析）", cases.size(), i -> {
+            Case c = cases.get(i);
+            return LegacyAnswerComparison.compare(c.type, c.user, c.correct, c.options);
+        });
+        MicroBenchmark.Result key = MicroBenchmark.measure("AnswerKey.matches", cases.size(), i -> {
+            Case c = cases.get(i);
+            return c.key.matches(c.user);
+        });
+        assertEquals(legacy.getMatched(), key.getMatched());
+        assertEquals(legacyParsing.getMatched(), key.getMatched());
+
+        log.info("{}（{} 条，判定正确 {} 条）:\n  {}\n  {}\n  {}\n  加速比 {}", name, cases.size(), key.getMatched(),
+                legacyParsing, legacy, key, String.format("%.1fx", legacy.getNanosPerOp() / key.getNanosPerOp()));
+        return Arrays.asList(legacyParsing, legacy, key);
+    }
+
+    private List<Case> corpus() throws Exception {
+        Random random = new Random(20261018L);
+        List<Case> corpus = new ArrayList<>(CASES);
+        int[] types = {1, 2, 3, 5};
+        for (int i = 0; i < CASES; i++) {
+            Case c = new Case();
+            c.type = types[random.nextInt(types.length)];
+            c.optionsJson = c.type == 3 ? null : OPTION_SETS.get(random.nextInt(OPTION_SETS.size()));
+            c.options = c.optionsJson != null ? objectMapper.readValue(c.optionsJson, OPTION_LIST_TYPE) : null;
+            List<String> pool = c.type == 2 ? MULTIPLE_ANSWERS : c.type == 3 ? BLANK_ANSWERS : CHOICE_ANSWERS;
+            c.correct = pool.get(random.nextInt(pool.size()));
+            // 约一半的答案与正确答案相同（或为其另一种写法），其余随机
+            c.user = random.nextBoolean() ? c.correct : pool.get(random.nextInt(pool.size()));
+
+            QuestionBank question = new QuestionBank();
+            question.setId((long) i);
+            question.setType(c.type);
+            question.setCorrectAnswer(c.correct);
+            c.key = AnswerKey.compile(question, c.options);
+            corpus.add(c);
+        }
+        return corpus;
+    }
+
+    private List<String> parseOptions(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, OPTION_LIST_TYPE);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static List<Case> subset(List<Case> corpus, Predicate<Case> filter) {
+        List<Case> cases = new ArrayList<>();
+        for (Case c : corpus) {
+            if (filter.test(c)) {
+                cases.add(c);
+            }
+        }
+        return cases;
+    }
+
+    private static final class Case {
+        private int type;
+        private String optionsJson;
+        private List<String> options;
+        private String correct;
+        private String user;
+        private AnswerKey key;
+    }
+}
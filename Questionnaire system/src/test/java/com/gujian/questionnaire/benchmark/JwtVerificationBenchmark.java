@@ -0,0 +1,114 @@
+package com.gujian.questionnaire.benchmark;
+
+import com.gujian.questionnaire.common.JwtClaims;
+import com.gujian.questionnaire.common.JwtTokenProvider;
+import com.gujian.questionnaire.entity.UserRole;
+import com.gujian.questionnaire.support.MicroBenchmark;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 每个请求的JWT认证开销：原实现（validateToken + getUsernameFromToken + getRoleFromToken，
+ * 每次调用都重新构建密钥和解析器并校验签名）、parseVerified 缓存未命中（一次签名校验）、
+ * parseVerified 缓存命中（只计算令牌摘要并查缓存）
+ * 不属于常规测试，需显式运行：mvn test -Dtest=JwtVerificationBenchmark
+ */
+@Slf4j
+class JwtVerificationBenchmark {
+
+    private static final String SECRET = "dGhpcyBpcyBhIHZlcnkgc2VjdXJlIGFuZCBsb25nIEpXVCBzZWNyZXQga2V5IGZvciBxdWVzdGlvbm5haXJlIHN5c3RlbUFuZEl0SXNFeGFjdGx5VGhpcnR5VHdvQnl0ZXNMb25nRm9yU2VjdXJpdHk=";
+
+    private static final int TOKENS = 4096;
+
+    @Test
+    void cachedVerificationSkipsSignatureCheck() {
+        // 缓存容量远小于令牌数，轮流使用全部令牌时几乎每次都未命中
+        JwtTokenProvider uncached = provider(100);
+        JwtTokenProvider cached = provider(TOKENS * 2);
+        List<String> tokens = new ArrayList<>(TOKENS);
+        for (int i = 0; i < TOKENS; i++) {
+            tokens.add(cached.generateToken((long) i, "user" + i, i % 10 == 0 ? UserRole.ADMIN : UserRole.USER));
+        }
+        for (int i = 0; i < TOKENS; i++) {
+            String token = tokens.get(i);
+            JwtClaims claims = cached.parseVerified(token);
+            assertEquals("user" + i, claims.getUsername());
+            assertEquals(claims.getUsername(), legacyUsername(token));
+            assertEquals(claims.getRole(), legacyRole(token));
+        }
+
+        MicroBenchmark.Result legacy = MicroBenchmark.measure("原实现（3次签名校验）", TOKENS, i -> {
+            String token = tokens.get(i);
+            return legacyValidate(token) && legacyUsername(token) != null && legacyRole(token) != null;
+        });
+        MicroBenchmark.Result miss = MicroBenchmark.measure("parseVerified 缓存未命中", TOKENS,
+                i -> uncached.parseVerified(tokens.get(i)) != null);
+        MicroBenchmark.Result hit = MicroBenchmark.measure("parseVerified 缓存命中", TOKENS,
+                i -> cached.parseVerified(tokens.get(i)) != null);
+
+        log.info("每个请求的令牌认证（{} 个令牌，HS512）:\n  {}\n  {}\n  {}\n  原实现 / 缓存未命中 = {}，缓存未命中 / 缓存命中 = {}",
+                TOKENS, legacy, miss, hit,
+                String.format("%.1fx", legacy.getNanosPerOp() / miss.getNanosPerOp()),
+                String.format("%.1fx", miss.getNanosPerOp() / hit.getNanosPerOp()));
+
+        assertEquals(TOKENS, legacy.getMatched());
+        assertEquals(TOKENS, miss.getMatched());
+        assertEquals(TOKENS, hit.getMatched());
+        assertTrue(miss.getNanosPerOp() < legacy.getNanosPerOp(), "一次校验应快于原实现的三次校验");
+        assertTrue(hit.getNanosPerOp() < miss.getNanosPerOp(), "缓存命中应快于签名校验");
+    }
+
+    private static JwtTokenProvider provider(long claimsCacheSize) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(provider, "claimsCacheSize", claimsCacheSize);
+        provider.init();
+        return provider;
+    }
+
+    // ---- 原 JwtTokenProvider 的实现：每次调用都重新构建密钥和解析器 ----
+
+    private static Key legacySigningKey() {
+        try {
+            byte[] keyBytes = Decoders.BASE64.decode(SECRET);
+            return Keys.hmacShaKeyFor(keyBytes);
+        } catch (Exception e) {
+            return Keys.hmacShaKeyFor(SECRET.getBytes());
+        }
+    }
+
+    private static Claims legacyParse(String token) {
+        return Jwts.parserBuilder().setSigningKey(legacySigningKey()).build().parseClaimsJws(token).getBody();
+    }
+
+    private static boolean legacyValidate(String token) {
+        try {
+            legacyParse(token);
+            return true;
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String legacyUsername(String token) {
+        return legacyParse(token).getSubject();
+    }
+
+    private static UserRole legacyRole(String token) {
+        return UserRole.valueOf(legacyParse(token).get("role", String.class));
+    }
+}
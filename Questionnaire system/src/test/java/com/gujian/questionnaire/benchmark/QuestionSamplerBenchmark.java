@@ -0,0 +1,144 @@
+package com.gujian.questionnaire.benchmark;
+
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.mapper.QuestionBankMapper;
+import com.gujian.questionnaire.service.QuestionSampler;
+import com.gujian.questionnaire.support.IntegrationTest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 随机抽题：内存抽题索引（抽取ID后按主键批量加载）与 ORDER BY priority DESC, RAND() 的延迟对比
+ * 同时校验两者抽题语义一致：抽中题目的优先级分布相同（都从最高优先级逐层抽取）
+ * 写入 benchmark.questions 道（默认5万）启用题目，结束后删除；
+ * 不属于常规测试，需显式运行：mvn test -Dtest=QuestionSamplerBenchmark [-Dbenchmark.questions=50000]
+ */
+@Slf4j
+@IntegrationTest
+class QuestionSamplerBenchmark {
+
+    /**
+     * 测试题目的创建者ID，按 idx_creator 定位并删除
+     */
+    private static final long CREATOR_ID = 1L << 50;
+
+    private static final int COUNT = 20;
+
+    private static final int ROUNDS = 50;
+
+    private static final List<Integer> TYPES = Arrays.asList(1, 2, 3);
+
+    @Autowired
+    private QuestionSampler questionSampler;
+
+    @Autowired
+    private QuestionBankMapper questionBankMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void samplerIsFasterThanOrderByRand() {
+        int questions = Integer.getInteger("benchmark.questions", 50_000);
+        try {
+            seed(questions);
+            questionSampler.reload();
+            assertTrue(questionSampler.isReady());
+
+            // 语义一致：两种方式抽中题目的优先级构成相同
+            for (int i = 0; i < 10; i++) {
+                assertEquals(priorities(questionBankMapper.selectRandomQuestionsFromTypes(TYPES, COUNT)),
+                        priorities(sampled()));
+            }
+
+            log.info("ORDER BY RAND() 执行计划: {}", jdbcTemplate.queryForList(
+                    "EXPLAIN SELECT * FROM question_bank WHERE deleted = 0 AND status = 1 AND type IN (1, 2, 3) " +
+                    "ORDER BY priority DESC, RAND() LIMIT " + COUNT));
+
+            long orderByRand = medianNanos(() -> questionBankMapper.selectRandomQuestionsFromTypes(TYPES, COUNT));
+            long sampler = medianNanos(this::sampled);
+            long samplerInMemory = medianNanos(() -> questionSampler.sample(TYPES, COUNT));
+
+            log.info("启用题目 {} 道，每次抽取 {} 题，各取 {} 次中位数", questionSampler.size(), COUNT, ROUNDS);
+            log.info("ORDER BY RAND(): {} ms", millis(orderByRand));
+            log.info("抽题索引 + 按主键加载: {} ms（其中内存抽取 {} ms）", millis(sampler), millis(samplerInMemory));
+            log.info("ORDER BY RAND() / 抽题索引 = {}", String.format("%.1f", (double) orderByRand / Math.max(1, sampler)));
+
+            assertTrue(sampler < orderByRand, "抽题索引应快于 ORDER BY RAND()");
+        } finally {
+            cleanup();
+            questionSampler.reload();
+        }
+    }
+
+    /**
+     * 与 QuestionBankServiceImpl 的抽题路径一致：内存抽取ID，再按主键批量加载
+     */
+    private List<QuestionBank> sampled() {
+        List<Long> ids = questionSampler.sample(TYPES, COUNT);
+        Map<Long, QuestionBank> loaded = questionBankMapper.selectBatchIds(ids).stream()
+                .collect(Collectors.toMap(QuestionBank::getId, q -> q));
+        return ids.stream().map(loaded::get).collect(Collectors.toList());
+    }
+
+    /**
+     * 以翻倍的 INSERT ... SELECT 写入测试题目，题型、优先级、难度随机分布
+     */
+    private void seed(int questions) {
+        cleanup();
+        jdbcTemplate.update("INSERT INTO question_bank (title, type, content, options, correct_answer, priority, " +
+                "score, difficulty, status, creator_id) " +
+                "VALUES ('抽题基准测试题目', 1, REPEAT('题目描述', 50), '[\"A\",\"B\",\"C\",\"D\"]', 'A', 1, 5, 1, 1, ?)",
+                CREATOR_ID);
+        int seeded = 1;
+        while (seeded < questions) {
+            seeded += jdbcTemplate.update("INSERT INTO question_bank (title, type, content, options, " +
+                    "correct_answer, priority, score, difficulty, status, creator_id) " +
+                    "SELECT title, 1 + FLOOR(RAND() * 3), content, options, correct_answer, 1 + FLOOR(RAND() * 3), " +
+                    "score, 1 + FLOOR(RAND() * 3), 1, creator_id " +
+                    "FROM (SELECT * FROM question_bank WHERE creator_id = ? LIMIT ?) src",
+                    CREATOR_ID, Math.min(seeded, questions - seeded));
+        }
+        jdbcTemplate.execute("ANALYZE TABLE question_bank");
+    }
+
+    private void cleanup() {
+        while (jdbcTemplate.update("DELETE FROM question_bank WHERE creator_id = ? LIMIT 10000", CREATOR_ID) > 0) {
+            // 分批删除，避免单个大事务
+        }
+    }
+
+    private static List<Integer> priorities(List<QuestionBank> questions) {
+        assertEquals(COUNT, questions.size());
+        return questions.stream().map(QuestionBank::getPriority).sorted().collect(Collectors.toList());
+    }
+
+    private static long medianNanos(Supplier<? extends List<?>> draw) {
+        for (int i = 0; i < 5; i++) {
+            draw.get();
+        }
+        long[] samples = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            assertEquals(COUNT, draw.get().size());
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[ROUNDS / 2];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
+    }
+}
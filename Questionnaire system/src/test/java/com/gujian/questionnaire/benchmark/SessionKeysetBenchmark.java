@@ -0,0 +1,197 @@
+package com.gujian.questionnaire.benchmark;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.gujian.questionnaire.entity.AnswerSession;
+import com.gujian.questionnaire.mapper.AnswerSessionMapper;
+import com.gujian.questionnaire.support.IntegrationTest;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 会话分页：OFFSET 分页与键集分页在不同翻页深度下的延迟对比，以及键集分页SQL的执行计划检查
+ * 写入 benchmark.sessions 条（默认100万）已完成状态的会话，结束后删除；
+ * 不属于常规测试，需显式运行：mvn test -Dtest=SessionKeysetBenchmark [-Dbenchmark.sessions=1000000]
+ */
+@Slf4j
+@IntegrationTest
+class SessionKeysetBenchmark {
+
+    private static final String CODE_PREFIX = "bench-";
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private AnswerSessionMapper answerSessionMapper;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void seekLatencyDoesNotGrowWithDepth() {
+        int sessions = Integer.getInteger("benchmark.sessions", 1_000_000);
+        try {
+            seed(sessions);
+            assertSeekUsesCreateTimeIndex();
+
+            long offsetDeepest = 0;
+            long seekDeepest = 0;
+            long seekFirst = 0;
+            log.info("{} 条会话，每页 {} 条，各取 {} 次中位数", total(), PAGE_SIZE, ROUNDS);
+            for (int depth : depths(sessions)) {
+                Page<AnswerSession> page = new Page<>(depth / PAGE_SIZE + 1, PAGE_SIZE, false);
+                long offset = medianNanos(() -> answerSessionMapper
+                        .selectSessionPageWithFilters(page, null, null, null, null).getRecords());
+
+                Map<String, Object> cursor = depth == 0 ? null : jdbcTemplate.queryForMap(
+                        "SELECT create_time, id FROM answer_session WHERE deleted = 0 " +
+                        "ORDER BY create_time DESC, id DESC LIMIT ?, 1", depth - 1);
+                LocalDateTime cursorTime = cursor == null ? null
+                        : ((Timestamp) cursor.get("create_time")).toLocalDateTime();
+                Long cursorId = cursor == null ? null : ((Number) cursor.get("id")).longValue();
+                long seek = medianNanos(() -> answerSessionMapper.selectSessionSeek(
+                        null, null, null, null, null, cursorTime, cursorId, PAGE_SIZE));
+
+                log.info("深度 {}: OFFSET {} ms, 键集 {} ms", depth, millis(offset), millis(seek));
+                if (depth == 0) {
+                    seekFirst = seek;
+                }
+                offsetDeepest = offset;
+                seekDeepest = seek;
+            }
+
+            assertTrue(seekDeepest < offsetDeepest, "最深一页键集分页应快于 OFFSET 分页");
+            log.info("最深一页: OFFSET / 键集 = {}，键集 最深 / 首页 = {}",
+                    ratio(offsetDeepest, seekDeepest), ratio(seekDeepest, seekFirst));
+        } finally {
+            cleanup();
+        }
+    }
+
+    /**
+     * 以翻倍的 INSERT ... SELECT 写入测试会话，创建时间在最近一年内随机分布
+     */
+    private void seed(int sessions) {
+        cleanup();
+        jdbcTemplate.update("INSERT INTO answer_session (user_id, session_code, question_type, total_count, " +
+                "status, start_time, end_time, create_time) " +
+                "VALUES (?, CONCAT(?, UUID()), 0, 10, 2, NOW(), NOW(), NOW())", 1L << 50, CODE_PREFIX);
+        int seeded = 1;
+        while (seeded < sessions) {
+            seeded += jdbcTemplate.update("INSERT INTO answer_session (user_id, session_code, question_type, " +
+                    "total_count, status, start_time, end_time, create_time) " +
+                    "SELECT user_id + FLOOR(RAND() * 100000), CONCAT(?, UUID()), 0, 10, 2, t, t, t " +
+                    "FROM (SELECT user_id, NOW() - INTERVAL FLOOR(RAND() * 31536000) SECOND AS t " +
+                    "FROM answer_session WHERE session_code LIKE ? LIMIT ?) src",
+                    CODE_PREFIX, CODE_PREFIX + "%", Math.min(seeded, sessions - seeded));
+        }
+        jdbcTemplate.execute("ANALYZE TABLE answer_session");
+    }
+
+    private void cleanup() {
+        while (jdbcTemplate.update("DELETE FROM answer_session WHERE session_code LIKE ? LIMIT 50000",
+                CODE_PREFIX + "%") > 0) {
+            // 分批删除，避免单个大事务
+        }
+    }
+
+    /**
+     * 按 MyBatis 生成的键集分页SQL执行 EXPLAIN：会话表沿 idx_create_time 读取，不做文件排序
+     */
+    private void assertSeekUsesCreateTimeIndex() {
+        Map<String, Object> cursor = jdbcTemplate.queryForMap(
+                "SELECT create_time, id FROM answer_session ORDER BY create_time DESC, id DESC LIMIT 1000, 1");
+        MapperMethod.ParamMap<Object> params = new MapperMethod.ParamMap<>();
+        params.put("userId", null);
+        params.put("userName", null);
+        params.put("status", null);
+        params.put("startTime", null);
+        params.put("endTime", null);
+        params.put("cursorTime", ((Timestamp) cursor.get("create_time")).toLocalDateTime());
+        params.put("cursorId", ((Number) cursor.get("id")).longValue());
+        params.put("limit", PAGE_SIZE);
+
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        BoundSql boundSql = configuration
+                .getMappedStatement(AnswerSessionMapper.class.getName() + ".selectSessionSeek")
+                .getBoundSql(params);
+        MetaObject meta = configuration.newMetaObject(params);
+        List<Object> args = new ArrayList<>();
+        for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+            String property = mapping.getProperty();
+            args.add(boundSql.hasAdditionalParameter(property)
+                    ? boundSql.getAdditionalParameter(property) : meta.getValue(property));
+        }
+
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + boundSql.getSql(), args.toArray());
+        log.info("键集分页执行计划: {}", plan);
+        Map<String, Object> session = plan.stream()
+                .filter(row -> "s".equals(row.get("table")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("执行计划中没有会话表: " + plan));
+        assertEquals("idx_create_time", session.get("key"), () -> "键集分页未使用 idx_create_time: " + plan);
+        String extra = String.valueOf(session.get("Extra"));
+        assertFalse(extra.contains("Using filesort"), () -> "键集分页不应排序: " + plan);
+    }
+
+    private static List<Integer> depths(int sessions) {
+        List<Integer> depths = new ArrayList<>();
+        for (int depth : Arrays.asList(0, 1_000, 10_000, 100_000, 500_000)) {
+            if (depth < sessions - PAGE_SIZE) {
+                depths.add(depth);
+            }
+        }
+        depths.add(Math.max(0, sessions - PAGE_SIZE));
+        return depths;
+    }
+
+    private long total() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM answer_session", Long.class);
+        return count != null ? count : 0;
+    }
+
+    private static long medianNanos(Supplier<List<AnswerSession>> query) {
+        // 首次执行预热缓冲池，不计时
+        assertEquals(PAGE_SIZE, query.get().size());
+        long[] samples = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            query.get();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[ROUNDS / 2];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+    private static String ratio(long numerator, long denominator) {
+        return String.format("%.1f", (double) numerator / Math.max(1, denominator));
+    }
+}
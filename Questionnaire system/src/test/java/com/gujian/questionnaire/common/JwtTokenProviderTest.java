@@ -0,0 +1,89 @@
+package com.gujian.questionnaire.common;
+
+import com.gujian.questionnaire.entity.UserRole;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JWT令牌一次解析与已验证声明缓存测试
+ */
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "dGhpcyBpcyBhIHZlcnkgc2VjdXJlIGFuZCBsb25nIEpXVCBzZWNyZXQga2V5IGZvciBxdWVzdGlvbm5haXJlIHN5c3RlbUFuZEl0SXNFeGFjdGx5VGhpcnR5VHdvQnl0ZXNMb25nRm9yU2VjdXJpdHk=";
+
+    private static final String OTHER_SECRET = "YW5vdGhlciB2ZXJ5IHNlY3VyZSBhbmQgbG9uZyBKV1Qgc2VjcmV0IGtleSB1c2VkIG9ubHkgdG8gc2lnbiBmb3JlaWduIHRva2VucyBpbiB0ZXN0cw==";
+
+    @Test
+    void parsesAllClaimsFromOneVerification() {
+        JwtTokenProvider provider = provider(SECRET, 60_000);
+        String token = provider.generateToken(42L, "alice", UserRole.ADMIN);
+
+        JwtClaims claims = provider.parseVerified(token);
+        assertEquals("alice", claims.getUsername());
+        assertEquals(UserRole.ADMIN, claims.getRole());
+        assertEquals(42L, claims.getUserId());
+        assertFalse(claims.isExpired());
+
+        assertTrue(provider.validateToken(token));
+        assertEquals("alice", provider.getUsernameFromToken(token));
+        assertEquals(UserRole.ADMIN, provider.getRoleFromToken(token));
+    }
+
+    @Test
+    void legacyTokenHasNoUserId() {
+        JwtTokenProvider provider = provider(SECRET, 60_000);
+        JwtClaims claims = provider.parseVerified(provider.generateToken("bob", UserRole.USER));
+        assertEquals("bob", claims.getUsername());
+        assertNull(claims.getUserId());
+    }
+
+    @Test
+    void repeatedParseIsServedFromCache() {
+        JwtTokenProvider provider = provider(SECRET, 60_000);
+        String token = provider.generateToken(1L, "alice", UserRole.USER);
+        assertSame(provider.parseVerified(token), provider.parseVerified(token));
+    }
+
+    @Test
+    void rejectsInvalidTokens() {
+        JwtTokenProvider provider = provider(SECRET, 60_000);
+        String token = provider.generateToken(1L, "alice", UserRole.USER);
+        String foreign = provider(OTHER_SECRET, 60_000).generateToken(1L, "alice", UserRole.ADMIN);
+        int signatureStart = token.lastIndexOf('.') + 1;
+        String tampered = token.substring(0, signatureStart)
+                + (token.charAt(signatureStart) == 'A' ? 'B' : 'A') + token.substring(signatureStart + 1);
+
+        assertNull(provider.parseVerified(null));
+        assertNull(provider.parseVerified(""));
+        assertNull(provider.parseVerified("not.a.token"));
+        assertNull(provider.parseVerified(tampered));
+        assertNull(provider.parseVerified(foreign));
+        assertFalse(provider.validateToken(foreign));
+        assertThrows(JwtException.class, () -> provider.getUsernameFromToken(foreign));
+    }
+
+    @Test
+    void rejectsExpiredToken() {
+        JwtTokenProvider provider = provider(SECRET, -1_000);
+        String token = provider.generateToken(1L, "alice", UserRole.USER);
+        assertNull(provider.parseVerified(token));
+        assertFalse(provider.validateToken(token));
+    }
+
+    private static JwtTokenProvider provider(String secret, int expirationMs) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", secret);
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", expirationMs);
+        ReflectionTestUtils.setField(provider, "claimsCacheSize", 100L);
+        provider.init();
+        return provider;
+    }
+}
@@ -0,0 +1,133 @@
+package com.gujian.questionnaire.service;
+
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.support.LegacyAnswerComparison;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AnswerKey 判定结果与原 compareSingleChoice / compareMultipleChoice / compareFillBlank 一致性测试
+ */
+class AnswerKeyTest {
+
+    private static final List<String> OPTIONS = Arrays.asList("北京", " 上海 ", "广州", "深圳");
+
+    @Test
+    void singleChoiceMatchesLetterOrContent() {
+        AnswerKey letterKey = key(1, "B", OPTIONS);
+        assertTrue(letterKey.matches("B"));
+        assertTrue(letterKey.matches(" b "));
+        assertTrue(letterKey.matches("上海"));
+        assertFalse(letterKey.matches("A"));
+        assertFalse(letterKey.matches("北京"));
+
+        AnswerKey contentKey = key(1, "广州", OPTIONS);
+        assertTrue(contentKey.matches("C"));
+        assertTrue(contentKey.matches("c"));
+        assertTrue(contentKey.matches("广州"));
+        assertFalse(contentKey.matches("D"));
+    }
+
+    @Test
+    void singleChoiceWithoutOptionsComparesText() {
+        AnswerKey key = key(1, "B", null);
+        assertTrue(key.matches("b"));
+        assertFalse(key.matches("上海"));
+    }
+
+    @Test
+    void ratingQuestionScoresLikeSingleChoice() {
+        AnswerKey key = key(5, "A", Arrays.asList("满意", "一般", "不满意"));
+        assertTrue(key.matches("满意"));
+        assertTrue(key.matches("a"));
+        assertFalse(key.matches("B"));
+    }
+
+    @Test
+    void multipleChoiceIgnoresOrderCaseAndFormat() {
+        AnswerKey key = key(2, "A,C", OPTIONS);
+        assertTrue(key.matches("A,C"));
+        assertTrue(key.matches("c, a"));
+        assertTrue(key.matches("北京,广州"));
+        assertTrue(key.matches("A,广州"));
+        assertFalse(key.matches("A"));
+        assertFalse(key.matches("A,B,C"));
+        assertFalse(key.matches("A,D"));
+    }
+
+    @Test
+    void multipleChoiceWithContentAnswerAndUnknownTokens() {
+        AnswerKey key = key(2, "上海,深圳", OPTIONS);
+        assertTrue(key.matches("B,D"));
+        assertTrue(key.matches("D,B,"));
+        // 无法识别的项被忽略（与原 convertToLetters 一致）
+        assertTrue(key.matches("B,D,杭州"));
+        assertFalse(key.matches("B"));
+    }
+
+    @Test
+    void multipleChoiceWithoutOptionsComparesTokens() {
+        AnswerKey key = key(2, "B, A", null);
+        assertTrue(key.matches("A,B"));
+        assertTrue(key.matches("b,a"));
+        assertFalse(key.matches("A"));
+        assertFalse(key.matches("A,B,C"));
+    }
+
+    @Test
+    void fillBlankAcceptsAlternativesSetsAndNumbers() {
+        AnswerKey alternatives = key(3, "Java；JVM|jdk", null);
+        assertTrue(alternatives.matches("java"));
+        assertTrue(alternatives.matches(" JDK "));
+        assertTrue(alternatives.matches("jdk、java，JVM"));
+        assertFalse(alternatives.matches("java,jdk"));
+        assertFalse(alternatives.matches("python"));
+
+        AnswerKey numeric = key(3, "3.14", null);
+        assertTrue(numeric.matches("3.140"));
+        assertTrue(numeric.matches("03.14"));
+        assertFalse(numeric.matches("3.15"));
+        assertFalse(numeric.matches("pi"));
+
+        AnswerKey text = key(3, "Hello World", null);
+        assertTrue(text.matches("hello world"));
+        assertFalse(text.matches("hello"));
+    }
+
+    @Test
+    void subjectiveQuestionNeverMatches() {
+        assertFalse(key(4, "任意", null).matches("任意"));
+    }
+
+    @Test
+    void agreesWithLegacyComparison() {
+        List<String> answers = Arrays.asList("A", "b", "C", "d", "E", "北京", "上海", "广州", "深圳", "杭州",
+                "A,C", "c,a", "B,D", "A,B,C", "北京,广州", "A,广州", "b,深圳,", "3", "3.0", "1;2", "2，1", "x|y");
+        List<List<String>> optionSets = Arrays.asList(OPTIONS, null, Arrays.asList("1", "2", "3"));
+        for (List<String> options : optionSets) {
+            for (String correct : answers) {
+                for (int type : new int[]{1, 2, 3, 5}) {
+                    AnswerKey key = key(type, correct, options);
+                    for (String user : answers) {
+                        assertEquals(LegacyAnswerComparison.compare(type, user, correct, options), key.matches(user),
+                                "type=" + type + ", correct=" + correct + ", user=" + user + ", options=" + options);
+                    }
+                }
+            }
+        }
+    }
+
+    private static AnswerKey key(int type, String correctAnswer, List<String> options) {
+        QuestionBank question = new QuestionBank();
+        question.setId(1L);
+        question.setType(type);
+        question.setCorrectAnswer(correctAnswer);
+        return AnswerKey.compile(question, options);
+    }
+}
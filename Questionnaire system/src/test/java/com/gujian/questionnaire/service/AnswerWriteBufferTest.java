@@ -0,0 +1,212 @@
+package com.gujian.questionnaire.service;
+
+import com.gujian.questionnaire.config.JacksonConfig;
+import com.gujian.questionnaire.entity.AnswerRecord;
+import com.gujian.questionnaire.mapper.AnswerRecordMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 答题写后缓冲测试：并发重复提交只写入一次；唯一索引冲突按索引区分处理，不阻塞入库线程
+ * 数据库以内存表模拟 uk_session_sequence / uk_session_question / uk_session_idempotency 三个唯一索引
+ */
+class AnswerWriteBufferTest {
+
+    private static final Long SESSION_ID = 1L;
+
+    @TempDir
+    Path walDir;
+
+    private final List<AnswerRecord> table = new ArrayList<>();
+
+    /**
+     * 关闭时入库线程等待，使提交期间的记录保持在待入库状态
+     */
+    private volatile CountDownLatch dbGate = new CountDownLatch(0);
+
+    private AnswerWriteBuffer buffer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        AnswerRecordMapper answerRecordMapper = mock(AnswerRecordMapper.class);
+        when(answerRecordMapper.insertBatch(anyList())).thenAnswer(invocation -> {
+            dbGate.await();
+            return insert(invocation.getArgument(0));
+        });
+        when(answerRecordMapper.getNextSequenceNumber(anyLong())).thenAnswer(invocation -> nextSequence(invocation.getArgument(0)));
+
+        buffer = new AnswerWriteBuffer();
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "batchSize", 500);
+        ReflectionTestUtils.setField(buffer, "flushInterval", 5L);
+        ReflectionTestUtils.setField(buffer, "ackTimeout", 3000L);
+        ReflectionTestUtils.setField(buffer, "walDir", walDir.toString());
+        ReflectionTestUtils.setField(buffer, "segmentSize", 1L << 20);
+        ReflectionTestUtils.setField(buffer, "answerRecordMapper", answerRecordMapper);
+        ReflectionTestUtils.setField(buffer, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(buffer, "objectMapper", new JacksonConfig().objectMapper());
+        buffer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        buffer.stop();
+    }
+
+    @Test
+    void concurrentDoubleSubmitWritesOnce() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<AnswerRecord> submitted = new ArrayList<>();
+        List<Future<AnswerRecord>> results = new ArrayList<>();
+        dbGate = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < threads; i++) {
+                AnswerRecord record = record(10L, 1, "req-1");
+                submitted.add(record);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return buffer.submitIfAbsent(record);
+                }));
+            }
+            start.countDown();
+
+            AnswerRecord accepted = null;
+            List<AnswerRecord> returned = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                AnswerRecord existing = results.get(i).get(5, TimeUnit.SECONDS);
+                if (existing == null) {
+                    assertNull(accepted, "只能有一个请求写入");
+                    accepted = submitted.get(i);
+                } else {
+                    returned.add(existing);
+                }
+            }
+            assertTrue(accepted != null);
+            assertEquals(threads - 1, returned.size());
+            for (AnswerRecord existing : returned) {
+                assertSame(accepted, existing);
+            }
+        } finally {
+            dbGate.countDown();
+            executor.shutdownNow();
+        }
+
+        buffer.flushSession(SESSION_ID);
+        assertEquals(1, rows().size());
+    }
+
+    @Test
+    void reusedIdempotencyKeyReturnsPendingRecord() {
+        dbGate = new CountDownLatch(1);
+        AnswerRecord first = record(10L, 1, "req-1");
+        assertNull(buffer.submitIfAbsent(first));
+        assertSame(first, buffer.submitIfAbsent(record(11L, 2, "req-1")));
+        assertNull(buffer.submitIfAbsent(record(11L, 2, "req-2")));
+        dbGate.countDown();
+
+        buffer.flushSession(SESSION_ID);
+        assertEquals(2, rows().size());
+    }
+
+    @Test
+    void nonSequenceConflictIsDroppedWithoutBlockingWriter() {
+        insert(Collections.singletonList(record(9L, 1, "req-1")));
+
+        // 幂等键与已入库记录冲突：丢弃；序号冲突：改用数据库中的下一序号
+        AnswerRecord keyConflict = record(10L, 2, "req-1");
+        AnswerRecord sequenceConflict = record(11L, 1, null);
+        buffer.submit(Arrays.asList(keyConflict, sequenceConflict));
+        buffer.flushSession(SESSION_ID);
+
+        // 入库线程仍在工作
+        assertNull(buffer.submitIfAbsent(record(12L, 3, null)));
+        buffer.flushSession(SESSION_ID);
+
+        List<AnswerRecord> rows = rows();
+        assertEquals(3, rows.size());
+        assertTrue(rows.stream().noneMatch(row -> row.getQuestionId().equals(10L)));
+        assertEquals(2, sequenceConflict.getSequenceNumber());
+    }
+
+    // ---- 模拟 answer_record 表的唯一索引 ----
+
+    private synchronized int insert(List<AnswerRecord> records) {
+        List<AnswerRecord> accepted = new ArrayList<>(table);
+        for (AnswerRecord record : records) {
+            for (AnswerRecord row : accepted) {
+                if (!row.getSessionId().equals(record.getSessionId())) {
+                    continue;
+                }
+                if (row.getSequenceNumber().equals(record.getSequenceNumber())) {
+                    throw duplicate(AnswerRecordMapper.UK_SESSION_SEQUENCE);
+                }
+                if (row.getQuestionId().equals(record.getQuestionId())) {
+                    throw duplicate(AnswerRecordMapper.UK_SESSION_QUESTION);
+                }
+                if (record.getIdempotencyKey() != null && record.getIdempotencyKey().equals(row.getIdempotencyKey())) {
+                    throw duplicate(AnswerRecordMapper.UK_SESSION_IDEMPOTENCY);
+                }
+            }
+            accepted.add(record);
+        }
+        table.clear();
+        table.addAll(accepted);
+        return records.size();
+    }
+
+    private synchronized int nextSequence(Long sessionId) {
+        return table.stream()
+                .filter(row -> row.getSessionId().equals(sessionId))
+                .mapToInt(AnswerRecord::getSequenceNumber)
+                .max()
+                .orElse(0) + 1;
+    }
+
+    private synchronized List<AnswerRecord> rows() {
+        return new ArrayList<>(table);
+    }
+
+    private static DuplicateKeyException duplicate(String key) {
+        return new DuplicateKeyException("Duplicate entry 'x' for key 'answer_record." + key + "'");
+    }
+
+    private static AnswerRecord record(Long questionId, int sequenceNumber, String idempotencyKey) {
+        AnswerRecord record = new AnswerRecord();
+        record.setSessionId(SESSION_ID);
+        record.setQuestionId(questionId);
+        record.setQuestionType(1);
+        record.setUserAnswer("A");
+        record.setSequenceNumber(sequenceNumber);
+        record.setIdempotencyKey(idempotencyKey);
+        return record;
+    }
+}
@@ -0,0 +1,165 @@
+package com.gujian.questionnaire.service;
+
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.mapper.QuestionBankMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 内存抽题索引测试（无事务时索引变更立即生效）
+ */
+class QuestionSamplerTest {
+
+    private QuestionBankMapper questionBankMapper;
+
+    private QuestionSampler sampler;
+
+    @BeforeEach
+    void setUp() {
+        questionBankMapper = mock(QuestionBankMapper.class);
+        sampler = new QuestionSampler();
+        ReflectionTestUtils.setField(sampler, "questionBankMapper", questionBankMapper);
+    }
+
+    @Test
+    void notReadyBeforeReload() {
+        assertNull(sampler.sample(null, 5));
+    }
+
+    @Test
+    void drawsHigherPriorityTiersFirst() {
+        List<QuestionBank> metas = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            metas.add(meta(id, 1, 3, (int) id));
+        }
+        for (long id = 4; id <= 10; id++) {
+            metas.add(meta(id, 1, 2, 1));
+        }
+        metas.add(meta(11L, 1, 1, 1));
+        reload(metas);
+
+        for (int round = 0; round < 50; round++) {
+            List<Long> drawn = sampler.sample(Collections.singletonList(1), 5);
+            assertEquals(5, drawn.size());
+            assertEquals(new HashSet<>(Arrays.asList(1L, 2L, 3L)), new HashSet<>(drawn.subList(0, 3)));
+            for (Long id : drawn.subList(3, 5)) {
+                assertTrue(id >= 4 && id <= 10, "第二层应来自优先级2: " + id);
+            }
+            assertEquals(5, new HashSet<>(drawn).size());
+        }
+    }
+
+    @Test
+    void filtersByType() {
+        reload(Arrays.asList(meta(1L, 1, 1, 1), meta(2L, 2, 1, 1), meta(3L, 3, 3, 2), meta(4L, 2, 2, 3)));
+
+        assertEquals(new HashSet<>(Arrays.asList(2L, 4L)), new HashSet<>(sampler.sample(Collections.singletonList(2), 10)));
+        assertEquals(new HashSet<>(Arrays.asList(1L, 3L)), new HashSet<>(sampler.sample(Arrays.asList(1, 3), 10)));
+        assertEquals(4, sampler.sample(Collections.singletonList(0), 10).size());
+        assertEquals(4, sampler.sample(null, 10).size());
+        assertTrue(sampler.sample(Collections.singletonList(5), 10).isEmpty());
+    }
+
+    @Test
+    void drawsWithoutReplacementAcrossBuckets() {
+        List<QuestionBank> metas = new ArrayList<>();
+        for (long id = 1; id <= 30; id++) {
+            metas.add(meta(id, 1, 2, (int) (id % 3) + 1));
+        }
+        reload(metas);
+
+        List<Long> drawn = sampler.sample(null, 100);
+        assertEquals(30, drawn.size());
+        assertEquals(30, new HashSet<>(drawn).size());
+    }
+
+    @Test
+    void drawsUniformlyWithinTier() {
+        reload(Arrays.asList(meta(1L, 1, 1, 1), meta(2L, 1, 1, 2), meta(3L, 1, 1, 3), meta(4L, 1, 1, 3)));
+
+        Map<Long, Integer> hits = new HashMap<>();
+        for (int i = 0; i < 4000; i++) {
+            hits.merge(sampler.sample(null, 1).get(0), 1, Integer::sum);
+        }
+        for (long id = 1; id <= 4; id++) {
+            int count = hits.getOrDefault(id, 0);
+            assertTrue(count > 700 && count < 1300, "题目" + id + "抽中次数: " + count);
+        }
+    }
+
+    @Test
+    void appliesSavedAndRemovedQuestions() {
+        reload(Arrays.asList(meta(1L, 1, 1, 1), meta(2L, 1, 1, 1), meta(3L, 2, 1, 1)));
+
+        QuestionBank added = question(4L, 2, 3, 1, 1);
+        QuestionBank moved = question(1L, 1, 3, 1, 1);
+        QuestionBank disabled = question(2L, 1, 1, 1, 0);
+        sampler.onQuestionsSaved(Arrays.asList(added, moved, disabled));
+
+        assertEquals(3, sampler.size());
+        Map<Integer, Integer> byType = sampler.countByType();
+        assertEquals(1, byType.get(1));
+        assertEquals(2, byType.get(2));
+        // 题目1调整为最高优先级，抽1题必定抽中
+        assertEquals(Collections.singletonList(1L), sampler.sample(Collections.singletonList(1), 1));
+
+        sampler.onQuestionsRemoved(Arrays.asList(1L, 3L));
+        assertEquals(1, sampler.size());
+        assertEquals(Collections.singletonList(4L), sampler.sample(null, 10));
+    }
+
+    @Test
+    void bulkSaveIntoOneBucket() {
+        reload(Collections.emptyList());
+
+        List<QuestionBank> batch = new ArrayList<>();
+        for (long id = 1; id <= 10_000; id++) {
+            batch.add(question(id, 1, 1, 1, 1));
+        }
+        sampler.onQuestionsSaved(batch);
+        // 重复保存不产生重复ID
+        sampler.onQuestionsSaved(batch.subList(0, 100));
+
+        assertEquals(10_000, sampler.size());
+        Set<Long> drawn = new HashSet<>(sampler.sample(null, 10_000));
+        assertEquals(10_000, drawn.size());
+    }
+
+    private void reload(List<QuestionBank> metas) {
+        when(questionBankMapper.selectActiveQuestionMeta()).thenReturn(metas);
+        sampler.reload();
+        assertTrue(sampler.isReady());
+    }
+
+    private static QuestionBank meta(Long id, int type, int priority, int difficulty) {
+        QuestionBank question = new QuestionBank();
+        question.setId(id);
+        question.setType(type);
+        question.setPriority(priority);
+        question.setDifficulty(difficulty);
+        return question;
+    }
+
+    private static QuestionBank question(Long id, int type, int priority, int difficulty, int status) {
+        QuestionBank question = meta(id, type, priority, difficulty);
+        question.setStatus(status);
+        question.setDeleted(0);
+        return question;
+    }
+}
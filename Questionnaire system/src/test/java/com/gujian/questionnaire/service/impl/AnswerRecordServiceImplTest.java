@@ -0,0 +1,187 @@
+package com.gujian.questionnaire.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.gujian.questionnaire.common.enums.ErrorCode;
+import com.gujian.questionnaire.dto.BatchSubmitAnswerDTO;
+import com.gujian.questionnaire.dto.SubmitAnswerDTO;
+import com.gujian.questionnaire.entity.AnswerRecord;
+import com.gujian.questionnaire.entity.AnswerSession;
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.exception.BusinessException;
+import com.gujian.questionnaire.mapper.AnswerRecordMapper;
+import com.gujian.questionnaire.service.AnswerRecordService;
+import com.gujian.questionnaire.support.IntegrationTest;
+import com.gujian.questionnaire.support.StatementCounter;
+import com.gujian.questionnaire.support.TestData;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批量提交答案：统计实际发往数据库的SQL语句，语句数不随答案数量增长，新记录以一条多值INSERT写入
+ */
+@Slf4j
+@IntegrationTest
+class AnswerRecordServiceImplTest {
+
+    private static final int QUESTION_COUNT = 20;
+
+    private static final String OPTIONS = "[\"A\",\"B\",\"C\",\"D\"]";
+
+    @Autowired
+    private AnswerRecordService answerRecordService;
+
+    @Autowired
+    private AnswerRecordMapper answerRecordMapper;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private TestData testData;
+
+    private final List<QuestionBank> questions = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < QUESTION_COUNT; i++) {
+            questions.add(testData.createQuestion(1, OPTIONS, "A", 5));
+        }
+        // 预热题目、快照和答案键缓存，各次计数都在缓存命中的稳定状态下进行
+        AnswerSession warmup = testData.createSession();
+        batchSubmit(warmup, questions);
+    }
+
+    @AfterEach
+    void tearDown() {
+        testData.cleanup();
+    }
+
+    @Test
+    void batchSubmitStatementsDoNotGrowWithAnswerCount() {
+        AnswerSession singleSession = testData.createSession();
+        AnswerSession batchSession = testData.createSession();
+        AnswerSession oneByOneSession = testData.createSession();
+
+        List<String> single = countStatements(() -> batchSubmit(singleSession, questions.subList(0, 1)));
+        List<String> batch = countStatements(() -> batchSubmit(batchSession, questions));
+        List<String> oneByOne = countStatements(() -> {
+            for (QuestionBank question : questions) {
+                SubmitAnswerDTO submit = new SubmitAnswerDTO();
+                submit.setSessionCode(oneByOneSession.getSessionCode());
+                submit.setQuestionId(question.getId());
+                submit.setUserAnswer("A");
+                submit.setTimeSpentSeconds(10);
+                answerRecordService.submitAnswer(submit, oneByOneSession.getUserId());
+            }
+        });
+        log.info("每次提交的SQL语句数: 批量提交1题={}, 批量提交{}题={}, 逐题提交{}题={}",
+                single.size(), QUESTION_COUNT, batch.size(), QUESTION_COUNT, oneByOne.size());
+
+        assertEquals(single.size(), batch.size(), () -> "批量提交的语句数随答案数量增长: " + batch);
+        assertEquals(1, inserts(batch), () -> "新记录应以一条多值INSERT写入: " + batch);
+        assertEquals(QUESTION_COUNT, inserts(oneByOne));
+        assertTrue(batch.size() < oneByOne.size());
+    }
+
+    @Test
+    void answeredQuestionsReturnExistingRecords() {
+        AnswerSession session = testData.createSession();
+        QuestionBank answered = questions.get(2);
+        AnswerRecord existing = batchSubmit(session, Arrays.asList(answered)).get(0);
+
+        BatchSubmitAnswerDTO request = request(session);
+        request.getAnswers().add(answer(questions.get(0), "A"));
+        request.getAnswers().add(answer(questions.get(1), "B"));
+        request.getAnswers().add(answer(answered, "B"));
+        request.getAnswers().add(answer(questions.get(0), "B"));
+        List<AnswerRecord> records = answerRecordService.batchSubmitAnswers(request, session.getUserId());
+
+        // 返回顺序与请求一致；已答过的题目返回已有记录，请求内重复的题目返回同一条新记录
+        assertEquals(4, records.size());
+        AnswerRecord first = records.get(0);
+        assertEquals(questions.get(0).getId(), first.getQuestionId());
+        assertTrue(first.getIsCorrect());
+        assertEquals(5, first.getFinalScore());
+        assertEquals(existing.getSequenceNumber() + 1, first.getSequenceNumber());
+
+        AnswerRecord second = records.get(1);
+        assertFalse(second.getIsCorrect());
+        assertEquals(0, second.getFinalScore());
+        assertEquals(first.getSequenceNumber() + 1, second.getSequenceNumber());
+
+        assertEquals(existing.getId(), records.get(2).getId());
+        assertEquals("A", records.get(2).getUserAnswer());
+        assertSame(first, records.get(3));
+        assertEquals(3, rows(session).size());
+    }
+
+    @Test
+    void rejectsUnknownQuestionBeforeWriting() {
+        AnswerSession session = testData.createSession();
+        BatchSubmitAnswerDTO request = request(session);
+        request.getAnswers().add(answer(questions.get(0), "A"));
+        BatchSubmitAnswerDTO.AnswerDTO unknown = new BatchSubmitAnswerDTO.AnswerDTO();
+        unknown.setQuestionId(Long.MAX_VALUE);
+        unknown.setUserAnswer("A");
+        request.getAnswers().add(unknown);
+
+        List<String> executed = countStatements(() -> {
+            BusinessException e = assertThrows(BusinessException.class,
+                    () -> answerRecordService.batchSubmitAnswers(request, session.getUserId()));
+            assertEquals(ErrorCode.QUESTION_NOT_FOUND, e.getErrorCode());
+        });
+        assertEquals(0, inserts(executed));
+        assertTrue(rows(session).isEmpty());
+    }
+
+    private List<String> countStatements(Runnable action) {
+        statementCounter.reset();
+        action.run();
+        return statementCounter.statements();
+    }
+
+    private List<AnswerRecord> batchSubmit(AnswerSession session, List<QuestionBank> answeredQuestions) {
+        BatchSubmitAnswerDTO request = request(session);
+        for (QuestionBank question : answeredQuestions) {
+            request.getAnswers().add(answer(question, "A"));
+        }
+        return answerRecordService.batchSubmitAnswers(request, session.getUserId());
+    }
+
+    private static BatchSubmitAnswerDTO request(AnswerSession session) {
+        BatchSubmitAnswerDTO request = new BatchSubmitAnswerDTO();
+        request.setSessionCode(session.getSessionCode());
+        request.setAnswers(new ArrayList<>());
+        return request;
+    }
+
+    private static BatchSubmitAnswerDTO.AnswerDTO answer(QuestionBank question, String userAnswer) {
+        BatchSubmitAnswerDTO.AnswerDTO answer = new BatchSubmitAnswerDTO.AnswerDTO();
+        answer.setQuestionId(question.getId());
+        answer.setUserAnswer(userAnswer);
+        answer.setTimeSpentSeconds(10);
+        return answer;
+    }
+
+    private static long inserts(List<String> statements) {
+        return statements.stream().filter(sql -> sql.startsWith("INSERT INTO answer_record")).count();
+    }
+
+    private List<AnswerRecord> rows(AnswerSession session) {
+        return answerRecordMapper.selectList(new LambdaQueryWrapper<AnswerRecord>()
+                .eq(AnswerRecord::getSessionId, session.getId()));
+    }
+}
@@ -0,0 +1,120 @@
+package com.gujian.questionnaire.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.gujian.questionnaire.dto.SubmitAnswerDTO;
+import com.gujian.questionnaire.entity.AnswerRecord;
+import com.gujian.questionnaire.entity.AnswerSession;
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.mapper.AnswerRecordMapper;
+import com.gujian.questionnaire.service.AnswerRecordService;
+import com.gujian.questionnaire.service.AnswerWriteBuffer;
+import com.gujian.questionnaire.support.IntegrationTest;
+import com.gujian.questionnaire.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 同步写入模式（未开启写后缓冲）下的并发重复提交：多个线程同时提交同一题目，
+ * 插入冲突后加共享锁读取已有记录，最终只有一条记录，所有请求返回同一条记录
+ */
+@IntegrationTest
+class AnswerSubmitConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private AnswerRecordService answerRecordService;
+
+    @Autowired
+    private AnswerRecordMapper answerRecordMapper;
+
+    @Autowired
+    private AnswerWriteBuffer answerWriteBuffer;
+
+    @Autowired
+    private TestData testData;
+
+    @BeforeEach
+    void requireSynchronousWrites() {
+        assertFalse(answerWriteBuffer.isEnabled(), "该测试覆盖未开启写后缓冲时的同步写入路径");
+    }
+
+    @AfterEach
+    void tearDown() {
+        testData.cleanup();
+    }
+
+    @Test
+    void sameQuestionWithSameIdempotencyKey() throws Exception {
+        assertSingleRecord(i -> "retry-1");
+    }
+
+    @Test
+    void sameQuestionWithDifferentIdempotencyKeys() throws Exception {
+        assertSingleRecord(i -> "click-" + i);
+    }
+
+    @Test
+    void sameQuestionWithoutIdempotencyKey() throws Exception {
+        assertSingleRecord(i -> null);
+    }
+
+    /**
+     * 所有线程同时提交同一题目（答案各不相同），只能插入一条记录，每个请求都返回这条记录
+     */
+    private void assertSingleRecord(IntFunction<String> idempotencyKeyOf) throws Exception {
+        QuestionBank question = testData.createQuestion(1, "[\"A\",\"B\",\"C\",\"D\"]", "A", 5);
+        AnswerSession session = testData.createSession();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<AnswerRecord>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                SubmitAnswerDTO submit = new SubmitAnswerDTO();
+                submit.setSessionCode(session.getSessionCode());
+                submit.setQuestionId(question.getId());
+                submit.setUserAnswer(i % 2 == 0 ? "A" : "B");
+                submit.setTimeSpentSeconds(i);
+                submit.setIdempotencyKey(idempotencyKeyOf.apply(i));
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return answerRecordService.submitAnswer(submit, session.getUserId());
+                }));
+            }
+            start.countDown();
+
+            List<AnswerRecord> returned = new ArrayList<>();
+            for (Future<AnswerRecord> future : futures) {
+                returned.add(future.get(30, TimeUnit.SECONDS));
+            }
+            List<AnswerRecord> stored = answerRecordMapper.selectList(new LambdaQueryWrapper<AnswerRecord>()
+                    .eq(AnswerRecord::getSessionId, session.getId()));
+
+            assertEquals(1, stored.size(), "同一会话同一题目只能插入一条记录");
+            AnswerRecord record = stored.get(0);
+            for (AnswerRecord result : returned) {
+                assertEquals(record.getId(), result.getId());
+                assertEquals(record.getUserAnswer(), result.getUserAnswer());
+                assertEquals(record.getSequenceNumber(), result.getSequenceNumber());
+                assertEquals(record.getFinalScore(), result.getFinalScore());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.gujian.questionnaire.service.impl;
+
+import com.gujian.questionnaire.dto.RescoreDTO;
+import com.gujian.questionnaire.entity.AnswerRecord;
+import com.gujian.questionnaire.entity.AnswerSession;
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.mapper.AnswerRecordMapper;
+import com.gujian.questionnaire.service.RescoreService;
+import com.gujian.questionnaire.support.IntegrationTest;
+import com.gujian.questionnaire.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 重新评分与人工评分并发：重新评分读取记录后、写回前，人工评分提交了新的分数，
+ * 写回的最终得分必须按行内最新的人工评分计算，不能用读取时的旧值覆盖
+ */
+@IntegrationTest
+class RescoreConcurrencyTest {
+
+    private static final long LOCK_WAIT_TIMEOUT_MS = 10_000;
+
+    @Autowired
+    private RescoreService rescoreService;
+
+    @Autowired
+    private AnswerRecordMapper answerRecordMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestData testData;
+
+    @AfterEach
+    void tearDown() {
+        testData.cleanup();
+    }
+
+    @Test
+    void manualScoreCommittedDuringRescoreIsKept() throws Exception {
+        QuestionBank question = testData.createQuestion(1, "[\"A\",\"B\",\"C\",\"D\"]", "A", 5);
+        AnswerSession session = testData.createSession();
+        // 答案正确但原判为错误，重新评分会把自动评分改为5分
+        AnswerRecord record = new AnswerRecord();
+        record.setSessionId(session.getId());
+        record.setQuestionId(question.getId());
+        record.setQuestionType(1);
+        record.setUserAnswer("A");
+        record.setIsCorrect(false);
+        record.setAutoScore(0);
+        record.setFinalScore(0);
+        record.setAnswerTime(LocalDateTime.now());
+        record.setSequenceNumber(1);
+        answerRecordMapper.insert(record);
+
+        RescoreDTO scope = new RescoreDTO();
+        scope.setQuestionId(question.getId());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch scored = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // 人工评分：写入2分后持有行锁不提交
+            Future<?> scoring = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                answerRecordMapper.updateManualScore(record.getId(), 2);
+                scored.countDown();
+                awaitQuietly(release);
+            }));
+            assertTrue(scored.await(10, TimeUnit.SECONDS));
+
+            // 重新评分：一致性读取到未提交前的记录（人工评分为空），写回时阻塞在行锁上
+            Future<Long> rescore = executor.submit(() -> rescoreService.rescoreNow(scope));
+            assertTrue(awaitLockWait(), "重新评分应在写回时等待人工评分事务释放行锁");
+
+            release.countDown();
+            scoring.get(30, TimeUnit.SECONDS);
+            assertEquals(1L, rescore.get(30, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        AnswerRecord stored = answerRecordMapper.selectById(record.getId());
+        assertTrue(stored.getIsCorrect());
+        assertEquals(5, stored.getAutoScore());
+        assertEquals(2, stored.getManualScore());
+        assertEquals(7, stored.getFinalScore(), "最终得分 = 新自动评分 + 提交时的人工评分");
+    }
+
+    private boolean awaitLockWait() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + LOCK_WAIT_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            Integer waiting = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.innodb_trx WHERE trx_state = 'LOCK WAIT'", Integer.class);
+            if (waiting != null && waiting > 0) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.gujian.questionnaire.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gujian.questionnaire.dto.RescoreDTO;
+import com.gujian.questionnaire.entity.AnswerRecord;
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.mapper.AnswerRecordMapper;
+import com.gujian.questionnaire.mapper.AnswerSessionMapper;
+import com.gujian.questionnaire.mapper.QuestionBankMapper;
+import com.gujian.questionnaire.service.AnswerKeyCache;
+import com.gujian.questionnaire.service.QuestionStatsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 重新评分引擎测试：按游标分页、只写回变化的记录、保留人工评分、合并题目统计增量
+ */
+class RescoreServiceImplTest {
+
+    private AnswerRecordMapper answerRecordMapper;
+
+    private AnswerSessionMapper answerSessionMapper;
+
+    private QuestionStatsService questionStatsService;
+
+    private RescoreServiceImpl rescoreService;
+
+    private final List<AnswerRecord> writtenUpdates = new ArrayList<>();
+
+    private final Set<Long> recomputedSessions = new HashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        answerRecordMapper = mock(AnswerRecordMapper.class);
+        answerSessionMapper = mock(AnswerSessionMapper.class);
+        questionStatsService = mock(QuestionStatsService.class);
+        QuestionBankMapper questionBankMapper = mock(QuestionBankMapper.class);
+
+        AnswerKeyCache answerKeyCache = new AnswerKeyCache();
+        ReflectionTestUtils.setField(answerKeyCache, "objectMapper", new ObjectMapper());
+
+        when(questionBankMapper.selectBatchIds(any())).thenReturn(Arrays.asList(
+                question(1L, 1, "A", "[\"甲\",\"乙\"]", 5),
+                question(2L, 3, "42", null, 3)));
+        when(answerRecordMapper.updateScoresBatch(anyList())).thenAnswer(invocation -> {
+            List<AnswerRecord> batch = invocation.getArgument(0);
+            writtenUpdates.addAll(batch);
+            return batch.size();
+        });
+        when(answerSessionMapper.recomputeFinalScores(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> sessionIds = invocation.getArgument(0);
+            recomputedSessions.addAll(sessionIds);
+            return sessionIds.size();
+        });
+
+        rescoreService = new RescoreServiceImpl();
+        ReflectionTestUtils.setField(rescoreService, "batchSize", 2);
+        ReflectionTestUtils.setField(rescoreService, "parallelism", 2);
+        ReflectionTestUtils.setField(rescoreService, "answerRecordMapper", answerRecordMapper);
+        ReflectionTestUtils.setField(rescoreService, "answerSessionMapper", answerSessionMapper);
+        ReflectionTestUtils.setField(rescoreService, "questionBankMapper", questionBankMapper);
+        ReflectionTestUtils.setField(rescoreService, "answerKeyCache", answerKeyCache);
+        ReflectionTestUtils.setField(rescoreService, "questionStatsService", questionStatsService);
+        ReflectionTestUtils.setField(rescoreService, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        rescoreService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        rescoreService.shutdown();
+    }
+
+    @Test
+    void writesBackOnlyChangedRecordsAndKeepsManualScore() {
+        RescoreDTO scope = new RescoreDTO();
+        // 第1页：记录1原判错误现在正确；记录2结果不变
+        when(answerRecordMapper.selectForRescore(scope, 0L, 2)).thenReturn(Arrays.asList(
+                record(1L, 10L, 1L, "A", false, 0, null, 0),
+                record(2L, 10L, 2L, "42.0", true, 3, null, 3)));
+        // 第2页（不满一页，结束）：记录3原判正确现在错误，最终得分由SQL按人工评分计算，统计增量按读取时的2分计算
+        when(answerRecordMapper.selectForRescore(scope, 2L, 2)).thenReturn(Arrays.asList(
+                record(3L, 11L, 1L, "乙", true, 5, 2, 7)));
+
+        long changed = rescoreService.rescoreNow(scope);
+
+        assertEquals(2, changed);
+        assertEquals(2, writtenUpdates.size());
+
+        AnswerRecord first = writtenUpdates.get(0);
+        assertEquals(1L, first.getId());
+        assertTrue(first.getIsCorrect());
+        assertEquals(5, first.getAutoScore());
+
+        AnswerRecord second = writtenUpdates.get(1);
+        assertEquals(3L, second.getId());
+        assertFalse(second.getIsCorrect());
+        assertEquals(0, second.getAutoScore());
+
+        assertEquals(new HashSet<>(Arrays.asList(10L, 11L)), recomputedSessions);
+        verify(questionStatsService).recordScoreChange(1L, 1, 5);
+        verify(questionStatsService).recordScoreChange(1L, -1, -5);
+        verifyNoMoreInteractions(questionStatsService);
+    }
+
+    @Test
+    void unchangedPageWritesNothing() {
+        RescoreDTO scope = new RescoreDTO();
+        scope.setQuestionId(2L);
+        when(answerRecordMapper.selectForRescore(scope, 0L, 2)).thenReturn(Arrays.asList(
+                record(4L, 12L, 2L, "42", true, 3, null, 3),
+                // 题目已删除：保持原结果
+                record(5L, 12L, 99L, "x", true, 1, null, 1)));
+
+        assertEquals(0, rescoreService.rescoreNow(scope));
+        assertTrue(writtenUpdates.isEmpty());
+        assertTrue(recomputedSessions.isEmpty());
+        verifyNoMoreInteractions(questionStatsService);
+    }
+
+    private static QuestionBank question(Long id, int type, String correctAnswer, String options, int score) {
+        QuestionBank question = new QuestionBank();
+        question.setId(id);
+        question.setType(type);
+        question.setCorrectAnswer(correctAnswer);
+        question.setOptions(options);
+        question.setScore(score);
+        return question;
+    }
+
+    private static AnswerRecord record(Long id, Long sessionId, Long questionId, String userAnswer,
+                                       Boolean isCorrect, int autoScore, Integer manualScore, int finalScore) {
+        AnswerRecord record = new AnswerRecord();
+        record.setId(id);
+        record.setSessionId(sessionId);
+        record.setQuestionId(questionId);
+        record.setUserAnswer(userAnswer);
+        record.setIsCorrect(isCorrect);
+        record.setAutoScore(autoScore);
+        record.setManualScore(manualScore);
+        record.setFinalScore(finalScore);
+        return record;
+    }
+}
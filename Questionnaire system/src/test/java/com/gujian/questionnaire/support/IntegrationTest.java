@@ -0,0 +1,23 @@
+package com.gujian.questionnaire.support;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 集成测试：启动完整应用上下文，使用 application.yml 中配置的 MySQL 和 Redis
+ * 测试数据由 {@link TestData} 创建，测试结束后调用 {@link TestData#cleanup()} 物理删除；
+ * {@link StatementCounter} 统计测试线程实际执行的SQL语句
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@SpringBootTest
+@Import({TestData.class, StatementCounter.class})
+public @interface IntegrationTest {
+}
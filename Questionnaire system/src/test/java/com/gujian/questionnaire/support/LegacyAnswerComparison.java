@@ -0,0 +1,139 @@
+package com.gujian.questionnaire.support;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 原 AnswerRecordServiceImpl 中的 compareSingleChoice / compareMultipleChoice / compareFillBlank 比较逻辑
+ * 作为 AnswerKey 的一致性基准和性能基准，选项为null表示选项为空或无法解析
+ */
+public final class LegacyAnswerComparison {
+
+    private LegacyAnswerComparison() {
+    }
+
+    public static boolean compare(int type, String user, String correct, List<String> options) {
+        switch (type) {
+            case 1:
+            case 5:
+                return singleChoice(user, correct, options);
+            case 2:
+                return multipleChoice(user, correct, options);
+            case 3:
+                return fillBlank(user, correct);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean singleChoice(String userAnswer, String correctAnswer, List<String> options) {
+        String userOption = userAnswer.trim();
+        String correctOption = correctAnswer.trim();
+        if (userOption.equalsIgnoreCase(correctOption)) {
+            return true;
+        }
+        if (options == null) {
+            return false;
+        }
+        if (userOption.matches("^[A-Za-z]$")) {
+            int optionIndex = userOption.toUpperCase().charAt(0) - 'A';
+            if (optionIndex < options.size() && options.get(optionIndex).trim().equalsIgnoreCase(correctOption)) {
+                return true;
+            }
+        }
+        if (correctOption.matches("^[A-Za-z]$")) {
+            int correctIndex = correctOption.toUpperCase().charAt(0) - 'A';
+            if (correctIndex < options.size() && options.get(correctIndex).trim().equalsIgnoreCase(userOption)) {
+                return true;
+            }
+        }
+        int userIndex = -1;
+        int correctIndex = -1;
+        for (int i = 0; i < options.size(); i++) {
+            if (options.get(i).trim().equalsIgnoreCase(userOption)) {
+                userIndex = i;
+            }
+            if (options.get(i).trim().equalsIgnoreCase(correctOption)) {
+                correctIndex = i;
+            }
+        }
+        return userIndex >= 0 && userIndex == correctIndex;
+    }
+
+    private static boolean multipleChoice(String userAnswer, String correctAnswer, List<String> options) {
+        List<String> userAnswers = Arrays.stream(userAnswer.trim().split(","))
+                .map(String::trim).sorted().collect(Collectors.toList());
+        List<String> correctAnswers = Arrays.stream(correctAnswer.trim().split(","))
+                .map(String::trim).sorted().collect(Collectors.toList());
+        if (userAnswers.size() == correctAnswers.size()) {
+            boolean directMatch = true;
+            for (int i = 0; i < userAnswers.size(); i++) {
+                if (!userAnswers.get(i).equalsIgnoreCase(correctAnswers.get(i))) {
+                    directMatch = false;
+                    break;
+                }
+            }
+            if (directMatch) {
+                return true;
+            }
+        }
+        if (options == null) {
+            return false;
+        }
+        return letters(userAnswers, options).equals(letters(correctAnswers, options));
+    }
+
+    private static Set<String> letters(List<String> answers, List<String> options) {
+        Set<String> letters = new HashSet<>();
+        for (String answer : answers) {
+            String trimmed = answer.trim();
+            if (trimmed.matches("^[A-Za-z]$")) {
+                letters.add(trimmed.toUpperCase());
+            } else {
+                for (int i = 0; i < options.size(); i++) {
+                    if (options.get(i).trim().equalsIgnoreCase(trimmed)) {
+                        letters.add(String.valueOf((char) ('A' + i)));
+                        break;
+                    }
+                }
+            }
+        }
+        return letters;
+    }
+
+    private static boolean fillBlank(String userAnswer, String correctAnswer) {
+        String userTrimmed = userAnswer.trim();
+        String correctTrimmed = correctAnswer.trim();
+        if (userTrimmed.equalsIgnoreCase(correctTrimmed)) {
+            return true;
+        }
+        String[] correctAnswers = correctTrimmed.split("[,，;；|、]");
+        for (String correct : correctAnswers) {
+            if (userTrimmed.equalsIgnoreCase(correct.trim())) {
+                return true;
+            }
+        }
+        if (correctAnswers.length > 1) {
+            String[] userAnswers = userTrimmed.split("[,，;；|、]");
+            if (userAnswers.length > 1 && normalized(userAnswers).equals(normalized(correctAnswers))) {
+                return true;
+            }
+        }
+        try {
+            return Math.abs(Double.parseDouble(userTrimmed) - Double.parseDouble(correctTrimmed)) < 0.0001;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static Set<String> normalized(String[] parts) {
+        return Arrays.stream(parts)
+                .map(String::trim)
+                .map(String::toLowerCase)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,104 @@
+package com.gujian.questionnaire.support;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * 单线程微基准：先预热到JIT编译稳定，再按整轮遍历测量每次操作的耗时和分配字节数
+ * 分配量取自 HotSpot 的线程分配计数（com.sun.management.ThreadMXBean）；
+ * 每次操作的返回值计入结果，防止被JIT作为死代码消除
+ */
+public final class MicroBenchmark {
+
+    private static final long WARMUP_NANOS = 2_000_000_000L;
+
+    private static final int ROUNDS = 15;
+
+    private MicroBenchmark() {
+    }
+
+    /**
+     * 测量操作 op(0..size-1)
+     * @return 测量结果，matched 为一整轮中返回 true 的次数
+     */
+    public static Result measure(String name, int size, IntPredicate op) {
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            pass(size, op);
+        }
+
+        long[] samples = new long[ROUNDS];
+        int matched = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime();
+            matched = pass(size, op);
+            samples[r] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+
+        com.sun.management.ThreadMXBean threads = threadBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int r = 0; r < ROUNDS; r++) {
+            pass(size, op);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        return new Result(name, (double) samples[ROUNDS / 2] / size, (double) allocated / ((long) ROUNDS * size),
+                matched);
+    }
+
+    private static int pass(int size, IntPredicate op) {
+        int matched = 0;
+        for (int i = 0; i < size; i++) {
+            if (op.test(i)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads;
+    }
+
+    public static final class Result {
+
+        private final String name;
+
+        private final double nanosPerOp;
+
+        private final double bytesPerOp;
+
+        private final int matched;
+
+        private Result(String name, double nanosPerOp, double bytesPerOp, int matched) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+            this.matched = matched;
+        }
+
+        public double getNanosPerOp() {
+            return nanosPerOp;
+        }
+
+        public double getBytesPerOp() {
+            return bytesPerOp;
+        }
+
+        public int getMatched() {
+            return matched;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s %10.1f ns/op %10.1f B/op", name, nanosPerOp, bytesPerOp);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.gujian.questionnaire.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SQL语句计数：包装应用的数据源，记录每次发往数据库的语句（execute* / executeBatch 各计一次）
+ * 按线程记录，定时任务等其他线程执行的SQL不计入
+ */
+@TestComponent
+public class StatementCounter implements BeanPostProcessor {
+
+    private final ThreadLocal<List<String>> executed = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof CountingDataSource)) {
+            return new CountingDataSource((DataSource) bean);
+        }
+        return bean;
+    }
+
+    /**
+     * 清空当前线程的记录，开始计数
+     */
+    public void reset() {
+        executed.get().clear();
+    }
+
+    /**
+     * 当前线程自上次 reset 以来执行的语句数
+     */
+    public int count() {
+        return executed.get().size();
+    }
+
+    /**
+     * 当前线程自上次 reset 以来执行的语句（按执行顺序）
+     */
+    public List<String> statements() {
+        return Collections.unmodifiableList(new ArrayList<>(executed.get()));
+    }
+
+    private void record(String sql) {
+        executed.get().add(sql == null ? "" : sql.replaceAll("\\s+", " ").trim());
+    }
+
+    private class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return countingConnection(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return countingConnection(super.getConnection(username, password));
+        }
+    }
+
+    private Connection countingConnection(Connection connection) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            String name = method.getName();
+            if (result instanceof CallableStatement) {
+                return countingStatement(CallableStatement.class, (Statement) result, (String) args[0]);
+            }
+            if (result instanceof PreparedStatement && "prepareStatement".equals(name)) {
+                return countingStatement(PreparedStatement.class, (Statement) result, (String) args[0]);
+            }
+            if (result instanceof Statement && "createStatement".equals(name)) {
+                return countingStatement(Statement.class, (Statement) result, null);
+            }
+            return result;
+        };
+        return newProxy(Connection.class, handler);
+    }
+
+    private <T extends Statement> T countingStatement(Class<T> type, Statement statement, String preparedSql) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                // Statement.execute*(sql) 带SQL参数，PreparedStatement 使用预编译时的SQL；执行失败的语句同样计入
+                record(args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql);
+            }
+            return invoke(statement, method, args);
+        };
+        return newProxy(type, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T newProxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
@@ -0,0 +1,98 @@
+package com.gujian.questionnaire.support;
+
+import com.gujian.questionnaire.entity.AnswerSession;
+import com.gujian.questionnaire.entity.QuestionBank;
+import com.gujian.questionnaire.mapper.AnswerSessionMapper;
+import com.gujian.questionnaire.service.ActiveSessionStore;
+import com.gujian.questionnaire.service.QuestionBankService;
+import com.gujian.questionnaire.service.QuestionSampler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 集成测试数据：题目经业务服务创建（同时生成快照、加入抽题索引），会话直接写入数据库
+ * 记录创建的ID，测试结束后连同答题记录和题目快照一起物理删除
+ */
+@TestComponent
+public class TestData {
+
+    @Autowired
+    private QuestionBankService questionBankService;
+
+    @Autowired
+    private AnswerSessionMapper answerSessionMapper;
+
+    @Autowired
+    private ActiveSessionStore activeSessionStore;
+
+    @Autowired
+    private QuestionSampler questionSampler;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final List<Long> questionIds = new ArrayList<>();
+
+    private final List<Long> sessionIds = new ArrayList<>();
+
+    /**
+     * 创建启用状态的题目
+     * @param options 选项JSON，主观题为null
+     */
+    public QuestionBank createQuestion(int type, String options, String correctAnswer, int score) {
+        QuestionBank question = new QuestionBank();
+        question.setTitle("集成测试题目-" + UUID.randomUUID());
+        question.setType(type);
+        question.setOptions(options);
+        question.setCorrectAnswer(correctAnswer);
+        question.setScore(score);
+        questionBankService.createQuestion(question, null);
+        questionIds.add(question.getId());
+        return question;
+    }
+
+    /**
+     * 创建进行中的会话，用户ID随机生成，不与真实用户的进行中会话冲突
+     */
+    public AnswerSession createSession() {
+        AnswerSession session = new AnswerSession();
+        session.setUserId(ThreadLocalRandom.current().nextLong(1L << 40, 1L << 50));
+        session.setSessionCode("it-" + UUID.randomUUID().toString().replace("-", ""));
+        session.setQuestionType(0);
+        session.setTotalCount(10);
+        session.setTimeoutMinutes(60);
+        session.setStartTime(LocalDateTime.now());
+        session.setStatus(1);
+        answerSessionMapper.insert(session);
+        sessionIds.add(session.getId());
+        return session;
+    }
+
+    /**
+     * 物理删除本次创建的数据，并清理活跃会话缓存和抽题索引
+     */
+    public void cleanup() {
+        if (!sessionIds.isEmpty()) {
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", sessionIds);
+            jdbcTemplate.update("DELETE FROM answer_record WHERE session_id IN (:ids)", params);
+            jdbcTemplate.update("DELETE FROM answer_session WHERE id IN (:ids)", params);
+            activeSessionStore.evictAll(new ArrayList<>(sessionIds));
+            sessionIds.clear();
+        }
+        if (!questionIds.isEmpty()) {
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", questionIds);
+            jdbcTemplate.update("DELETE FROM question_snapshot WHERE question_id IN (:ids)", params);
+            jdbcTemplate.update("DELETE FROM question_bank WHERE id IN (:ids)", params);
+            questionSampler.onQuestionsRemoved(new ArrayList<>(questionIds));
+            questionIds.clear();
+        }
+    }
+}
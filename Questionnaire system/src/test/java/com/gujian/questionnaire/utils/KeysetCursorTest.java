@@ -0,0 +1,91 @@
+package com.gujian.questionnaire.utils;
+
+import com.gujian.questionnaire.common.enums.ErrorCode;
+import com.gujian.questionnaire.dto.CursorPageVO;
+import com.gujian.questionnaire.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 键集分页游标测试
+ */
+class KeysetCursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 8, 30, 15, 123_000_000);
+        String cursor = KeysetCursor.encode(time, 4096L);
+
+        // URL安全且无填充，可直接作为查询参数
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor);
+        assertEquals(time, decoded.getTime());
+        assertEquals(4096L, decoded.getId());
+    }
+
+    @Test
+    void emptyCursorMeansFirstPage() {
+        for (String cursor : new String[]{null, "", "  "}) {
+            KeysetCursor decoded = KeysetCursor.decode(cursor);
+            assertNull(decoded.getTime());
+            assertNull(decoded.getId());
+        }
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        for (String cursor : new String[]{"not-a-cursor", "%%%", KeysetCursor.encode(null, 1L)}) {
+            BusinessException e = assertThrows(BusinessException.class, () -> KeysetCursor.decode(cursor));
+            assertEquals(ErrorCode.PARAMETER_INVALID, e.getErrorCode());
+        }
+    }
+
+    @Test
+    void pageSizeIsClamped() {
+        assertEquals(1, KeysetCursor.pageSize(0));
+        assertEquals(1, KeysetCursor.pageSize(-5));
+        assertEquals(20, KeysetCursor.pageSize(20));
+        assertEquals(KeysetCursor.MAX_PAGE_SIZE, KeysetCursor.pageSize(10_000));
+    }
+
+    @Test
+    void pageWithExtraRowHasNextCursor() {
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 12, 0);
+        List<long[]> rows = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            rows.add(new long[]{100 - i, i});
+        }
+
+        CursorPageVO<long[]> page = KeysetCursor.page(rows, 3, row -> base.minusMinutes(row[1]), row -> row[0], 10L);
+        assertEquals(3, page.getRecords().size());
+        assertTrue(page.getHasMore());
+        assertEquals(10L, page.getTotal());
+
+        // 游标指向本页最后一行
+        KeysetCursor next = KeysetCursor.decode(page.getNextCursor());
+        assertEquals(base.minusMinutes(2), next.getTime());
+        assertEquals(98L, next.getId());
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        List<long[]> rows = new ArrayList<>();
+        rows.add(new long[]{1, 0});
+
+        CursorPageVO<long[]> page = KeysetCursor.page(rows, 3, row -> LocalDateTime.now(), row -> row[0], null);
+        assertEquals(1, page.getRecords().size());
+        assertFalse(page.getHasMore());
+        assertNull(page.getNextCursor());
+        assertNull(page.getTotal());
+    }
+}